@@ -0,0 +1,67 @@
+package edu.ntnu.stud.benchmark;
+
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for {@link TrainRegister#departTrains()} while the clock sweeps over a whole day, one
+ * minute at a time. Every invocation needs a fully loaded register, so the register is reloaded
+ * before each invocation, outside of the measured time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepartTrainsBenchmark {
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  @Param({"1000", "10000"})
+  private int size;
+
+  private ArrayList<TrainDeparture> timetable;
+  private TrainRegister trainRegister;
+
+  /** Generates the timetable. */
+  @Setup(Level.Trial)
+  public void generateTimetable() {
+    timetable = new TimetableGenerator(42).generate(size);
+  }
+
+  /** Loads a new register with the timetable, since the previous invocation departed it. */
+  @Setup(Level.Invocation)
+  public void loadRegister() {
+    trainRegister = new TrainRegister();
+    timetable.forEach(trainRegister::addTrainDeparture);
+  }
+
+  /**
+   * Advances the clock minute by minute from 00:01 to 23:59 and departs trains after each step.
+   *
+   * @param blackhole consumes the departed trains
+   */
+  @Benchmark
+  public void departTrainsSweepingClock(Blackhole blackhole) {
+    for (int minute = 1; minute < MINUTES_PER_DAY; minute++) {
+      trainRegister.setClock(LocalTime.of(minute / 60, minute % 60));
+      blackhole.consume(trainRegister.departTrains());
+    }
+  }
+}
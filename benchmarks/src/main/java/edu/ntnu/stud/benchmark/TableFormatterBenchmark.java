@@ -0,0 +1,75 @@
+package edu.ntnu.stud.benchmark;
+
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.view.TableFormatter;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for {@link TableFormatter#buildTable(String[][])}. The table has the same columns and
+ * escape sequences as the departure tables of the user interface. A table is not limited by the
+ * number of train numbers, so rows are repeated to reach the larger sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableFormatterBenchmark {
+  @Param({"1000", "10000", "100000"})
+  private int size;
+
+  private String[][] table;
+
+  /** Builds the table data from a generated timetable. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    ArrayList<TrainDeparture> timetable =
+        new TimetableGenerator(42).generate(Math.min(size, TimetableGenerator.MAX_TRAIN_NUMBER));
+
+    table = new String[size + 1][];
+    table[0] = new String[] {"Departure", "Line", "Number", "Destination", "Track", "Delay"};
+    for (int i = 0; i < size; i++) {
+      TrainDeparture trainDeparture = timetable.get(i % timetable.size());
+      table[i + 1] =
+          new String[] {
+            trainDeparture.getDelayMinutes() == 0
+                ? trainDeparture.getDepartureTime().toString()
+                : trainDeparture.getDepartureTimeWithDelay()
+                    + " \u001b[9m"
+                    + trainDeparture.getDepartureTime()
+                    + "\u001b[0m",
+            trainDeparture.getLine(),
+            Integer.toString(trainDeparture.getTrainNumber()),
+            trainDeparture.getDestination(),
+            trainDeparture.getTrack() == 0
+                ? "No track"
+                : Integer.toString(trainDeparture.getTrack()),
+            trainDeparture.getDelayMinutes() == 0 ? "" : trainDeparture.getDelayMinutes() + " min"
+          };
+    }
+  }
+
+  /**
+   * Builds the formatted table.
+   *
+   * @return the table as a string
+   */
+  @Benchmark
+  public String buildTable() {
+    return TableFormatter.buildTable(table);
+  }
+}
@@ -0,0 +1,150 @@
+package edu.ntnu.stud.benchmark;
+
+import edu.ntnu.stud.model.TrainDeparture;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *
+ *
+ * <h2>TimetableGenerator</h2>
+ *
+ * <p>The TimetableGenerator class creates synthetic timetables for the benchmarks. Destinations
+ * follow a Zipf distribution, so a few large destinations get most of the departures, like at a
+ * real station. Departure times are spread over the service day from 05:00, most departures are on
+ * time, and a few have no track. The same seed always gives the same timetable, so numbers from
+ * different runs can be compared.
+ */
+public final class TimetableGenerator {
+  /** The highest possible train number, so a register can hold at most this many departures + 1. */
+  public static final int MAX_TRAIN_NUMBER = 9999;
+
+  private static final String[] DESTINATIONS = {
+    "Oslo",
+    "Bergen",
+    "Trondheim",
+    "Stavanger",
+    "Drammen",
+    "Lillehammer",
+    "Kristiansand",
+    "Bodø",
+    "Hamar",
+    "Skien",
+    "Gjøvik",
+    "Halden",
+    "Moss",
+    "Fredrikstad",
+    "Arendal",
+    "Ålesund",
+    "Åndalsnes",
+    "Kongsberg",
+    "Notodden",
+    "Myrdal",
+    "Voss",
+    "Steinkjer",
+    "Røros",
+    "Elverum",
+    "Kongsvinger",
+    "Mo i Rana",
+    "Mosjøen",
+    "Narvik",
+    "Tromsø",
+    "Flåm"
+  };
+  private static final int FIRST_DEPARTURE_MINUTE = 5 * 60;
+  private static final int LAST_DEPARTURE_MINUTE = 24 * 60 - 1;
+  private static final int NUMBER_OF_TRACKS = 12;
+
+  private final Random random;
+  private final double[] cumulativeDestinationWeights;
+
+  /**
+   * Constructs a generator with the given seed.
+   *
+   * @param seed the seed of the random number generator
+   */
+  public TimetableGenerator(long seed) {
+    this.random = new Random(seed);
+    this.cumulativeDestinationWeights = new double[DESTINATIONS.length];
+
+    double sum = 0;
+    for (int rank = 0; rank < DESTINATIONS.length; rank++) {
+      sum += 1.0 / (rank + 1);
+      cumulativeDestinationWeights[rank] = sum;
+    }
+    for (int rank = 0; rank < DESTINATIONS.length; rank++) {
+      cumulativeDestinationWeights[rank] /= sum;
+    }
+  }
+
+  /**
+   * Generates a timetable with the given number of departures and unique train numbers.
+   *
+   * @param size the number of departures
+   * @return the departures, in random order
+   * @throws IllegalArgumentException if there are not enough train numbers for the departures
+   */
+  public ArrayList<TrainDeparture> generate(int size) {
+    if (size > MAX_TRAIN_NUMBER + 1) {
+      throw new IllegalArgumentException("Cannot generate more than 10000 unique train numbers");
+    }
+
+    int[] trainNumbers = shuffledTrainNumbers();
+    ArrayList<TrainDeparture> departures = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int destinationRank = nextDestinationRank();
+      departures.add(
+          new TrainDeparture(
+              nextDepartureTime(),
+              "L" + (destinationRank % 14 + 1),
+              trainNumbers[i],
+              DESTINATIONS[destinationRank],
+              nextTrack(),
+              nextDelay()));
+    }
+    return departures;
+  }
+
+  /**
+   * Returns a destination drawn from the same skewed distribution as the timetable, for queries.
+   *
+   * @return a destination
+   */
+  public String nextDestination() {
+    return DESTINATIONS[nextDestinationRank()];
+  }
+
+  private int nextDestinationRank() {
+    int index = Arrays.binarySearch(cumulativeDestinationWeights, random.nextDouble());
+    return Math.min(index >= 0 ? index : -index - 1, DESTINATIONS.length - 1);
+  }
+
+  private LocalTime nextDepartureTime() {
+    int minute =
+        FIRST_DEPARTURE_MINUTE + random.nextInt(LAST_DEPARTURE_MINUTE - FIRST_DEPARTURE_MINUTE);
+    return LocalTime.of(minute / 60, minute % 60);
+  }
+
+  private int nextTrack() {
+    return random.nextInt(20) == 0 ? 0 : random.nextInt(NUMBER_OF_TRACKS) + 1;
+  }
+
+  private Duration nextDelay() {
+    return random.nextInt(10) < 7 ? Duration.ZERO : Duration.ofMinutes(random.nextInt(30) + 1);
+  }
+
+  private int[] shuffledTrainNumbers() {
+    int[] trainNumbers = new int[MAX_TRAIN_NUMBER + 1];
+    Arrays.setAll(trainNumbers, i -> i);
+    for (int i = trainNumbers.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = trainNumbers[i];
+      trainNumbers[i] = trainNumbers[j];
+      trainNumbers[j] = swap;
+    }
+    return trainNumbers;
+  }
+}
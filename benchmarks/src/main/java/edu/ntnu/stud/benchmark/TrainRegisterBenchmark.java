@@ -0,0 +1,111 @@
+package edu.ntnu.stud.benchmark;
+
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for loading, looking up and sorting departures in {@link TrainRegister}. Train numbers
+ * are unique and at most 9999, so a register cannot hold more than 10000 departures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainRegisterBenchmark {
+  private static final int QUERIES = 1024;
+
+  @Param({"1000", "10000"})
+  private int size;
+
+  private ArrayList<TrainDeparture> timetable;
+  private TrainRegister trainRegister;
+  private int[] trainNumberQueries;
+  private String[] destinationQueries;
+
+  /** Generates the timetable and the queries, and loads a register to query. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    TimetableGenerator generator = new TimetableGenerator(42);
+    timetable = generator.generate(size);
+
+    trainRegister = new TrainRegister();
+    timetable.forEach(trainRegister::addTrainDeparture);
+
+    Random random = new Random(7);
+    trainNumberQueries = new int[QUERIES];
+    destinationQueries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      trainNumberQueries[i] = timetable.get(random.nextInt(size)).getTrainNumber();
+      destinationQueries[i] = generator.nextDestination();
+    }
+  }
+
+  /**
+   * Loads the whole timetable into an empty register.
+   *
+   * @return the loaded register
+   */
+  @Benchmark
+  public TrainRegister addTrainDepartureBulkLoad() {
+    TrainRegister register = new TrainRegister();
+    for (TrainDeparture trainDeparture : timetable) {
+      register.addTrainDeparture(trainDeparture);
+    }
+    return register;
+  }
+
+  /**
+   * Looks up {@value #QUERIES} departures by train number.
+   *
+   * @param blackhole consumes the results
+   */
+  @Benchmark
+  public void findDepartureByTrainNumber(Blackhole blackhole) {
+    for (int trainNumber : trainNumberQueries) {
+      blackhole.consume(trainRegister.findDepartureByTrainNumber(trainNumber));
+    }
+  }
+
+  /**
+   * Finds the departures to {@value #QUERIES} destinations, drawn with the timetable skew, and
+   * visits every departure found.
+   *
+   * @param blackhole consumes the results
+   */
+  @Benchmark
+  public void findDeparturesToDestination(Blackhole blackhole) {
+    for (String destination : destinationQueries) {
+      for (TrainDeparture trainDeparture : trainRegister.findDeparturesToDestination(destination)) {
+        blackhole.consume(trainDeparture);
+      }
+    }
+  }
+
+  /**
+   * Gets the departures sorted by departure time with delay.
+   *
+   * @return the sorted departures
+   */
+  @Benchmark
+  public ArrayList<TrainDeparture> sortByDelayedTime() {
+    return trainRegister.sortByDelayedTime();
+  }
+}
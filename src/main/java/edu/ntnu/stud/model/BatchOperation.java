@@ -0,0 +1,120 @@
+package edu.ntnu.stud.model;
+
+/**
+ *
+ *
+ * <h2>BatchOperation</h2>
+ *
+ * <p>BatchOperation is one change to apply to every departure in a batch, see {@link
+ * TrainRegister#applyBatch(java.util.Collection, java.util.List)}. An operation either adds delay,
+ * changes the track, or deletes the departures. Arguments are validated when the operation is
+ * created, so a batch never fails halfway because of an invalid operation.
+ */
+public final class BatchOperation {
+  /** The kind of change an operation makes. */
+  public enum Type {
+    ADD_DELAY,
+    CHANGE_TRACK,
+    DELETE
+  }
+
+  private final Type type;
+  private final int value;
+
+  private BatchOperation(Type type, int value) {
+    this.type = type;
+    this.value = value;
+  }
+
+  /**
+   * Creates an operation that adds delay to the departures.
+   *
+   * @param minutes the number of minutes to add as a delay
+   * @return the operation
+   * @throws IllegalArgumentException if the delay is negative
+   */
+  public static BatchOperation addDelay(int minutes) {
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Delay cannot be negative");
+    }
+    return new BatchOperation(Type.ADD_DELAY, minutes);
+  }
+
+  /**
+   * Creates an operation that changes the track of the departures.
+   *
+   * @param track the new track number
+   * @return the operation
+   * @throws IllegalArgumentException if the track is negative
+   */
+  public static BatchOperation changeTrack(int track) {
+    if (track < 0) {
+      throw new IllegalArgumentException("Track cannot be negative");
+    }
+    return new BatchOperation(Type.CHANGE_TRACK, track);
+  }
+
+  /**
+   * Creates an operation that deletes the departures. Must be the last operation of a batch.
+   *
+   * @return the operation
+   */
+  public static BatchOperation delete() {
+    return new BatchOperation(Type.DELETE, 0);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the minutes of delay to add, or the new track, depending on the type. Zero for a
+   * delete.
+   *
+   * @return the value of the operation
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Checks if the operation adds delay, which changes the position of departures in time order.
+   *
+   * @return true if the operation adds delay, false otherwise
+   */
+  boolean isDelay() {
+    return type == Type.ADD_DELAY;
+  }
+
+  /**
+   * Checks if the operation changes the track, which changes the position of departures in the
+   * track index.
+   *
+   * @return true if the operation changes the track, false otherwise
+   */
+  boolean isTrackChange() {
+    return type == Type.CHANGE_TRACK;
+  }
+
+  /**
+   * Checks if the operation deletes departures.
+   *
+   * @return true if the operation deletes, false otherwise
+   */
+  boolean isDelete() {
+    return type == Type.DELETE;
+  }
+
+  /**
+   * Applies a delay or track change to a departure. Deleting is done by the register.
+   *
+   * @param trainDeparture the departure to change
+   */
+  void applyTo(TrainDeparture trainDeparture) {
+    if (type == Type.ADD_DELAY) {
+      trainDeparture.addDelay(value);
+    } else if (type == Type.CHANGE_TRACK) {
+      trainDeparture.setTrack(value);
+    }
+  }
+}
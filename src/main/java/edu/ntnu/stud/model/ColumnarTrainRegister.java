@@ -0,0 +1,624 @@
+package edu.ntnu.stud.model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ *
+ * <h2>ColumnarTrainRegister</h2>
+ *
+ * <p>ColumnarTrainRegister is an alternative to {@link TrainRegister} for large timetables. It
+ * stores the departures column-wise in parallel primitive arrays, one row per departure, instead of
+ * as a list of TrainDeparture objects. Lines and destinations are dictionary-encoded as int ids, so
+ * a departure only takes a few ints of memory, and filters run as loops over int arrays.
+ *
+ * <p>Departures are returned as views over the columns rather than as copies. A view only holds a
+ * train number, and reads the other values from the row of that train number when its getters are
+ * called, so it always shows the current track and delay, and nothing is copied or decoded until a
+ * value is read. There is one view per train number, created the first time the departure is
+ * returned. Views are read-only, so departures are modified through the register, and reading
+ * anything but the train number from the view of a departure that has left the register throws an
+ * {@link IllegalStateException}. {@link #departTrains()} returns copies for that reason, and a view
+ * is copied before it is added to another register.
+ *
+ * <p>Rows are not kept in any order. Methods returning several departures sort them by departure
+ * time with delay, like TrainRegister does. Departure times are stored as epoch minutes, and the
+ * clock is a date and time, so departures delayed past midnight need no special case.
+ */
+public class ColumnarTrainRegister implements DepartureRegister {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int NO_ROW = -1;
+
+  private long[] departureMinutes;
+  private int[] delayMinutes;
+  private int[] trainNumbers;
+  private int[] tracks;
+  private int[] lineIds;
+  private int[] destinationIds;
+  private int size;
+
+  private long[] departureHeap;
+  private int heapSize;
+
+  private final int[] rowByTrainNumber;
+  private final DepartureView[] views;
+  private final StringDictionary lines;
+  private final StringDictionary destinations;
+  private LocalDateTime clock;
+
+  /**
+   * Constructs an empty columnar train register with the clock set to 00:00 on {@link
+   * LocalDate#EPOCH}.
+   */
+  public ColumnarTrainRegister() {
+    departureMinutes = new long[INITIAL_CAPACITY];
+    delayMinutes = new int[INITIAL_CAPACITY];
+    trainNumbers = new int[INITIAL_CAPACITY];
+    tracks = new int[INITIAL_CAPACITY];
+    lineIds = new int[INITIAL_CAPACITY];
+    destinationIds = new int[INITIAL_CAPACITY];
+    size = 0;
+    departureHeap = new long[INITIAL_CAPACITY];
+    heapSize = 0;
+
+    rowByTrainNumber = new int[TrainDeparture.MAX_TRAIN_NUMBER + 1];
+    Arrays.fill(rowByTrainNumber, NO_ROW);
+    views = new DepartureView[TrainDeparture.MAX_TRAIN_NUMBER + 1];
+    lines = new StringDictionary();
+    destinations = new StringDictionary();
+    clock = LocalDate.EPOCH.atStartOfDay();
+  }
+
+  /**
+   * Returns the number of trains in the train register.
+   *
+   * @return the number of trains
+   */
+  @Override
+  public int getNumTrains() {
+    return size;
+  }
+
+  @Override
+  public LocalTime getClock() {
+    return clock.toLocalTime();
+  }
+
+  @Override
+  public LocalDateTime getClockDateTime() {
+    return clock;
+  }
+
+  /**
+   * Sets the clock time of the train register, on the current date of the clock.
+   *
+   * @param clock the new clock time to be set
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  @Override
+  public void setClock(LocalTime clock) {
+    setClock(LocalDateTime.of(this.clock.toLocalDate(), clock));
+  }
+
+  /**
+   * Sets the date and time of the clock of the train register.
+   *
+   * @param clock the new date and time to be set
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  @Override
+  public void setClock(LocalDateTime clock) {
+    if (clock.isBefore(this.clock)) {
+      throw new IllegalArgumentException("New time cannot be before current time");
+    }
+
+    this.clock = clock;
+  }
+
+  /**
+   * Departs trains from the train register. Deletes train departures with a departure time with
+   * delay before the current time. Departures delayed past midnight have a later epoch minute, so
+   * they are not deleted before the clock passes them.
+   *
+   * <p>The departures are found in a min-heap of their sort keys, so departing k trains takes O(k
+   * log n) instead of a scan of every row. Changing a delay pushes a new key instead of moving the
+   * old one, and keys that no longer match their row are skipped when they reach the top.
+   *
+   * @return copies of the deleted train departures, sorted by departure time with delay
+   */
+  @Override
+  public ArrayList<TrainDeparture> departTrains() {
+    long clockMinute = TrainDeparture.toEpochMinute(clock);
+    if (clock.getSecond() != 0 || clock.getNano() != 0) {
+      clockMinute++;
+    }
+
+    // A key is before the first key of the clock minute exactly when its minute is
+    long firstKeyAtClock = clockMinute * (TrainDeparture.MAX_TRAIN_NUMBER + 1);
+    ArrayList<TrainDeparture> departed = new ArrayList<>();
+    while (heapSize > 0 && departureHeap[0] < firstKeyAtClock) {
+      long key = pollKey();
+      int row = rowByTrainNumber[trainNumberOf(key)];
+      if (row != NO_ROW && keyOf(row) == key) {
+        departed.add(materialize(row));
+        removeRow(row);
+      }
+    }
+    return departed;
+  }
+
+  /**
+   * Adds a train departure to the train register. The values of the departure are copied into the
+   * columns, so later changes to the object are not seen by the register.
+   *
+   * @param trainDeparture the train departure to be added
+   * @throws IllegalArgumentException if the train number already exists in the register
+   */
+  @Override
+  public void addTrainDeparture(TrainDeparture trainDeparture) {
+    if (rowByTrainNumber[trainDeparture.getTrainNumber()] != NO_ROW) {
+      throw new IllegalArgumentException("Train number already exists");
+    }
+    if (size == trainNumbers.length) {
+      grow();
+    }
+
+    departureMinutes[size] = trainDeparture.getDepartureEpochMinute();
+    delayMinutes[size] = trainDeparture.getDelayMinutes();
+    trainNumbers[size] = trainDeparture.getTrainNumber();
+    tracks[size] = trainDeparture.getTrack();
+    lineIds[size] = lines.encode(trainDeparture.getLine());
+    destinationIds[size] = destinations.encode(trainDeparture.getDestination());
+    rowByTrainNumber[trainDeparture.getTrainNumber()] = size;
+    size++;
+    pushKey(keyOf(size - 1));
+  }
+
+  /**
+   * Retrieves a view of the train departure with the given train number.
+   *
+   * @param trainNumber the train number to search for
+   * @return a view of the departure with the given train number, or null if not found
+   */
+  @Override
+  public TrainDeparture findDepartureByTrainNumber(int trainNumber) {
+    if (trainNumber < 0 || trainNumber > TrainDeparture.MAX_TRAIN_NUMBER) {
+      return null;
+    }
+
+    return rowByTrainNumber[trainNumber] == NO_ROW ? null : view(trainNumber);
+  }
+
+  /**
+   * Retrieves views of the train departures that have the specified destination. The destination is
+   * looked up once, and the rows are matched by comparing destination ids.
+   *
+   * @param destination The destination to filter train departures by.
+   * @return An ArrayList of the departures to the destination, sorted by departure time with delay
+   */
+  @Override
+  public ArrayList<TrainDeparture> findDeparturesToDestination(String destination) {
+    int destinationId = destinations.lookup(destination);
+    if (destinationId == StringDictionary.NOT_FOUND) {
+      return new ArrayList<>();
+    }
+
+    int[] matchingRows = new int[size];
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      if (destinationIds[row] == destinationId) {
+        matchingRows[count++] = row;
+      }
+    }
+
+    return viewsSorted(matchingRows, count);
+  }
+
+  /**
+   * Deletes the specified train departures from the train register.
+   *
+   * @param trainDepartures the list of train departures to be deleted
+   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
+   *     train departures that do not exist
+   */
+  @Override
+  public void deleteTrainDepartures(ArrayList<TrainDeparture> trainDepartures) {
+    validateTrainDeparturesToModify(trainDepartures);
+
+    trainDepartures.forEach(this::removeDeparture);
+  }
+
+  /**
+   * Changes the tracks for a list of train departures.
+   *
+   * @param trainDepartures the list of train departures to modify
+   * @param newTrack the new track number to set for the train departures
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains train
+   *     departures that do not exist, or if the track is negative
+   */
+  @Override
+  public void changeTracks(ArrayList<TrainDeparture> trainDepartures, int newTrack) {
+    validateTrainDeparturesToModify(trainDepartures);
+    if (newTrack < 0) {
+      throw new IllegalArgumentException("Track cannot be negative");
+    }
+
+    trainDepartures.forEach(
+        trainDeparture -> tracks[rowByTrainNumber[trainDeparture.getTrainNumber()]] = newTrack);
+  }
+
+  /**
+   * Adds a delay to the specified train departures. A departure listed more than once is only
+   * delayed once.
+   *
+   * @param trainDepartures the list of train departures to modify
+   * @param minutes the number of minutes to add as a delay
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains train
+   *     departures that do not exist, or if the delay is negative
+   * @throws ArithmeticException if a delay would overflow, in which case nothing is changed
+   */
+  @Override
+  public void addDelay(ArrayList<TrainDeparture> trainDepartures, int minutes) {
+    validateTrainDeparturesToModify(trainDepartures);
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Delay cannot be negative");
+    }
+
+    // Each departure is delayed once, and only if no delay overflows
+    int[] rows =
+        trainDepartures.stream()
+            .mapToInt(trainDeparture -> rowByTrainNumber[trainDeparture.getTrainNumber()])
+            .distinct()
+            .toArray();
+    int[] delays = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      delays[i] = Math.addExact(delayMinutes[rows[i]], minutes);
+    }
+    for (int i = 0; i < rows.length; i++) {
+      delayMinutes[rows[i]] = delays[i];
+      if (minutes != 0) {
+        pushKey(keyOf(rows[i]));
+      }
+    }
+  }
+
+  /**
+   * Returns views of the train departures that have a track assigned.
+   *
+   * @return ArrayList of departures with assigned tracks, sorted by departure time with delay
+   */
+  @Override
+  public ArrayList<TrainDeparture> getDeparturesWithTrack() {
+    int[] matchingRows = new int[size];
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      if (tracks[row] != 0) {
+        matchingRows[count++] = row;
+      }
+    }
+
+    return viewsSorted(matchingRows, count);
+  }
+
+  /**
+   * Returns views of the train departures that do not have a track assigned.
+   *
+   * @return ArrayList of departures without a track, sorted by departure time with delay
+   */
+  @Override
+  public ArrayList<TrainDeparture> getDeparturesWithoutTrack() {
+    int[] matchingRows = new int[size];
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      if (tracks[row] == 0) {
+        matchingRows[count++] = row;
+      }
+    }
+
+    return viewsSorted(matchingRows, count);
+  }
+
+  /**
+   * Returns views of all train departures sorted by departure time with delay.
+   *
+   * @return A sorted ArrayList of views of the departures.
+   */
+  @Override
+  public ArrayList<TrainDeparture> sortByDelayedTime() {
+    int[] allRows = new int[size];
+    Arrays.setAll(allRows, row -> row);
+    return viewsSorted(allRows, size);
+  }
+
+  /**
+   * Validates the train departures to be modified.
+   *
+   * @param trainDepartures the list of train departures to be validated
+   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
+   *     train departures that do not exist
+   */
+  private void validateTrainDeparturesToModify(ArrayList<TrainDeparture> trainDepartures) {
+    if (trainDepartures.isEmpty()) {
+      throw new IllegalArgumentException("No train departures available.");
+    }
+    if (trainDepartures.stream().anyMatch(trainDeparture -> trainDeparture == null)) {
+      throw new IllegalArgumentException("One or more train departures are null.");
+    }
+    if (trainDepartures.stream()
+        .anyMatch(trainDeparture -> rowByTrainNumber[trainDeparture.getTrainNumber()] == NO_ROW)) {
+      throw new IllegalArgumentException("One or more train departures does not exist");
+    }
+  }
+
+  /**
+   * Removes the row of a train departure, if the departure is still in the register.
+   *
+   * @param trainDeparture the train departure to remove
+   */
+  private void removeDeparture(TrainDeparture trainDeparture) {
+    int row = rowByTrainNumber[trainDeparture.getTrainNumber()];
+    if (row != NO_ROW) {
+      removeRow(row);
+    }
+  }
+
+  /**
+   * Removes a row by moving the last row into its place, so the columns stay dense.
+   *
+   * @param row the row to remove
+   */
+  private void removeRow(int row) {
+    int last = size - 1;
+    rowByTrainNumber[trainNumbers[row]] = NO_ROW;
+
+    if (row != last) {
+      departureMinutes[row] = departureMinutes[last];
+      delayMinutes[row] = delayMinutes[last];
+      trainNumbers[row] = trainNumbers[last];
+      tracks[row] = tracks[last];
+      lineIds[row] = lineIds[last];
+      destinationIds[row] = destinationIds[last];
+      rowByTrainNumber[trainNumbers[row]] = row;
+    }
+
+    size--;
+  }
+
+  /** Grows the capacity of all columns by half. */
+  private void grow() {
+    int capacity = trainNumbers.length + (trainNumbers.length >> 1);
+    departureMinutes = Arrays.copyOf(departureMinutes, capacity);
+    delayMinutes = Arrays.copyOf(delayMinutes, capacity);
+    trainNumbers = Arrays.copyOf(trainNumbers, capacity);
+    tracks = Arrays.copyOf(tracks, capacity);
+    lineIds = Arrays.copyOf(lineIds, capacity);
+    destinationIds = Arrays.copyOf(destinationIds, capacity);
+  }
+
+  /**
+   * Creates a copy of the departure in a row, which stays readable after the row is removed.
+   *
+   * @param row the row to create a departure from
+   * @return a new TrainDeparture with the values of the row
+   */
+  private TrainDeparture materialize(int row) {
+    return new TrainDeparture(
+        TrainDeparture.toDateTime(departureMinutes[row]),
+        lines.decode(lineIds[row]),
+        trainNumbers[row],
+        destinations.decode(destinationIds[row]),
+        tracks[row],
+        Duration.ofMinutes(delayMinutes[row]));
+  }
+
+  /**
+   * Returns the view of the departure with the given train number, creating it the first time.
+   *
+   * @param trainNumber the train number of a departure in the register
+   * @return the view
+   */
+  private DepartureView view(int trainNumber) {
+    DepartureView view = views[trainNumber];
+    if (view == null) {
+      view = new DepartureView(trainNumber);
+      views[trainNumber] = view;
+    }
+    return view;
+  }
+
+  /**
+   * Returns views of the departures in the given rows, sorted by departure time with delay and then
+   * by train number. The rows are sorted as primitive keys before any view is looked up.
+   *
+   * @param rows the rows to return departures from
+   * @param count the number of rows to use from the start of the array
+   * @return the sorted views
+   */
+  private ArrayList<TrainDeparture> viewsSorted(int[] rows, int count) {
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = keyOf(rows[i]);
+    }
+    Arrays.sort(keys);
+
+    ArrayList<TrainDeparture> trainDepartures = new ArrayList<>(count);
+    for (long key : keys) {
+      trainDepartures.add(view(trainNumberOf(key)));
+    }
+    return trainDepartures;
+  }
+
+  /**
+   * Returns the sort key of a row, which orders rows by departure time with delay and then by train
+   * number.
+   *
+   * @param row the row
+   * @return the sort key
+   */
+  private long keyOf(int row) {
+    long delayedMinute = departureMinutes[row] + delayMinutes[row];
+    return delayedMinute * (TrainDeparture.MAX_TRAIN_NUMBER + 1) + trainNumbers[row];
+  }
+
+  /**
+   * Returns the train number of a sort key.
+   *
+   * @param key the sort key
+   * @return the train number
+   */
+  private static int trainNumberOf(long key) {
+    return (int) Math.floorMod(key, TrainDeparture.MAX_TRAIN_NUMBER + 1L);
+  }
+
+  /**
+   * Pushes a key onto the departure heap. If the heap is full and most of its keys are stale, it is
+   * rebuilt from the rows instead, so the row of the key must already hold its new values.
+   *
+   * @param key the sort key of a row
+   */
+  private void pushKey(long key) {
+    if (heapSize == departureHeap.length) {
+      if (heapSize > 2 * size) {
+        rebuildHeap();
+        return;
+      }
+      departureHeap = Arrays.copyOf(departureHeap, heapSize + (heapSize >> 1));
+    }
+
+    int child = heapSize++;
+    while (child > 0) {
+      int parent = (child - 1) >> 1;
+      if (departureHeap[parent] <= key) {
+        break;
+      }
+      departureHeap[child] = departureHeap[parent];
+      child = parent;
+    }
+    departureHeap[child] = key;
+  }
+
+  /**
+   * Removes the smallest key from the departure heap.
+   *
+   * @return the smallest key
+   */
+  private long pollKey() {
+    long smallest = departureHeap[0];
+    long last = departureHeap[--heapSize];
+
+    int parent = 0;
+    int half = heapSize >> 1;
+    while (parent < half) {
+      int child = 2 * parent + 1;
+      if (child + 1 < heapSize && departureHeap[child + 1] < departureHeap[child]) {
+        child++;
+      }
+      if (last <= departureHeap[child]) {
+        break;
+      }
+      departureHeap[parent] = departureHeap[child];
+      parent = child;
+    }
+    departureHeap[parent] = last;
+    return smallest;
+  }
+
+  /** Rebuilds the departure heap from the keys of the rows, dropping every stale key. */
+  private void rebuildHeap() {
+    long[] keys = new long[2 * size + INITIAL_CAPACITY];
+    for (int row = 0; row < size; row++) {
+      keys[row] = keyOf(row);
+    }
+    // A sorted array is a valid min-heap
+    Arrays.sort(keys, 0, size);
+    departureHeap = keys;
+    heapSize = size;
+  }
+
+  /**
+   * A read-only view of a departure in the register. It holds the train number and reads the other
+   * values from the row of that train number when they are requested.
+   */
+  private final class DepartureView extends TrainDeparture {
+    private final int trainNumber;
+
+    /**
+     * Constructs a view of the departure with the given train number.
+     *
+     * @param trainNumber the train number
+     */
+    private DepartureView(int trainNumber) {
+      this.trainNumber = trainNumber;
+    }
+
+    /**
+     * Returns the row of the departure.
+     *
+     * @return the row
+     * @throws IllegalStateException if the departure is no longer in the register
+     */
+    private int row() {
+      int row = rowByTrainNumber[trainNumber];
+      if (row == NO_ROW) {
+        throw new IllegalStateException("Train " + trainNumber + " is no longer in the register");
+      }
+      return row;
+    }
+
+    @Override
+    public int getTrainNumber() {
+      return trainNumber;
+    }
+
+    @Override
+    public long getDepartureEpochMinute() {
+      return departureMinutes[row()];
+    }
+
+    @Override
+    public long getDelayedEpochMinute() {
+      int row = row();
+      return departureMinutes[row] + delayMinutes[row];
+    }
+
+    @Override
+    public int getDelayMinutes() {
+      return delayMinutes[row()];
+    }
+
+    @Override
+    public int getTrack() {
+      return tracks[row()];
+    }
+
+    @Override
+    public String getLine() {
+      return lines.decode(lineIds[row()]);
+    }
+
+    @Override
+    public String getDestination() {
+      return destinations.decode(destinationIds[row()]);
+    }
+
+    @Override
+    void setTrack(int track) {
+      throw new UnsupportedOperationException("Departures are changed through the register");
+    }
+
+    @Override
+    void setDelay(Duration delay) {
+      throw new UnsupportedOperationException("Departures are changed through the register");
+    }
+
+    @Override
+    void addDelay(int minutes) {
+      throw new UnsupportedOperationException("Departures are changed through the register");
+    }
+  }
+}
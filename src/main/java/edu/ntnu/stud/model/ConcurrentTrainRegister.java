@@ -0,0 +1,483 @@
+package edu.ntnu.stud.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ *
+ *
+ * <h2>ConcurrentTrainRegister</h2>
+ *
+ * <p>ConcurrentTrainRegister is a thread-safe train register for several dispatcher terminals and
+ * an automatic clock thread working on the same departures. It wraps a {@link TrainRegister}.
+ *
+ * <p>Every change goes through the ordered indexes and the track conflict checks of the wrapped
+ * register, which span all departures, so changes cannot be striped by departure. Instead the write
+ * path is split in two. A writer adds its change to a lock-free queue, and the writer that holds
+ * the combining lock applies every change in the queue, including those of the writers waiting for
+ * the lock, and publishes one snapshot for all of them. A waiting writer whose change was applied
+ * by another writer returns as soon as it gets the lock, without doing any work. Under load, the
+ * lock therefore changes hands once per batch of changes instead of once per change.
+ *
+ * <p>The published {@link DepartureSnapshot} only copies the departures that changed. Readers only
+ * read the latest snapshot, so they never take the lock, never block writers, and always see the
+ * register as it was between two batches of changes. This includes queries, free tracks and
+ * destination searches, which the snapshot answers from its own lists grouped by destination and by
+ * track and its own destination trie. Departures returned by the register are copies. Change them
+ * through the register, which finds the departures by train number.
+ */
+public class ConcurrentTrainRegister {
+  private final TrainRegister trainRegister;
+  private final ConcurrentLinkedQueue<Change<?>> pendingChanges;
+  private final ReentrantLock combiningLock;
+  private volatile DepartureSnapshot snapshot;
+
+  /** Constructs an empty concurrent train register with the clock set to 00:00. */
+  public ConcurrentTrainRegister() {
+    this(new TrainRegister());
+  }
+
+  /**
+   * Constructs a concurrent train register around an existing register, for example one recovered
+   * from a journal. The existing register must not be used directly afterwards.
+   *
+   * @param trainRegister the register to wrap
+   */
+  public ConcurrentTrainRegister(TrainRegister trainRegister) {
+    this.trainRegister = trainRegister;
+    pendingChanges = new ConcurrentLinkedQueue<>();
+    combiningLock = new ReentrantLock();
+    snapshot = trainRegister.getSnapshot();
+  }
+
+  /**
+   * Returns the latest snapshot of the register. Does not take the lock.
+   *
+   * @return the latest snapshot
+   */
+  public DepartureSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Subscribes a listener to the changes made to the register, see {@link
+   * TrainRegister#subscribe(RegisterListener, int, Executor)}. Does not take the lock. Events are
+   * published while the changes are applied, so an event can reach the listener just before the
+   * snapshot with its version is published.
+   *
+   * @param listener the listener to deliver events to
+   * @param capacity the number of events that can be queued before events are dropped
+   * @param executor the executor that calls the listener
+   * @return the subscription, which can be cancelled
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  public Subscription subscribe(RegisterListener listener, int capacity, Executor executor) {
+    return trainRegister.subscribe(listener, capacity, executor);
+  }
+
+  /**
+   * Returns the train departures of the latest snapshot, ordered by departure time with delay.
+   *
+   * @return an unmodifiable list of copies of the train departures
+   */
+  public List<TrainDeparture> getTrainDepartures() {
+    return snapshot.getTrainDepartures();
+  }
+
+  /**
+   * Returns the number of trains in the latest snapshot.
+   *
+   * @return the number of trains
+   */
+  public int getNumTrains() {
+    return snapshot.getNumTrains();
+  }
+
+  public LocalTime getClock() {
+    return snapshot.getClock();
+  }
+
+  public LocalDateTime getClockDateTime() {
+    return snapshot.getClockDateTime();
+  }
+
+  /**
+   * Sets the clock time of the train register.
+   *
+   * @param clock the new clock time to be set
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  public void setClock(LocalTime clock) {
+    apply(
+        register -> {
+          register.setClock(clock);
+          return null;
+        });
+  }
+
+  /**
+   * Departs trains from the train register. See {@link TrainRegister#departTrains()}.
+   *
+   * @return copies of the departed train departures
+   */
+  public ArrayList<TrainDeparture> departTrains() {
+    return apply(register -> copiesOf(register.departTrains()));
+  }
+
+  /**
+   * Adds a recurring service to the register, see {@link
+   * TrainRegister#addServiceTemplate(ServiceTemplate)}.
+   *
+   * @param serviceTemplate the service to add
+   * @throws IllegalArgumentException if the train numbers of the service overlap with those of a
+   *     service already in the register
+   */
+  public void addServiceTemplate(ServiceTemplate serviceTemplate) {
+    apply(
+        register -> {
+          register.addServiceTemplate(serviceTemplate);
+          return null;
+        });
+  }
+
+  /**
+   * Sets how far ahead of the clock the departures of recurring services are added, see {@link
+   * TrainRegister#setServiceHorizon(Duration)}.
+   *
+   * @param horizon the service horizon
+   * @throws IllegalArgumentException if the horizon is shorter than a minute or longer than a day
+   */
+  public void setServiceHorizon(Duration horizon) {
+    apply(
+        register -> {
+          register.setServiceHorizon(horizon);
+          return null;
+        });
+  }
+
+  /**
+   * Finds a page of departures matching a query in the latest snapshot, see {@link
+   * TrainRegister#findDepartures(DepartureQuery, int, DeparturePage)}. Does not take the lock.
+   *
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @param previous the previous page of the same query, or null for the first page
+   * @return the page, with copies of the departures
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public DeparturePage findDepartures(DepartureQuery query, int pageSize, DeparturePage previous) {
+    return snapshot.findDepartures(query, pageSize, previous);
+  }
+
+  /**
+   * Finds the destinations with departures in the latest snapshot that start with the given prefix,
+   * see {@link TrainRegister#findDestinationsByPrefix(String)}. Does not take the lock.
+   *
+   * @param prefix the prefix to search for
+   * @return the destinations, in alphabetical order of their normalized name
+   */
+  public List<String> findDestinationsByPrefix(String prefix) {
+    return snapshot.findDestinationsByPrefix(prefix);
+  }
+
+  /**
+   * Finds the destinations with departures in the latest snapshot within the given edit distance of
+   * a name, see {@link TrainRegister#findSimilarDestinations(String, int)}. Does not take the lock.
+   *
+   * @param name the name to search for
+   * @param maxDistance the maximum number of characters that differ
+   * @return the destinations, closest first
+   * @throws IllegalArgumentException if the maximum distance is negative
+   */
+  public List<String> findSimilarDestinations(String name, int maxDistance) {
+    return snapshot.findSimilarDestinations(name, maxDistance);
+  }
+
+  /**
+   * Sets the dwell window used to check track changes and delays for conflicts, see {@link
+   * TrainRegister#setDwellMinutes(int)}.
+   *
+   * @param dwellMinutes the dwell window in minutes
+   * @throws IllegalArgumentException if the dwell window is negative
+   */
+  public void setDwellMinutes(int dwellMinutes) {
+    apply(
+        register -> {
+          register.setDwellMinutes(dwellMinutes);
+          return null;
+        });
+  }
+
+  /**
+   * Returns the tracks that no departure in the latest snapshot occupies at the given time, see
+   * {@link TrainRegister#findFreeTracks(LocalTime, int)}. Does not take the lock.
+   *
+   * @param time the time to find free tracks at
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   * @throws IllegalArgumentException if the number of tracks is negative
+   */
+  public ArrayList<Integer> findFreeTracks(LocalTime time, int numberOfTracks) {
+    return snapshot.findFreeTracks(time, numberOfTracks);
+  }
+
+  /**
+   * Sets the clock and departs trains as one change, so no other change can happen in between.
+   * Meant for an automatic clock.
+   *
+   * @param clock the new clock time to be set
+   * @return copies of the departed train departures
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  public ArrayList<TrainDeparture> setClockAndDepartTrains(LocalTime clock) {
+    return apply(
+        register -> {
+          register.setClock(clock);
+          return copiesOf(register.departTrains());
+        });
+  }
+
+  /**
+   * Sets the date and time of the clock and departs trains as one change, so an automatic clock can
+   * run on past midnight.
+   *
+   * @param clock the new date and time to be set
+   * @return copies of the departed train departures
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  public ArrayList<TrainDeparture> setClockAndDepartTrains(LocalDateTime clock) {
+    return apply(
+        register -> {
+          register.setClock(clock);
+          return copiesOf(register.departTrains());
+        });
+  }
+
+  /**
+   * Adds a copy of a train departure to the train register.
+   *
+   * @param trainDeparture the train departure to be added
+   * @throws IllegalArgumentException if the train number already exists in the register
+   */
+  public void addTrainDeparture(TrainDeparture trainDeparture) {
+    TrainDeparture copy = new TrainDeparture(trainDeparture);
+    apply(
+        register -> {
+          register.addTrainDeparture(copy);
+          return null;
+        });
+  }
+
+  /**
+   * Retrieves the train departure with the given train number from the latest snapshot.
+   *
+   * @param trainNumber the train number to search for
+   * @return a copy of the train departure, or null if not found
+   */
+  public TrainDeparture findDepartureByTrainNumber(int trainNumber) {
+    return snapshot.findDepartureByTrainNumber(trainNumber);
+  }
+
+  /**
+   * Retrieves the train departures to the specified destination from the destination index of the
+   * latest snapshot.
+   *
+   * @param destination The destination to filter train departures by.
+   * @return An ArrayList of copies of the departures, ordered by departure time with delay
+   */
+  public ArrayList<TrainDeparture> findDeparturesToDestination(String destination) {
+    return new ArrayList<>(snapshot.findDeparturesToDestination(destination));
+  }
+
+  /**
+   * Deletes the specified train departures from the train register. See {@link
+   * TrainRegister#deleteTrainDepartures(ArrayList)}.
+   *
+   * @param trainDepartures the list of train departures to be deleted
+   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
+   *     train departures that do not exist
+   */
+  public void deleteTrainDepartures(ArrayList<TrainDeparture> trainDepartures) {
+    apply(
+        register -> {
+          register.deleteTrainDepartures(trainDepartures);
+          return null;
+        });
+  }
+
+  /**
+   * Changes the tracks for a list of train departures. See {@link
+   * TrainRegister#changeTracks(ArrayList, int)}.
+   *
+   * @param trainDepartures the list of train departures to modify
+   * @param newTrack the new track number to set for the train departures
+   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
+   *     train departures that do not exist
+   */
+  public void changeTracks(ArrayList<TrainDeparture> trainDepartures, int newTrack) {
+    apply(
+        register -> {
+          register.changeTracks(trainDepartures, newTrack);
+          return null;
+        });
+  }
+
+  /**
+   * Adds a delay to the specified train departures. See {@link TrainRegister#addDelay(ArrayList,
+   * int)}.
+   *
+   * @param trainDepartures the list of train departures to modify
+   * @param minutes the number of minutes to add as a delay
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains train
+   *     departures that do not exist, or if the delay is negative
+   */
+  public void addDelay(ArrayList<TrainDeparture> trainDepartures, int minutes) {
+    apply(
+        register -> {
+          register.addDelay(trainDepartures, minutes);
+          return null;
+        });
+  }
+
+  /**
+   * Applies one or more operations to several departures as one change. See {@link
+   * TrainRegister#applyBatch(Collection, List)}.
+   *
+   * @param trainNumbers the train numbers of the departures to change
+   * @param operations the operations to apply, in order
+   * @return copies of the changed or deleted departures
+   * @throws IllegalArgumentException if the batch is invalid, in which case nothing is changed
+   */
+  public ArrayList<TrainDeparture> applyBatch(
+      Collection<Integer> trainNumbers, List<BatchOperation> operations) {
+    return apply(register -> copiesOf(register.applyBatch(trainNumbers, operations)));
+  }
+
+  /**
+   * Returns the train departures in the latest snapshot that have a track assigned.
+   *
+   * @return an unmodifiable list of copies of the departures with assigned tracks
+   */
+  public List<TrainDeparture> getDeparturesWithTrack() {
+    return snapshot.getDeparturesWithTrack();
+  }
+
+  /**
+   * Returns the train departures in the latest snapshot that do not have a track assigned.
+   *
+   * @return an unmodifiable list of copies of the departures without a track
+   */
+  public List<TrainDeparture> getDeparturesWithoutTrack() {
+    return snapshot.getDeparturesWithoutTrack();
+  }
+
+  /**
+   * Applies an operation to the wrapped register. The operation is added to the queue of pending
+   * changes, and the caller then takes the combining lock. If another writer has applied the
+   * operation in the meantime, the caller returns at once. Otherwise the caller applies every
+   * pending change.
+   *
+   * @param operation the operation to apply
+   * @param <T> the type of the result of the operation
+   * @return the result of the operation
+   * @throws RuntimeException the exception thrown by the operation, if any
+   */
+  private <T> T apply(Function<TrainRegister, T> operation) {
+    Change<T> change = new Change<>(operation);
+    pendingChanges.add(change);
+    combiningLock.lock();
+    try {
+      if (!change.applied) {
+        applyPendingChanges();
+      }
+    } finally {
+      combiningLock.unlock();
+    }
+    return change.getResult();
+  }
+
+  /**
+   * Applies every pending change in the order they were added, and publishes the snapshot of the
+   * wrapped register once for all of them. Must hold the combining lock.
+   */
+  private void applyPendingChanges() {
+    Change<?> change = pendingChanges.poll();
+    while (change != null) {
+      change.applyTo(trainRegister);
+      change = pendingChanges.poll();
+    }
+    snapshot = trainRegister.getSnapshot();
+  }
+
+  /**
+   * Copies departures of the wrapped register, so callers cannot change them behind its indexes.
+   *
+   * @param trainDepartures the departures to copy
+   * @return the copies, in the same order
+   */
+  private static ArrayList<TrainDeparture> copiesOf(List<TrainDeparture> trainDepartures) {
+    return trainDepartures.stream()
+        .map(TrainDeparture::new)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  /**
+   * A change waiting to be applied, with its result once it has been applied. The fields are
+   * written while holding the combining lock, and read by the writer that added the change after it
+   * has taken the lock itself.
+   *
+   * @param <T> the type of the result
+   */
+  private static class Change<T> {
+    private final Function<TrainRegister, T> operation;
+    private boolean applied;
+    private T result;
+    private RuntimeException failure;
+    private Error error;
+
+    Change(Function<TrainRegister, T> operation) {
+      this.operation = operation;
+    }
+
+    /**
+     * Applies the change, and keeps its result or the exception it threw for the writer that added
+     * it.
+     *
+     * @param trainRegister the register to apply the change to
+     */
+    void applyTo(TrainRegister trainRegister) {
+      try {
+        result = operation.apply(trainRegister);
+      } catch (RuntimeException e) {
+        failure = e;
+      } catch (Error e) {
+        error = e;
+      }
+      applied = true;
+    }
+
+    /**
+     * Returns the result of the change, or throws the exception the change threw.
+     *
+     * @return the result
+     */
+    T getResult() {
+      if (failure != null) {
+        throw failure;
+      }
+      if (error != null) {
+        throw error;
+      }
+      return result;
+    }
+  }
+}
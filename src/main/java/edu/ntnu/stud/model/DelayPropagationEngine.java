@@ -0,0 +1,302 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ *
+ *
+ * <h2>DelayPropagationEngine</h2>
+ *
+ * <p>DelayPropagationEngine pushes delays from departures in a {@link TrainRegister} on to the
+ * departures that depend on them. A link from one departure to a later one means that the later
+ * departure cannot leave until a minimum number of minutes after the earlier one, for example
+ * because they share rolling stock on the same line, or the same track. Links can be added for
+ * every line, for every track, or one at a time.
+ *
+ * <p>A link always goes from a departure with an earlier scheduled departure time to a later one,
+ * with the train number as tie-breaker, so the links never form a cycle, and the scheduled order is
+ * a topological order. When a delay is pushed, the departures whose time changes are processed in a
+ * priority queue ordered by scheduled departure time. A departure is only taken from the queue
+ * after every departure that can delay it, so each departure is processed once. Departures that are
+ * already late enough stop the propagation, so only the affected part of the graph is visited. The
+ * new delays are added with {@link TrainRegister#addDelays(Map)} as one change, so either every
+ * delay is added, or the register is left unchanged.
+ *
+ * <p>Linking the same two departures again replaces the gap between them. Links are kept by train
+ * number together with the scheduled departure time, so a link only applies to the departures it
+ * was made between. Links of departures that have left the register, or whose train number is used
+ * again by a later departure, are dropped.
+ */
+public class DelayPropagationEngine {
+  private static final Comparator<TrainDeparture> SCHEDULED_ORDER =
+      Comparator.comparingLong(TrainDeparture::getDepartureEpochMinute)
+          .thenComparingInt(TrainDeparture::getTrainNumber);
+
+  private final TrainRegister trainRegister;
+  private final HashMap<Integer, Links> downstream;
+
+  /**
+   * Constructs an engine without links.
+   *
+   * @param trainRegister the register to propagate delays in
+   */
+  public DelayPropagationEngine(TrainRegister trainRegister) {
+    this.trainRegister = trainRegister;
+    this.downstream = new HashMap<>();
+  }
+
+  /**
+   * Links a departure to a later departure that cannot leave until the given number of minutes
+   * after it. If the departures are already linked, the gap is replaced.
+   *
+   * @param fromTrainNumber the train number of the earlier departure
+   * @param toTrainNumber the train number of the later departure
+   * @param minimumGapMinutes the minimum number of minutes between the departures
+   * @throws IllegalArgumentException if a train number does not exist, if the gap is negative, or
+   *     if the first departure is not scheduled before the second
+   */
+  public void link(int fromTrainNumber, int toTrainNumber, int minimumGapMinutes) {
+    TrainDeparture from = findDeparture(fromTrainNumber);
+    TrainDeparture to = findDeparture(toTrainNumber);
+    if (minimumGapMinutes < 0) {
+      throw new IllegalArgumentException("Gap cannot be negative");
+    }
+    if (SCHEDULED_ORDER.compare(from, to) >= 0) {
+      throw new IllegalArgumentException("A link must go from an earlier to a later departure");
+    }
+
+    removeDepartedLinks();
+    addLink(from, to, minimumGapMinutes);
+  }
+
+  /**
+   * Links each departure to the next departure on the same line.
+   *
+   * @param headwayMinutes the minimum number of minutes between departures on the same line
+   * @throws IllegalArgumentException if the headway is negative
+   */
+  public void linkLines(int headwayMinutes) {
+    linkConsecutive(TrainDeparture::getLine, headwayMinutes);
+  }
+
+  /**
+   * Links each departure with a track to the next departure on the same track.
+   *
+   * @param turnaroundMinutes the minimum number of minutes between departures on the same track
+   * @throws IllegalArgumentException if the turnaround time is negative
+   */
+  public void linkTracks(int turnaroundMinutes) {
+    linkConsecutive(
+        trainDeparture -> trainDeparture.getTrack() == 0 ? null : trainDeparture.getTrack(),
+        turnaroundMinutes);
+  }
+
+  /**
+   * Adds delay to departures, and pushes the delay on to every departure linked to them. All
+   * departures are checked before anything is changed.
+   *
+   * @param trainNumbers the train numbers of the departures to delay
+   * @param minutes the number of minutes to add as a delay
+   * @return the delay added to each departure, in minutes, by train number in the order the
+   *     departures were processed. Departures that were not delayed are not included.
+   * @throws IllegalArgumentException if a train number does not exist, if the delay is negative, or
+   *     if a delay moves a departure to a time where another departure occupies its track, in which
+   *     case nothing is changed
+   * @throws ArithmeticException if a delay would overflow, in which case nothing is changed
+   */
+  public Map<Integer, Integer> pushDelay(Collection<Integer> trainNumbers, int minutes) {
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Delay cannot be negative");
+    }
+
+    // The delayed time of each departure reached so far, in epoch minutes
+    HashMap<Integer, Long> delayedMinutes = new HashMap<>();
+    PriorityQueue<TrainDeparture> queue = new PriorityQueue<>(SCHEDULED_ORDER);
+    for (int trainNumber : new LinkedHashSet<>(trainNumbers)) {
+      TrainDeparture trainDeparture = findDeparture(trainNumber);
+      delayedMinutes.put(trainNumber, trainDeparture.getDelayedEpochMinute() + minutes);
+      queue.add(trainDeparture);
+    }
+
+    LinkedHashMap<Integer, Integer> addedDelays = new LinkedHashMap<>();
+    while (!queue.isEmpty()) {
+      TrainDeparture trainDeparture = queue.poll();
+      int trainNumber = trainDeparture.getTrainNumber();
+      long delayedMinute = delayedMinutes.get(trainNumber);
+      int added = Math.toIntExact(delayedMinute - trainDeparture.getDelayedEpochMinute());
+      if (added > 0) {
+        addedDelays.put(trainNumber, added);
+      }
+
+      Iterator<Link> links = linksFrom(trainDeparture).iterator();
+      while (links.hasNext()) {
+        Link link = links.next();
+        TrainDeparture next = trainRegister.findDepartureByTrainNumber(link.trainNumber);
+        if (next == null || next.getDepartureEpochMinute() != link.departureMinute) {
+          links.remove();
+          continue;
+        }
+        long required = delayedMinute + link.minimumGapMinutes;
+        Long reached = delayedMinutes.get(link.trainNumber);
+        if (reached == null) {
+          if (required > next.getDelayedEpochMinute()) {
+            delayedMinutes.put(link.trainNumber, required);
+            queue.add(next);
+          }
+        } else if (required > reached) {
+          // Still in the queue, since it is scheduled after this departure
+          delayedMinutes.put(link.trainNumber, required);
+        }
+      }
+    }
+
+    if (!addedDelays.isEmpty()) {
+      trainRegister.addDelays(addedDelays);
+    }
+    return addedDelays;
+  }
+
+  /**
+   * Links each departure to the next departure with the same key, in scheduled order.
+   *
+   * @param key returns the key of a departure, or null if it should not be linked
+   * @param minimumGapMinutes the minimum number of minutes between linked departures
+   * @throws IllegalArgumentException if the gap is negative
+   */
+  private void linkConsecutive(Function<TrainDeparture, Object> key, int minimumGapMinutes) {
+    if (minimumGapMinutes < 0) {
+      throw new IllegalArgumentException("Gap cannot be negative");
+    }
+
+    removeDepartedLinks();
+    ArrayList<TrainDeparture> scheduled = trainRegister.getTrainDepartures();
+    scheduled.sort(SCHEDULED_ORDER);
+    HashMap<Object, TrainDeparture> previous = new HashMap<>();
+    for (TrainDeparture trainDeparture : scheduled) {
+      Object value = key.apply(trainDeparture);
+      if (value == null) {
+        continue;
+      }
+      TrainDeparture before = previous.put(value, trainDeparture);
+      if (before != null) {
+        addLink(before, trainDeparture, minimumGapMinutes);
+      }
+    }
+  }
+
+  /**
+   * Links a departure to a later departure, replacing the gap if they are already linked.
+   *
+   * @param from the earlier departure
+   * @param to the later departure
+   * @param minimumGapMinutes the minimum number of minutes between the departures
+   */
+  private void addLink(TrainDeparture from, TrainDeparture to, int minimumGapMinutes) {
+    Links links = downstream.get(from.getTrainNumber());
+    if (links == null || links.departureMinute != from.getDepartureEpochMinute()) {
+      links = new Links(from.getDepartureEpochMinute());
+      downstream.put(from.getTrainNumber(), links);
+    }
+    links.byTrainNumber.put(
+        to.getTrainNumber(),
+        new Link(to.getTrainNumber(), to.getDepartureEpochMinute(), minimumGapMinutes));
+  }
+
+  /**
+   * Returns the links from a departure. Links that were made from an earlier departure with the
+   * same train number are dropped.
+   *
+   * @param from the departure
+   * @return the links from the departure, which can be removed through the collection
+   */
+  private Collection<Link> linksFrom(TrainDeparture from) {
+    Links links = downstream.get(from.getTrainNumber());
+    if (links == null) {
+      return List.of();
+    }
+    if (links.departureMinute != from.getDepartureEpochMinute()) {
+      downstream.remove(from.getTrainNumber());
+      return List.of();
+    }
+    return links.byTrainNumber.values();
+  }
+
+  /** Drops the links from and to departures that are no longer in the register. */
+  private void removeDepartedLinks() {
+    downstream
+        .entrySet()
+        .removeIf(
+            entry -> {
+              if (!isInRegister(entry.getKey(), entry.getValue().departureMinute)) {
+                return true;
+              }
+              entry
+                  .getValue()
+                  .byTrainNumber
+                  .values()
+                  .removeIf(link -> !isInRegister(link.trainNumber, link.departureMinute));
+              return entry.getValue().byTrainNumber.isEmpty();
+            });
+  }
+
+  /**
+   * Checks if the departure a link was made with is still in the register.
+   *
+   * @param trainNumber the train number of the departure
+   * @param departureMinute the scheduled departure time of the departure, in epoch minutes
+   * @return true if the register has a departure with the train number and departure time
+   */
+  private boolean isInRegister(int trainNumber, long departureMinute) {
+    TrainDeparture trainDeparture = trainRegister.findDepartureByTrainNumber(trainNumber);
+    return trainDeparture != null && trainDeparture.getDepartureEpochMinute() == departureMinute;
+  }
+
+  /**
+   * Finds a departure in the register by train number.
+   *
+   * @param trainNumber the train number
+   * @return the departure
+   * @throws IllegalArgumentException if the train number does not exist
+   */
+  private TrainDeparture findDeparture(int trainNumber) {
+    TrainDeparture trainDeparture = trainRegister.findDepartureByTrainNumber(trainNumber);
+    if (trainDeparture == null) {
+      throw new IllegalArgumentException("Train number " + trainNumber + " does not exist");
+    }
+    return trainDeparture;
+  }
+
+  /** The links from one departure, by the train number of the later departure. */
+  private static class Links {
+    private final long departureMinute;
+    private final LinkedHashMap<Integer, Link> byTrainNumber;
+
+    Links(long departureMinute) {
+      this.departureMinute = departureMinute;
+      this.byTrainNumber = new LinkedHashMap<>();
+    }
+  }
+
+  /** A link to a later departure, with the minimum number of minutes between them. */
+  private static class Link {
+    private final int trainNumber;
+    private final long departureMinute;
+    private final int minimumGapMinutes;
+
+    Link(int trainNumber, long departureMinute, int minimumGapMinutes) {
+      this.trainNumber = trainNumber;
+      this.departureMinute = departureMinute;
+      this.minimumGapMinutes = minimumGapMinutes;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ntnu.stud.model;
+
+import java.util.List;
+
+/**
+ *
+ *
+ * <h2>DeparturePage</h2>
+ *
+ * <p>DeparturePage is one page of the departures found by a {@link DepartureQuery}, ordered by
+ * departure time with delay. The page remembers where it ended, so the next page is found with
+ * {@link TrainRegister#findDepartures(DepartureQuery, int, DeparturePage)} by searching the index
+ * from that point, without reading the earlier pages again.
+ */
+public final class DeparturePage {
+  private final List<TrainDeparture> departures;
+  private final boolean hasNextPage;
+  private final int scanned;
+  private final long lastMinute;
+  private final int lastTrainNumber;
+
+  /**
+   * Constructs a page.
+   *
+   * @param departures the departures of the page
+   * @param hasNextPage whether more departures match the query after this page
+   * @param scanned the number of departures read from the index to fill the page
+   */
+  DeparturePage(List<TrainDeparture> departures, boolean hasNextPage, int scanned) {
+    this.departures = List.copyOf(departures);
+    this.hasNextPage = hasNextPage;
+    this.scanned = scanned;
+    TrainDeparture last = departures.isEmpty() ? null : departures.get(departures.size() - 1);
+    this.lastMinute = last == null ? Long.MIN_VALUE : last.getDelayedEpochMinute();
+    this.lastTrainNumber = last == null ? -1 : last.getTrainNumber();
+  }
+
+  public List<TrainDeparture> getDepartures() {
+    return departures;
+  }
+
+  public boolean hasNextPage() {
+    return hasNextPage;
+  }
+
+  /**
+   * Returns how many departures were read from the index to fill the page, including departures
+   * that did not match the query. Shows how well the chosen index fits the query.
+   *
+   * @return the number of departures read
+   */
+  public int getScanned() {
+    return scanned;
+  }
+
+  /**
+   * Returns a bound just after the last departure of the page, in the order of the indexes.
+   *
+   * @return the bound
+   */
+  TrainDeparture endBound() {
+    return TrainDeparture.probe(lastMinute, lastTrainNumber);
+  }
+}
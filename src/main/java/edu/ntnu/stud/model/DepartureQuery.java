@@ -0,0 +1,186 @@
+package edu.ntnu.stud.model;
+
+import java.time.LocalDateTime;
+
+/**
+ *
+ *
+ * <h2>DepartureQuery</h2>
+ *
+ * <p>DepartureQuery combines criteria for finding departures, see {@link
+ * TrainRegister#findDepartures(DepartureQuery, int)}. A query starts from {@link #all()}, and each
+ * criterion returns a new query with the criterion added, so queries are immutable and can be
+ * reused:
+ *
+ * <pre>
+ * DepartureQuery.all().toDestination("Oslo").delayedMoreThan(5)
+ * </pre>
+ *
+ * <p>Arguments are validated when a criterion is added, so running a query never fails because of
+ * an invalid criterion.
+ */
+public final class DepartureQuery {
+  static final int ANY_TRACK = -1;
+  private static final int ANY_DELAY = -1;
+  private static final DepartureQuery ALL =
+      new DepartureQuery(null, null, ANY_TRACK, false, ANY_DELAY, null, null);
+
+  private final String destination;
+  private final String line;
+  private final int track;
+  private final boolean requireTrack;
+  private final int delayThreshold;
+  private final LocalDateTime from;
+  private final LocalDateTime to;
+
+  private DepartureQuery(
+      String destination,
+      String line,
+      int track,
+      boolean requireTrack,
+      int delayThreshold,
+      LocalDateTime from,
+      LocalDateTime to) {
+    this.destination = destination;
+    this.line = line;
+    this.track = track;
+    this.requireTrack = requireTrack;
+    this.delayThreshold = delayThreshold;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Returns a query that matches every departure.
+   *
+   * @return the query
+   */
+  public static DepartureQuery all() {
+    return ALL;
+  }
+
+  /**
+   * Returns a query that only matches departures to the given destination.
+   *
+   * @param destination the destination
+   * @return the new query
+   * @throws NullPointerException if the destination is null
+   */
+  public DepartureQuery toDestination(String destination) {
+    if (destination == null) {
+      throw new NullPointerException("Destination cannot be null");
+    }
+    return new DepartureQuery(destination, line, track, requireTrack, delayThreshold, from, to);
+  }
+
+  /**
+   * Returns a query that only matches departures on the given line.
+   *
+   * @param line the line
+   * @return the new query
+   * @throws NullPointerException if the line is null
+   */
+  public DepartureQuery onLine(String line) {
+    if (line == null) {
+      throw new NullPointerException("Line cannot be null");
+    }
+    return new DepartureQuery(destination, line, track, requireTrack, delayThreshold, from, to);
+  }
+
+  /**
+   * Returns a query that only matches departures from the given track.
+   *
+   * @param track the track, or 0 for departures without a track
+   * @return the new query
+   * @throws IllegalArgumentException if the track is negative
+   */
+  public DepartureQuery onTrack(int track) {
+    if (track < 0) {
+      throw new IllegalArgumentException("Track cannot be negative");
+    }
+    return new DepartureQuery(destination, line, track, requireTrack, delayThreshold, from, to);
+  }
+
+  /**
+   * Returns a query that only matches departures that have a track.
+   *
+   * @return the new query
+   */
+  public DepartureQuery withTrack() {
+    return new DepartureQuery(destination, line, track, true, delayThreshold, from, to);
+  }
+
+  /**
+   * Returns a query that only matches departures without a track.
+   *
+   * @return the new query
+   */
+  public DepartureQuery withoutTrack() {
+    return onTrack(0);
+  }
+
+  /**
+   * Returns a query that only matches departures delayed by more than the given number of minutes.
+   *
+   * @param minutes the delay threshold in minutes
+   * @return the new query
+   * @throws IllegalArgumentException if the threshold is negative
+   */
+  public DepartureQuery delayedMoreThan(int minutes) {
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Delay cannot be negative");
+    }
+    return new DepartureQuery(destination, line, track, requireTrack, minutes, from, to);
+  }
+
+  /**
+   * Returns a query that only matches departures leaving from the given time, up to but not
+   * including the given end time, counting the delay.
+   *
+   * @param from the earliest departure time with delay, inclusive
+   * @param to the latest departure time with delay, exclusive
+   * @return the new query
+   * @throws IllegalArgumentException if from is after to
+   * @throws NullPointerException if a time is null
+   */
+  public DepartureQuery between(LocalDateTime from, LocalDateTime to) {
+    if (from == null || to == null) {
+      throw new NullPointerException("Time cannot be null");
+    }
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("From time cannot be after to time");
+    }
+    return new DepartureQuery(destination, line, track, requireTrack, delayThreshold, from, to);
+  }
+
+  String getDestination() {
+    return destination;
+  }
+
+  int getTrack() {
+    return track;
+  }
+
+  LocalDateTime getFrom() {
+    return from;
+  }
+
+  LocalDateTime getTo() {
+    return to;
+  }
+
+  /**
+   * Checks the criteria that are not covered by the time window on a departure. The register
+   * applies the time window as a range of the index it reads from.
+   *
+   * @param trainDeparture the departure to check
+   * @return true if the departure matches every criterion, false otherwise
+   */
+  boolean matches(TrainDeparture trainDeparture) {
+    return (destination == null || destination.equals(trainDeparture.getDestination()))
+        && (line == null || line.equals(trainDeparture.getLine()))
+        && (track == ANY_TRACK || track == trainDeparture.getTrack())
+        && (!requireTrack || trainDeparture.getTrack() != 0)
+        && trainDeparture.getDelayMinutes() > delayThreshold;
+  }
+}
@@ -0,0 +1,184 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ *
+ *
+ * <h2>DepartureQueryPlanner</h2>
+ *
+ * <p>DepartureQueryPlanner plans and reads a {@link DepartureQuery} for {@link
+ * TrainRegister#findDepartures(DepartureQuery, int, DeparturePage)}, and for the same method of
+ * {@link DepartureSnapshot}, whose indexes are ordered lists instead of ordered sets. Every index
+ * is ordered by departure time with delay, so the planner reads from the smallest index that covers
+ * a criterion of the query, starting after the previous page or at the start of the time window,
+ * and stops at the end of the time window. The other criteria are checked on each departure as it
+ * is read, and reading stops as soon as the page is full and the next match is found.
+ */
+final class DepartureQueryPlanner {
+  private DepartureQueryPlanner() {}
+
+  /**
+   * Chooses the index to read a query from. The destination and track indexes only hold the
+   * departures with one destination or track, so the smallest of the indexes covering a criterion
+   * of the query is chosen.
+   *
+   * @param query the query to plan
+   * @param all every departure
+   * @param byDestination finds the departures to a destination, or an empty index if there are none
+   * @param byTrack finds the departures on a track, or an empty index if there are none
+   * @param <T> the type of the indexes
+   * @return the index to read
+   */
+  static <T extends Collection<TrainDeparture>> T chooseIndex(
+      DepartureQuery query, T all, Function<String, T> byDestination, IntFunction<T> byTrack) {
+    T chosen = all;
+    if (query.getDestination() != null) {
+      chosen = smaller(chosen, byDestination.apply(query.getDestination()));
+    }
+    if (query.getTrack() > 0) {
+      chosen = smaller(chosen, byTrack.apply(query.getTrack()));
+    }
+    return chosen;
+  }
+
+  /**
+   * Finds the page of departures matching a query that follows the given page in an index.
+   *
+   * @param index the index chosen by {@link #chooseIndex}
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @param previous the previous page of the same query, or null for the first page
+   * @return the page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  static DeparturePage findPage(
+      NavigableSet<TrainDeparture> index,
+      DepartureQuery query,
+      int pageSize,
+      DeparturePage previous) {
+    checkPageSize(pageSize);
+    TrainDeparture start = startBound(query, previous);
+    NavigableSet<TrainDeparture> candidates = start == null ? index : index.tailSet(start, false);
+    return readPage(candidates.iterator(), query, pageSize);
+  }
+
+  /**
+   * Finds the page of departures matching a query that follows the given page in an ordered list.
+   * The start of the page is found by binary search.
+   *
+   * @param index the index chosen by {@link #chooseIndex}, ordered by departure time with delay
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @param previous the previous page of the same query, or null for the first page
+   * @return the page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  static DeparturePage findPage(
+      List<TrainDeparture> index, DepartureQuery query, int pageSize, DeparturePage previous) {
+    checkPageSize(pageSize);
+    TrainDeparture start = startBound(query, previous);
+    int first = start == null ? 0 : indexAfter(index, start);
+    return readPage(index.listIterator(first), query, pageSize);
+  }
+
+  /**
+   * Returns the position of the first departure after a bound in a list ordered by departure time
+   * with delay, by binary search.
+   *
+   * @param ordered the departures, ordered by departure time with delay
+   * @param bound the bound
+   * @return the position of the first departure after the bound, or the size of the list
+   */
+  static int indexAfter(List<TrainDeparture> ordered, TrainDeparture bound) {
+    int found = Collections.binarySearch(ordered, bound);
+    return found >= 0 ? found + 1 : -found - 1;
+  }
+
+  /**
+   * Checks the size of a page.
+   *
+   * @param pageSize the maximum number of departures on a page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  private static void checkPageSize(int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+  }
+
+  /**
+   * Returns the bound that the departures of a page follow in the order of the indexes, which is
+   * the end of the previous page, or the start of the time window of the query if there is no
+   * previous page or it has no departures.
+   *
+   * @param query the query
+   * @param previous the previous page of the same query, or null for the first page
+   * @return the bound, which no departure is equal to, or null to start at the first departure
+   */
+  private static TrainDeparture startBound(DepartureQuery query, DeparturePage previous) {
+    if (previous != null && !previous.getDepartures().isEmpty()) {
+      return previous.endBound();
+    }
+    if (query.getFrom() != null) {
+      return TrainDeparture.probe(TrainRegister.toEpochMinuteRoundedUp(query.getFrom()), -1);
+    }
+    return null;
+  }
+
+  /**
+   * Reads a page from departures ordered by departure time with delay, which start after the
+   * previous page. Reading stops at the end of the time window of the query.
+   *
+   * @param candidates the departures to read
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @return the page
+   */
+  private static DeparturePage readPage(
+      Iterator<TrainDeparture> candidates, DepartureQuery query, int pageSize) {
+    TrainDeparture end =
+        query.getTo() == null
+            ? null
+            : TrainDeparture.probe(TrainRegister.toEpochMinuteRoundedUp(query.getTo()), -1);
+
+    ArrayList<TrainDeparture> page = new ArrayList<>(pageSize);
+    boolean hasNextPage = false;
+    int scanned = 0;
+    while (candidates.hasNext()) {
+      TrainDeparture trainDeparture = candidates.next();
+      if (end != null && trainDeparture.compareTo(end) >= 0) {
+        break;
+      }
+      scanned++;
+      if (!query.matches(trainDeparture)) {
+        continue;
+      }
+      if (page.size() == pageSize) {
+        hasNextPage = true;
+        break;
+      }
+      page.add(trainDeparture);
+    }
+    return new DeparturePage(page, hasNextPage, scanned);
+  }
+
+  /**
+   * Returns the index with the fewest departures.
+   *
+   * @param first an index
+   * @param second another index
+   * @param <T> the type of the indexes
+   * @return the smaller index, or the first if they are the same size
+   */
+  private static <T extends Collection<TrainDeparture>> T smaller(T first, T second) {
+    return second.size() < first.size() ? second : first;
+  }
+}
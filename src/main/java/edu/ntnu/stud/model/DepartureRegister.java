@@ -0,0 +1,138 @@
+package edu.ntnu.stud.model;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ *
+ * <h2>DepartureRegister</h2>
+ *
+ * <p>DepartureRegister is the register of train departures shared by {@link TrainRegister}, which
+ * keeps the departures as indexed objects, and {@link ColumnarTrainRegister}, which keeps them in
+ * primitive columns. Code that only adds, finds, changes and departs departures can use either.
+ *
+ * <p>Departures are modified through the register, which finds them by train number. Methods
+ * returning several departures return them sorted by departure time with delay.
+ */
+public interface DepartureRegister {
+  /**
+   * Returns the number of trains in the register.
+   *
+   * @return the number of trains
+   */
+  int getNumTrains();
+
+  /**
+   * Returns the time of the clock of the register.
+   *
+   * @return the clock time
+   */
+  LocalTime getClock();
+
+  /**
+   * Returns the date and time of the clock of the register.
+   *
+   * @return the clock date and time
+   */
+  LocalDateTime getClockDateTime();
+
+  /**
+   * Sets the clock time of the register, on the current date of the clock.
+   *
+   * @param clock the new clock time
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  void setClock(LocalTime clock);
+
+  /**
+   * Sets the date and time of the clock of the register.
+   *
+   * @param clock the new date and time
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  void setClock(LocalDateTime clock);
+
+  /**
+   * Deletes the departures with a departure time with delay before the clock.
+   *
+   * @return the deleted departures
+   */
+  List<TrainDeparture> departTrains();
+
+  /**
+   * Adds a train departure to the register.
+   *
+   * @param trainDeparture the train departure to add
+   * @throws IllegalArgumentException if the train number already exists in the register
+   */
+  void addTrainDeparture(TrainDeparture trainDeparture);
+
+  /**
+   * Finds the departure with the given train number.
+   *
+   * @param trainNumber the train number to search for
+   * @return the departure, or null if not found
+   */
+  TrainDeparture findDepartureByTrainNumber(int trainNumber);
+
+  /**
+   * Finds the departures to a destination.
+   *
+   * @param destination the destination
+   * @return the departures to the destination
+   */
+  List<TrainDeparture> findDeparturesToDestination(String destination);
+
+  /**
+   * Deletes train departures from the register.
+   *
+   * @param trainDepartures the departures to delete
+   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
+   *     departures that do not exist
+   */
+  void deleteTrainDepartures(ArrayList<TrainDeparture> trainDepartures);
+
+  /**
+   * Changes the track of train departures.
+   *
+   * @param trainDepartures the departures to change
+   * @param newTrack the new track
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains
+   *     departures that do not exist, or if the track is negative
+   */
+  void changeTracks(ArrayList<TrainDeparture> trainDepartures, int newTrack);
+
+  /**
+   * Adds a delay to train departures.
+   *
+   * @param trainDepartures the departures to delay
+   * @param minutes the number of minutes to add to the delay
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains
+   *     departures that do not exist, or if the delay is negative
+   */
+  void addDelay(ArrayList<TrainDeparture> trainDepartures, int minutes);
+
+  /**
+   * Returns the departures that have a track.
+   *
+   * @return the departures with a track
+   */
+  List<TrainDeparture> getDeparturesWithTrack();
+
+  /**
+   * Returns the departures that do not have a track.
+   *
+   * @return the departures without a track
+   */
+  List<TrainDeparture> getDeparturesWithoutTrack();
+
+  /**
+   * Returns every departure.
+   *
+   * @return the departures
+   */
+  List<TrainDeparture> sortByDelayedTime();
+}
@@ -0,0 +1,433 @@
+package edu.ntnu.stud.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *
+ * <h2>DepartureSnapshot</h2>
+ *
+ * <p>DepartureSnapshot is a read-only copy of the state of a {@link TrainRegister} at one version.
+ * It holds copies of the departures ordered by departure time with delay, already partitioned into
+ * departures with and without a track, and grouped by destination and by track, together with the
+ * recurring services, service horizon and dwell window of the register. The destinations with
+ * departures are kept in a {@link DestinationTrie} of the snapshot. Queries, free tracks and
+ * destination searches are therefore answered from the snapshot alone, the same way as by the
+ * register, with binary search in the ordered lists where the register searches its ordered sets. A
+ * snapshot never changes, so it can be read from any thread without locking, and reused for as long
+ * as the version of the register is the same.
+ *
+ * <p>A snapshot is either full, with a copy of every departure, or built on the previous snapshot
+ * with copies of only the departures that changed since then. Creating a snapshot for a change
+ * therefore costs the size of the change, not the size of the register. The lists of a snapshot
+ * built on another snapshot are only put together the first time they are read, by merging the
+ * changes into the lists of the closest full or already read snapshot before it. Once the lists are
+ * put together, the snapshot lets go of the snapshot before it and of its changes, so a snapshot
+ * that has been read does not keep older snapshots alive.
+ *
+ * <p>The departures in a snapshot are shared with later snapshots. They cannot be changed outside
+ * the package, since the setters for the track and the delay of {@link TrainDeparture} are
+ * package-private, and the register never changes its copies in a snapshot.
+ */
+public final class DepartureSnapshot {
+  private final long version;
+  private final LocalDateTime clock;
+  private final int numTrains;
+  private DepartureSnapshot previous;
+  private Map<Integer, TrainDeparture> changes;
+  private final int changesSinceFull;
+  private final Map<ServiceTemplate, LocalDateTime> nextServiceDepartures;
+  private final int serviceHorizonMinutes;
+  private final int dwellMinutes;
+  private volatile Contents contents;
+
+  /**
+   * Constructs a full snapshot with copies of the given departures.
+   *
+   * @param version the version of the register
+   * @param clock the clock of the register
+   * @param orderedDepartures the departures ordered by departure time with delay
+   * @param nextServiceDepartures the next departure of each recurring service that is not in the
+   *     register yet, which must not be changed
+   * @param serviceHorizonMinutes the service horizon of the register in minutes
+   * @param dwellMinutes the dwell window of the register in minutes, or -1 if none is set
+   */
+  DepartureSnapshot(
+      long version,
+      LocalDateTime clock,
+      Collection<TrainDeparture> orderedDepartures,
+      Map<ServiceTemplate, LocalDateTime> nextServiceDepartures,
+      int serviceHorizonMinutes,
+      int dwellMinutes) {
+    ArrayList<TrainDeparture> copies = new ArrayList<>(orderedDepartures.size());
+    orderedDepartures.forEach(trainDeparture -> copies.add(new TrainDeparture(trainDeparture)));
+
+    this.version = version;
+    this.clock = clock;
+    this.numTrains = copies.size();
+    this.previous = null;
+    this.changes = Map.of();
+    this.changesSinceFull = 0;
+    this.nextServiceDepartures = nextServiceDepartures;
+    this.serviceHorizonMinutes = serviceHorizonMinutes;
+    this.dwellMinutes = dwellMinutes;
+    this.contents = new Contents(copies);
+  }
+
+  /**
+   * Constructs a snapshot on the previous snapshot of the register.
+   *
+   * @param version the version of the register
+   * @param clock the clock of the register
+   * @param numTrains the number of trains in the register
+   * @param previous the previous snapshot
+   * @param changes copies of the departures that changed since the previous snapshot by train
+   *     number, mapped to null if the departure was removed
+   * @param nextServiceDepartures the next departure of each recurring service that is not in the
+   *     register yet, which must not be changed
+   * @param serviceHorizonMinutes the service horizon of the register in minutes
+   * @param dwellMinutes the dwell window of the register in minutes, or -1 if none is set
+   */
+  DepartureSnapshot(
+      long version,
+      LocalDateTime clock,
+      int numTrains,
+      DepartureSnapshot previous,
+      Map<Integer, TrainDeparture> changes,
+      Map<ServiceTemplate, LocalDateTime> nextServiceDepartures,
+      int serviceHorizonMinutes,
+      int dwellMinutes) {
+    this.version = version;
+    this.clock = clock;
+    this.numTrains = numTrains;
+    this.previous = previous;
+    this.changes = changes;
+    this.changesSinceFull = previous.changesSinceFull + Math.max(1, changes.size());
+    this.nextServiceDepartures = nextServiceDepartures;
+    this.serviceHorizonMinutes = serviceHorizonMinutes;
+    this.dwellMinutes = dwellMinutes;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public LocalTime getClock() {
+    return clock.toLocalTime();
+  }
+
+  public LocalDateTime getClockDateTime() {
+    return clock;
+  }
+
+  /**
+   * Returns all departures in the snapshot, ordered by departure time with delay.
+   *
+   * @return an unmodifiable list of the departures
+   */
+  public List<TrainDeparture> getTrainDepartures() {
+    return contents().trainDepartures;
+  }
+
+  /**
+   * Returns the departures in the snapshot that have a track assigned.
+   *
+   * @return an unmodifiable list of the departures with a track
+   */
+  public List<TrainDeparture> getDeparturesWithTrack() {
+    return contents().departuresWithTrack;
+  }
+
+  /**
+   * Returns the departures in the snapshot that do not have a track assigned.
+   *
+   * @return an unmodifiable list of the departures without a track
+   */
+  public List<TrainDeparture> getDeparturesWithoutTrack() {
+    return contents().departuresWithoutTrack;
+  }
+
+  /**
+   * Returns the departures in the snapshot to the given destination.
+   *
+   * @param destination the destination
+   * @return an unmodifiable list of the departures, ordered by departure time with delay
+   */
+  public List<TrainDeparture> findDeparturesToDestination(String destination) {
+    return contents().byDestination.getOrDefault(destination, List.of());
+  }
+
+  /**
+   * Finds a page of departures matching a query, see {@link
+   * TrainRegister#findDepartures(DepartureQuery, int, DeparturePage)}.
+   *
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @param previous the previous page of the same query, or null for the first page
+   * @return the page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public DeparturePage findDepartures(DepartureQuery query, int pageSize, DeparturePage previous) {
+    Contents found = contents();
+    List<TrainDeparture> index =
+        DepartureQueryPlanner.chooseIndex(
+            query,
+            found.trainDepartures,
+            destination -> found.byDestination.getOrDefault(destination, List.of()),
+            track -> found.byTrack.getOrDefault(track, List.of()));
+    return DepartureQueryPlanner.findPage(index, query, pageSize, previous);
+  }
+
+  /**
+   * Returns the tracks from 1 to numberOfTracks that no departure occupies at the given time on the
+   * date of the clock, see {@link TrainRegister#findFreeTracks(LocalTime, int)}.
+   *
+   * @param time the time to find free tracks at
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   * @throws IllegalArgumentException if the number of tracks is negative
+   */
+  public ArrayList<Integer> findFreeTracks(LocalTime time, int numberOfTracks) {
+    return findFreeTracks(LocalDateTime.of(clock.toLocalDate(), time), numberOfTracks);
+  }
+
+  /**
+   * Returns the tracks from 1 to numberOfTracks that no departure occupies at the given date and
+   * time. Each track is checked with a binary search in the departures on the track.
+   *
+   * @param dateTime the date and time to find free tracks at
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   * @throws IllegalArgumentException if the number of tracks is negative
+   */
+  public ArrayList<Integer> findFreeTracks(LocalDateTime dateTime, int numberOfTracks) {
+    if (numberOfTracks < 0) {
+      throw new IllegalArgumentException("Number of tracks cannot be negative");
+    }
+
+    Contents found = contents();
+    long minute = TrainDeparture.toEpochMinute(dateTime);
+    int window = Math.max(dwellMinutes, 0);
+    TrainDeparture lower = TrainDeparture.probe(minute - window, -1);
+    ArrayList<Integer> freeTracks = new ArrayList<>();
+    for (int track = 1; track <= numberOfTracks; track++) {
+      List<TrainDeparture> onTrack = found.byTrack.getOrDefault(track, List.of());
+      int first = DepartureQueryPlanner.indexAfter(onTrack, lower);
+      if (first == onTrack.size() || onTrack.get(first).getDelayedEpochMinute() > minute + window) {
+        freeTracks.add(track);
+      }
+    }
+    return freeTracks;
+  }
+
+  /**
+   * Finds the destinations with departures in the snapshot that start with the given prefix, see
+   * {@link TrainRegister#findDestinationsByPrefix(String)}.
+   *
+   * @param prefix the prefix to search for
+   * @return the destinations, in alphabetical order of their normalized name
+   */
+  public List<String> findDestinationsByPrefix(String prefix) {
+    return contents().destinationTrie.findByPrefix(prefix);
+  }
+
+  /**
+   * Finds the destinations with departures in the snapshot within the given edit distance of a
+   * name, see {@link TrainRegister#findSimilarDestinations(String, int)}.
+   *
+   * @param name the name to search for
+   * @param maxDistance the maximum number of characters that differ
+   * @return the destinations, closest first
+   * @throws IllegalArgumentException if the maximum distance is negative
+   */
+  public List<String> findSimilarDestinations(String name, int maxDistance) {
+    return contents().destinationTrie.findSimilar(name, maxDistance);
+  }
+
+  /**
+   * Retrieves the departure with the given train number.
+   *
+   * @param trainNumber the train number to search for
+   * @return the departure with the train number, or null if not found
+   */
+  public TrainDeparture findDepartureByTrainNumber(int trainNumber) {
+    return contents().byTrainNumber.get(trainNumber);
+  }
+
+  /**
+   * Returns the number of trains in the snapshot.
+   *
+   * @return the number of trains
+   */
+  public int getNumTrains() {
+    return numTrains;
+  }
+
+  /**
+   * Returns the recurring services of the register, each with the date and time of its next
+   * departure that is not in the register yet.
+   *
+   * @return an unmodifiable map of the services, in the order they were added to the register
+   */
+  public Map<ServiceTemplate, LocalDateTime> getNextServiceDepartures() {
+    return nextServiceDepartures;
+  }
+
+  public Duration getServiceHorizon() {
+    return Duration.ofMinutes(serviceHorizonMinutes);
+  }
+
+  /**
+   * Returns the dwell window of the register, see {@link TrainRegister#setDwellMinutes(int)}.
+   *
+   * @return the dwell window in minutes, or -1 if track changes are not checked for conflicts
+   */
+  public int getDwellMinutes() {
+    return dwellMinutes;
+  }
+
+  /**
+   * Returns the number of departure copies in the snapshots since the last full snapshot, which the
+   * register uses to decide when to take a full snapshot again. A snapshot without changed
+   * departures counts as one, so the number of snapshots since the last full snapshot is bounded as
+   * well.
+   *
+   * @return the number of changed departures since the last full snapshot
+   */
+  int getChangesSinceFull() {
+    return changesSinceFull;
+  }
+
+  /**
+   * Returns the lists of the snapshot, and puts them together the first time they are read. The
+   * previous snapshot and the changes are only read and cleared while holding the lock of the
+   * snapshot.
+   *
+   * @return the lists of the snapshot
+   */
+  private Contents contents() {
+    Contents found = contents;
+    if (found == null) {
+      synchronized (this) {
+        found = contents;
+        if (found == null) {
+          found = mergeChanges();
+          contents = found;
+          previous = null;
+          changes = Map.of();
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Merges the changes of this snapshot and of the snapshots before it into the lists of the
+   * closest snapshot whose lists are already put together. The departures that did not change are
+   * already in order, so only the changed departures are sorted.
+   *
+   * @return the lists of the snapshot
+   */
+  private Contents mergeChanges() {
+    // Another thread may put together the lists of a snapshot in the chain and clear its previous
+    // snapshot and changes, so they are read together under the lock of each snapshot
+    ArrayDeque<Map<Integer, TrainDeparture>> chain = new ArrayDeque<>();
+    Contents baseContents = null;
+    DepartureSnapshot snapshot = this;
+    while (baseContents == null) {
+      synchronized (snapshot) {
+        baseContents = snapshot.contents;
+        if (baseContents == null) {
+          chain.push(snapshot.changes);
+          snapshot = snapshot.previous;
+        }
+      }
+    }
+
+    // The oldest changes are first in the chain, so the latest change of a departure wins
+    HashMap<Integer, TrainDeparture> changed = new HashMap<>();
+    chain.forEach(changed::putAll);
+    ArrayList<TrainDeparture> updated = new ArrayList<>(changed.size());
+    for (TrainDeparture trainDeparture : changed.values()) {
+      if (trainDeparture != null) {
+        updated.add(trainDeparture);
+      }
+    }
+    Collections.sort(updated);
+
+    ArrayList<TrainDeparture> merged = new ArrayList<>(numTrains);
+    Iterator<TrainDeparture> unchanged =
+        baseContents.trainDepartures.stream()
+            .filter(trainDeparture -> !changed.containsKey(trainDeparture.getTrainNumber()))
+            .iterator();
+    TrainDeparture next = unchanged.hasNext() ? unchanged.next() : null;
+    for (TrainDeparture trainDeparture : updated) {
+      while (next != null && next.compareTo(trainDeparture) < 0) {
+        merged.add(next);
+        next = unchanged.hasNext() ? unchanged.next() : null;
+      }
+      merged.add(trainDeparture);
+    }
+    while (next != null) {
+      merged.add(next);
+      next = unchanged.hasNext() ? unchanged.next() : null;
+    }
+    return new Contents(merged);
+  }
+
+  /** The lists of a snapshot, built from the departures ordered by departure time with delay. */
+  private static class Contents {
+    private final List<TrainDeparture> trainDepartures;
+    private final List<TrainDeparture> departuresWithTrack;
+    private final List<TrainDeparture> departuresWithoutTrack;
+    private final Map<Integer, TrainDeparture> byTrainNumber;
+    private final Map<String, List<TrainDeparture>> byDestination;
+    private final Map<Integer, List<TrainDeparture>> byTrack;
+    private final DestinationTrie destinationTrie;
+
+    Contents(ArrayList<TrainDeparture> orderedDepartures) {
+      ArrayList<TrainDeparture> withTrack = new ArrayList<>();
+      ArrayList<TrainDeparture> withoutTrack = new ArrayList<>();
+      HashMap<Integer, TrainDeparture> trainNumbers = new HashMap<>();
+      HashMap<String, List<TrainDeparture>> destinations = new HashMap<>();
+      HashMap<Integer, List<TrainDeparture>> tracks = new HashMap<>();
+
+      for (TrainDeparture trainDeparture : orderedDepartures) {
+        (trainDeparture.getTrack() == 0 ? withoutTrack : withTrack).add(trainDeparture);
+        trainNumbers.put(trainDeparture.getTrainNumber(), trainDeparture);
+        destinations
+            .computeIfAbsent(trainDeparture.getDestination(), destination -> new ArrayList<>())
+            .add(trainDeparture);
+        if (trainDeparture.getTrack() != 0) {
+          tracks
+              .computeIfAbsent(trainDeparture.getTrack(), track -> new ArrayList<>())
+              .add(trainDeparture);
+        }
+      }
+      destinations.replaceAll((destination, list) -> Collections.unmodifiableList(list));
+      tracks.replaceAll((track, list) -> Collections.unmodifiableList(list));
+
+      // The trie is not changed once the contents are built, so any thread can search it
+      DestinationTrie trie = new DestinationTrie();
+      destinations.keySet().stream().sorted().forEach(trie::add);
+
+      this.trainDepartures = Collections.unmodifiableList(orderedDepartures);
+      this.departuresWithTrack = Collections.unmodifiableList(withTrack);
+      this.departuresWithoutTrack = Collections.unmodifiableList(withoutTrack);
+      this.byTrainNumber = Collections.unmodifiableMap(trainNumbers);
+      this.byDestination = Collections.unmodifiableMap(destinations);
+      this.byTrack = Collections.unmodifiableMap(tracks);
+      this.destinationTrie = trie;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package edu.ntnu.stud.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ *
+ * <h2>DestinationTrie</h2>
+ *
+ * <p>The DestinationTrie class finds destination names by prefix, or by similarity when a name is
+ * misspelled. Names are stored in a trie under a normalized key: the name is decomposed, accents
+ * and other combining marks are removed, it is lower-cased, and letters without a decomposition are
+ * spelled out, so "Bodø" is stored as "bodo" and "Ålesund" as "alesund". Queries are normalized the
+ * same way.
+ *
+ * <p>A prefix search walks down the trie once and collects the names below the node, so it costs
+ * the length of the prefix plus the number of names found. A similarity search computes the edit
+ * distance to the query one row at a time while walking the trie, and prunes a branch as soon as no
+ * name below it can be within the maximum distance. Only a small part of the trie is visited for
+ * small distances.
+ */
+public class DestinationTrie {
+  private final Node root;
+
+  /** Constructs an empty trie. */
+  public DestinationTrie() {
+    root = new Node();
+  }
+
+  /**
+   * Adds a name to the trie. Adding a name that is already in the trie has no effect.
+   *
+   * @param name the name to add
+   * @throws NullPointerException if the name is null
+   */
+  public void add(String name) {
+    if (name == null) {
+      throw new NullPointerException("Name cannot be null");
+    }
+
+    Node node = root;
+    for (char c : normalize(name).toCharArray()) {
+      node = node.children.computeIfAbsent(c, key -> new Node());
+    }
+    if (!node.names.contains(name)) {
+      node.names.add(name);
+    }
+  }
+
+  /**
+   * Finds the names that start with the given prefix, ignoring case and accents.
+   *
+   * @param prefix the prefix to search for
+   * @return the names, ordered by their normalized key
+   */
+  public List<String> findByPrefix(String prefix) {
+    Node node = root;
+    for (char c : normalize(prefix).toCharArray()) {
+      node = node.children.get(c);
+      if (node == null) {
+        return List.of();
+      }
+    }
+
+    ArrayList<String> found = new ArrayList<>();
+    collect(node, found);
+    return found;
+  }
+
+  /**
+   * Finds the names within the given edit distance of the query, ignoring case and accents. The
+   * edit distance is the number of characters that must be inserted, deleted or replaced to turn
+   * one normalized name into the other.
+   *
+   * @param query the name to search for
+   * @param maxDistance the maximum edit distance
+   * @return the names, ordered by edit distance and then by their normalized key
+   * @throws IllegalArgumentException if the maximum distance is negative
+   */
+  public List<String> findSimilar(String query, int maxDistance) {
+    if (maxDistance < 0) {
+      throw new IllegalArgumentException("Distance cannot be negative");
+    }
+
+    String key = normalize(query);
+    int[] firstRow = new int[key.length() + 1];
+    for (int i = 0; i < firstRow.length; i++) {
+      firstRow[i] = i;
+    }
+
+    ArrayList<Match> matches = new ArrayList<>();
+    if (firstRow[key.length()] <= maxDistance) {
+      root.names.forEach(name -> matches.add(new Match(name, firstRow[key.length()])));
+    }
+    for (Map.Entry<Character, Node> child : root.children.entrySet()) {
+      searchSimilar(child.getValue(), child.getKey(), key, firstRow, maxDistance, matches);
+    }
+
+    // The sort is stable, so names with the same distance stay in key order
+    matches.sort(Comparator.comparingInt(match -> match.distance));
+    return matches.stream().map(match -> match.name).toList();
+  }
+
+  /**
+   * Normalizes a name for searching. The name is decomposed, combining marks are removed, and it is
+   * lower-cased. Letters that have no decomposition, like "ø" and "æ", are replaced by their plain
+   * spelling.
+   *
+   * @param name the name to normalize
+   * @return the normalized name
+   */
+  public static String normalize(String name) {
+    String decomposed = Normalizer.normalize(name.strip(), Normalizer.Form.NFD);
+    StringBuilder normalized = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      int type = Character.getType(c);
+      if (type == Character.NON_SPACING_MARK
+          || type == Character.COMBINING_SPACING_MARK
+          || type == Character.ENCLOSING_MARK) {
+        continue;
+      }
+
+      switch (Character.toLowerCase(c)) {
+        case 'ø':
+          normalized.append('o');
+          break;
+        case 'æ':
+          normalized.append("ae");
+          break;
+        case 'œ':
+          normalized.append("oe");
+          break;
+        case 'ß':
+          normalized.append("ss");
+          break;
+        default:
+          normalized.append(Character.toLowerCase(c));
+          break;
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * Computes the next row of edit distances for a node, and searches its children while a name
+   * below it can still be within the maximum distance.
+   *
+   * @param node the node to search
+   * @param c the character leading to the node
+   * @param key the normalized query
+   * @param previousRow the edit distances of the parent node to each prefix of the query
+   * @param maxDistance the maximum edit distance
+   * @param matches the list to add the names within the distance to
+   */
+  private static void searchSimilar(
+      Node node, char c, String key, int[] previousRow, int maxDistance, List<Match> matches) {
+    int[] row = new int[previousRow.length];
+    row[0] = previousRow[0] + 1;
+    int smallest = row[0];
+    for (int i = 1; i < row.length; i++) {
+      int insert = row[i - 1] + 1;
+      int delete = previousRow[i] + 1;
+      int replace = previousRow[i - 1] + (key.charAt(i - 1) == c ? 0 : 1);
+      row[i] = Math.min(Math.min(insert, delete), replace);
+      smallest = Math.min(smallest, row[i]);
+    }
+
+    int distance = row[row.length - 1];
+    if (distance <= maxDistance) {
+      node.names.forEach(name -> matches.add(new Match(name, distance)));
+    }
+    if (smallest > maxDistance) {
+      return;
+    }
+    for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+      searchSimilar(child.getValue(), child.getKey(), key, row, maxDistance, matches);
+    }
+  }
+
+  /**
+   * Adds the names of a node and every node below it, in key order.
+   *
+   * @param node the node to start at
+   * @param found the list to add the names to
+   */
+  private static void collect(Node node, List<String> found) {
+    found.addAll(node.names);
+    for (Node child : node.children.values()) {
+      collect(child, found);
+    }
+  }
+
+  /** A node of the trie, with the names whose normalized key ends at the node. */
+  private static class Node {
+    private final TreeMap<Character, Node> children = new TreeMap<>();
+    private final ArrayList<String> names = new ArrayList<>(1);
+  }
+
+  /** A name found by a similarity search, with its edit distance to the query. */
+  private static class Match {
+    private final String name;
+    private final int distance;
+
+    Match(String name, int distance) {
+      this.name = name;
+      this.distance = distance;
+    }
+  }
+}
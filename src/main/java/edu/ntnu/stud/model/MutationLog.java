@@ -0,0 +1,90 @@
+package edu.ntnu.stud.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *
+ * <h2>MutationLog</h2>
+ *
+ * <p>MutationLog receives every change made to a {@link TrainRegister}, see {@link
+ * TrainRegister#setMutationLog(MutationLog)}. The register calls the log after a change has been
+ * validated and applied, so only changes that succeeded are logged, in the order they were made.
+ * Replaying the logged changes on a register with the same starting state gives the same register.
+ * Each change is logged with exactly one call, so when the log is called, the register holds the
+ * result of exactly the changes logged so far.
+ *
+ * <p>The departures of recurring services are not logged when they are added to the register. They
+ * are added right after the change that brings them within the service horizon has been logged,
+ * such as adding the service or moving the clock, and only depend on the logged services, clock and
+ * service horizon, so replaying those changes adds them again.
+ *
+ * <p>The log is called while the change is being made, so it should only record the change and not
+ * block. Departures passed to the log are the ones stored in the register, and must not be modified
+ * or kept.
+ */
+public interface MutationLog {
+  /**
+   * Called after departures have been added to the register.
+   *
+   * @param trainDepartures the added departures
+   */
+  void departuresAdded(List<TrainDeparture> trainDepartures);
+
+  /**
+   * Called after operations have been applied to departures, which covers deleting departures,
+   * changing tracks, adding delay and batches of these.
+   *
+   * @param trainNumbers the train numbers of the changed departures
+   * @param operations the applied operations, in order
+   */
+  void departuresChanged(List<Integer> trainNumbers, List<BatchOperation> operations);
+
+  /**
+   * Called after a different delay has been added to each of several departures as one change, see
+   * {@link TrainRegister#addDelays(Map)}.
+   *
+   * @param addedDelays the delay added to each departure in minutes, by train number, in the order
+   *     the departures were changed
+   */
+  void delaysAdded(Map<Integer, Integer> addedDelays);
+
+  /**
+   * Called after the clock of the register has been changed.
+   *
+   * @param clock the new date and time of the clock
+   */
+  void clockSet(LocalDateTime clock);
+
+  /**
+   * Called after trains have departed. Which trains depart only depends on the clock and the
+   * departures in the register, so the departed trains are not logged.
+   */
+  void trainsDeparted();
+
+  /**
+   * Called after a recurring service has been added to the register.
+   *
+   * @param serviceTemplate the added service
+   * @param nextDeparture the date and time of the first departure of the service that is added to
+   *     the register, see {@link TrainRegister#addServiceTemplate(ServiceTemplate, LocalDateTime)}
+   */
+  void serviceAdded(ServiceTemplate serviceTemplate, LocalDateTime nextDeparture);
+
+  /**
+   * Called after the service horizon of the register has been changed.
+   *
+   * @param horizon the new service horizon
+   */
+  void serviceHorizonSet(Duration horizon);
+
+  /**
+   * Called after the dwell window of the register has been changed.
+   *
+   * @param dwellMinutes the new dwell window in minutes
+   */
+  void dwellMinutesSet(int dwellMinutes);
+}
@@ -0,0 +1,118 @@
+package edu.ntnu.stud.model;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ *
+ *
+ * <h2>RegisterEvent</h2>
+ *
+ * <p>RegisterEvent describes one change to a {@link TrainRegister}, and is delivered to the
+ * listeners subscribed to the register, see {@link TrainRegister#subscribe(RegisterListener, int,
+ * java.util.concurrent.Executor)}. Events hold train numbers and not departures, so they never
+ * change after they are published. A listener that needs the changed departures reads them from the
+ * register.
+ *
+ * <p>An {@link Type#OVERFLOW} event means that the listener fell behind and events were dropped.
+ * The listener should then rebuild its state from a snapshot of the register, and ignore later
+ * events with a version that is not newer than the snapshot.
+ */
+public final class RegisterEvent {
+  /** The kind of change an event describes. */
+  public enum Type {
+    ADDED,
+    DELAYED,
+    TRACK_CHANGED,
+    DELETED,
+    DEPARTED,
+    CLOCK_SET,
+    OVERFLOW
+  }
+
+  private final Type type;
+  private final long version;
+  private final List<Integer> trainNumbers;
+  private final LocalDateTime clock;
+
+  /**
+   * Constructs an event.
+   *
+   * @param type the kind of change
+   * @param version the version of the register after the change
+   * @param trainNumbers the train numbers of the changed departures
+   * @param clock the clock of the register after the change
+   */
+  RegisterEvent(Type type, long version, List<Integer> trainNumbers, LocalDateTime clock) {
+    this.type = type;
+    this.version = version;
+    this.trainNumbers = List.copyOf(trainNumbers);
+    this.clock = clock;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the version of the register after the change. Coalesced events have the version of the
+   * last change they cover.
+   *
+   * @return the version of the register
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the train numbers of the departures that were changed. Empty for clock and overflow
+   * events.
+   *
+   * @return an unmodifiable list of train numbers
+   */
+  public List<Integer> getTrainNumbers() {
+    return trainNumbers;
+  }
+
+  public LocalTime getClock() {
+    return clock.toLocalTime();
+  }
+
+  public LocalDateTime getClockDateTime() {
+    return clock;
+  }
+
+  /**
+   * Checks whether this event can be coalesced with a later event, which is the case when both have
+   * the same type.
+   *
+   * @param later the later event
+   * @return true if the events can be coalesced
+   */
+  boolean canCoalesce(RegisterEvent later) {
+    return type == later.type && type != Type.OVERFLOW;
+  }
+
+  /**
+   * Coalesces this event with a later event of the same type into one event, with the train numbers
+   * of both and the version and clock of the later event.
+   *
+   * @param later the later event
+   * @return the coalesced event
+   */
+  RegisterEvent coalesce(RegisterEvent later) {
+    if (trainNumbers.isEmpty()) {
+      return later;
+    }
+    LinkedHashSet<Integer> merged = new LinkedHashSet<>(trainNumbers);
+    merged.addAll(later.trainNumbers);
+    return new RegisterEvent(type, later.version, List.copyOf(merged), later.clock);
+  }
+
+  @Override
+  public String toString() {
+    return type + " " + trainNumbers + " at version " + version;
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ntnu.stud.model;
+
+import java.util.List;
+
+/**
+ *
+ *
+ * <h2>RegisterListener</h2>
+ *
+ * <p>RegisterListener receives the changes made to a {@link TrainRegister} as batches of {@link
+ * RegisterEvent}s, see {@link TrainRegister#subscribe(RegisterListener, int,
+ * java.util.concurrent.Executor)}. Events are delivered in the order the changes were made, and a
+ * listener is never called by more than one thread at a time.
+ */
+@FunctionalInterface
+public interface RegisterListener {
+  /**
+   * Called with the events that were published since the last call. Consecutive events of the same
+   * type are coalesced into one event.
+   *
+   * @param events the events, oldest first
+   */
+  void onEvents(List<RegisterEvent> events);
+}
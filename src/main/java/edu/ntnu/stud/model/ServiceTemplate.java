@@ -0,0 +1,182 @@
+package edu.ntnu.stud.model;
+
+import java.time.Duration;
+import java.time.LocalTime;
+
+/**
+ *
+ *
+ * <h2>ServiceTemplate</h2>
+ *
+ * <p>The ServiceTemplate class represents a recurring service, such as line L2 to Oslo every 30
+ * minutes from 06:00 to 23:00. The service runs every day, and the departures of a day are numbered
+ * from the first train number, so the first departure of the day gets the first train number, the
+ * next one the train number after it, and so on.
+ *
+ * <p>A template is not a departure itself. A {@link TrainRegister} creates the departures of its
+ * templates when they come within its service horizon, see {@link
+ * TrainRegister#addServiceTemplate(ServiceTemplate)}.
+ */
+public class ServiceTemplate {
+  private final String line;
+  private final String destination;
+  private final int track;
+  private final int firstMinute;
+  private final int lastMinute;
+  private final int intervalMinutes;
+  private final int firstTrainNumber;
+
+  /**
+   * Constructs a service template. Seconds are ignored.
+   *
+   * @param line the line of the service
+   * @param destination the destination of the service
+   * @param track the track of the departures, or 0 for no track
+   * @param firstDeparture the time of the first departure of the day
+   * @param lastDeparture the latest time a departure of the day can leave
+   * @param interval the time between departures, at least one minute
+   * @param firstTrainNumber the train number of the first departure of the day
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   * @throws NullPointerException if any of the arguments are null
+   */
+  public ServiceTemplate(
+      String line,
+      String destination,
+      int track,
+      LocalTime firstDeparture,
+      LocalTime lastDeparture,
+      Duration interval,
+      int firstTrainNumber) {
+    if (line == null) {
+      throw new NullPointerException("Line cannot be null");
+    }
+    if (destination == null) {
+      throw new NullPointerException("Destination cannot be null");
+    }
+    if (firstDeparture == null || lastDeparture == null) {
+      throw new NullPointerException("Departure time cannot be null");
+    }
+    if (interval == null) {
+      throw new NullPointerException("Interval cannot be null");
+    }
+    if (track < 0) {
+      throw new IllegalArgumentException("Track cannot be negative");
+    }
+    if (lastDeparture.isBefore(firstDeparture)) {
+      throw new IllegalArgumentException("Last departure cannot be before first departure");
+    }
+    if (interval.toMinutes() < 1) {
+      throw new IllegalArgumentException("Interval must be at least one minute");
+    }
+
+    this.line = line;
+    this.destination = destination;
+    this.track = track;
+    this.firstMinute = firstDeparture.getHour() * 60 + firstDeparture.getMinute();
+    this.lastMinute = lastDeparture.getHour() * 60 + lastDeparture.getMinute();
+    this.intervalMinutes = (int) Math.min(interval.toMinutes(), TrainDeparture.MINUTES_PER_DAY);
+    this.firstTrainNumber = firstTrainNumber;
+
+    if (firstTrainNumber < 0 || getLastTrainNumber() > TrainDeparture.MAX_TRAIN_NUMBER) {
+      throw new IllegalArgumentException(
+          "Train numbers must be between 0 and " + TrainDeparture.MAX_TRAIN_NUMBER);
+    }
+  }
+
+  public String getLine() {
+    return line;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  public int getTrack() {
+    return track;
+  }
+
+  public int getFirstTrainNumber() {
+    return firstTrainNumber;
+  }
+
+  public LocalTime getFirstDeparture() {
+    return LocalTime.ofSecondOfDay(firstMinute * 60L);
+  }
+
+  public LocalTime getLastDeparture() {
+    return LocalTime.ofSecondOfDay(lastMinute * 60L);
+  }
+
+  public Duration getInterval() {
+    return Duration.ofMinutes(intervalMinutes);
+  }
+
+  /**
+   * Returns the number of departures of the service each day.
+   *
+   * @return the number of departures per day
+   */
+  public int getDeparturesPerDay() {
+    return (lastMinute - firstMinute) / intervalMinutes + 1;
+  }
+
+  /**
+   * Returns the train number of the last departure of the day.
+   *
+   * @return the last train number
+   */
+  public int getLastTrainNumber() {
+    return firstTrainNumber + getDeparturesPerDay() - 1;
+  }
+
+  /**
+   * Checks if the train numbers of this template overlap with those of another template.
+   *
+   * @param other the other template
+   * @return true if any train number is used by both templates, false otherwise
+   */
+  public boolean overlaps(ServiceTemplate other) {
+    return firstTrainNumber <= other.getLastTrainNumber()
+        && other.firstTrainNumber <= getLastTrainNumber();
+  }
+
+  /**
+   * Returns the first departure of the service at or after the given time.
+   *
+   * @param epochMinute the time in epoch minutes
+   * @return the departure time in epoch minutes
+   */
+  long nextDepartureMinute(long epochMinute) {
+    int minuteOfDay = Math.floorMod(epochMinute, TrainDeparture.MINUTES_PER_DAY);
+    long dayStart = epochMinute - minuteOfDay;
+    if (minuteOfDay <= firstMinute) {
+      return dayStart + firstMinute;
+    }
+
+    int index = (minuteOfDay - firstMinute + intervalMinutes - 1) / intervalMinutes;
+    int minute = firstMinute + index * intervalMinutes;
+    if (minute <= lastMinute) {
+      return dayStart + minute;
+    }
+    return dayStart + TrainDeparture.MINUTES_PER_DAY + firstMinute;
+  }
+
+  /**
+   * Creates the departure of the service leaving at the given time.
+   *
+   * @param epochMinute the departure time in epoch minutes, as returned by {@link
+   *     #nextDepartureMinute(long)}
+   * @return a new departure without delay
+   */
+  TrainDeparture createDeparture(long epochMinute) {
+    int minuteOfDay = Math.floorMod(epochMinute, TrainDeparture.MINUTES_PER_DAY);
+    int index = (minuteOfDay - firstMinute) / intervalMinutes;
+    return new TrainDeparture(
+        TrainDeparture.toDateTime(epochMinute),
+        line,
+        firstTrainNumber + index,
+        destination,
+        track,
+        Duration.ZERO);
+  }
+}
@@ -0,0 +1,82 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ *
+ *
+ * <h2>StringDictionary</h2>
+ *
+ * <p>The StringDictionary class encodes strings, such as lines and destinations, as dense integer
+ * ids. Each distinct string is stored once, and ids are handed out in the order strings are first
+ * encoded, starting from 0. Ids are never reused.
+ */
+public class StringDictionary {
+  public static final int NOT_FOUND = -1;
+
+  private final HashMap<String, Integer> ids;
+  private final ArrayList<String> values;
+
+  /** Constructs an empty dictionary. */
+  public StringDictionary() {
+    ids = new HashMap<>();
+    values = new ArrayList<>();
+  }
+
+  /**
+   * Returns the id of the given string, adding it to the dictionary if it is not already present.
+   *
+   * @param value the string to encode
+   * @return the id of the string
+   * @throws NullPointerException if the string is null
+   */
+  public int encode(String value) {
+    if (value == null) {
+      throw new NullPointerException("Value cannot be null");
+    }
+
+    Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+
+    values.add(value);
+    ids.put(value, values.size() - 1);
+    return values.size() - 1;
+  }
+
+  /**
+   * Returns the id of the given string without adding it to the dictionary.
+   *
+   * @param value the string to look up
+   * @return the id of the string, or {@link #NOT_FOUND} if it has not been encoded
+   */
+  public int lookup(String value) {
+    Integer id = ids.get(value);
+    return id == null ? NOT_FOUND : id;
+  }
+
+  /**
+   * Returns the string with the given id.
+   *
+   * @param id the id of the string
+   * @return the string with the given id
+   * @throws IllegalArgumentException if no string has the given id
+   */
+  public String decode(int id) {
+    if (id < 0 || id >= values.size()) {
+      throw new IllegalArgumentException("Unknown id: " + id);
+    }
+    return values.get(id);
+  }
+
+  /**
+   * Returns the number of distinct strings in the dictionary.
+   *
+   * @return the number of strings
+   */
+  public int size() {
+    return values.size();
+  }
+}
@@ -0,0 +1,154 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *
+ *
+ * <h2>Subscription</h2>
+ *
+ * <p>Subscription connects a {@link RegisterListener} to a {@link TrainRegister}. Events are
+ * offered to a bounded queue by the thread that changes the register, which never waits for the
+ * listener. When the queue goes from empty to not empty, a delivery task is submitted to the
+ * executor of the subscription. The task drains the whole queue, coalesces the events, and calls
+ * the listener with them as one batch, until the queue is empty.
+ *
+ * <p>If the listener is so slow that the queue fills up, later events are dropped until the queue
+ * has been drained, and the listener gets a single {@link RegisterEvent.Type#OVERFLOW} event
+ * instead of the events that were queued or dropped. The overflow event has the version and the
+ * clock of the last dropped event.
+ *
+ * <p>If the executor rejects a delivery task, for example because it has been shut down, the
+ * subscription is cancelled. The change to the register has already been made, so the rejection is
+ * not thrown to the thread that made it.
+ */
+public final class Subscription {
+  private final TrainRegister trainRegister;
+  private final RegisterListener listener;
+  private final Executor executor;
+  private final ArrayBlockingQueue<RegisterEvent> queue;
+  private final AtomicBoolean scheduled;
+  private final AtomicBoolean overflowed;
+  private volatile RegisterEvent lastDropped;
+  private volatile boolean cancelled;
+
+  /**
+   * Constructs a subscription. Only created by {@link TrainRegister}.
+   *
+   * @param trainRegister the register the listener is subscribed to
+   * @param listener the listener to deliver events to
+   * @param capacity the number of events that can be queued
+   * @param executor the executor that calls the listener
+   */
+  Subscription(
+      TrainRegister trainRegister, RegisterListener listener, int capacity, Executor executor) {
+    this.trainRegister = trainRegister;
+    this.listener = listener;
+    this.executor = executor;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.scheduled = new AtomicBoolean();
+    this.overflowed = new AtomicBoolean();
+  }
+
+  /**
+   * Stops the delivery of events. Events that are already being delivered may still reach the
+   * listener.
+   */
+  public void cancel() {
+    cancelled = true;
+    trainRegister.unsubscribe(this);
+    queue.clear();
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Queues an event without waiting, and schedules delivery if none is scheduled. Called by the
+   * thread that changes the register. If the executor rejects the delivery task, the subscription
+   * is cancelled.
+   *
+   * @param event the event to queue
+   */
+  void publish(RegisterEvent event) {
+    if (cancelled) {
+      return;
+    }
+    if (overflowed.get() || !queue.offer(event)) {
+      lastDropped = event;
+      overflowed.set(true);
+    }
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::deliver);
+      } catch (RejectedExecutionException e) {
+        scheduled.set(false);
+        cancel();
+      }
+    }
+  }
+
+  /**
+   * Delivers queued events to the listener as batches, until the queue is empty. If the listener
+   * throws, delivery stops, and is scheduled again by the next event.
+   */
+  private void deliver() {
+    ArrayList<RegisterEvent> drained = new ArrayList<>();
+    while (true) {
+      List<RegisterEvent> batch;
+      if (overflowed.getAndSet(false)) {
+        queue.clear();
+        RegisterEvent dropped = lastDropped;
+        batch =
+            List.of(
+                new RegisterEvent(
+                    RegisterEvent.Type.OVERFLOW,
+                    dropped.getVersion(),
+                    List.of(),
+                    dropped.getClockDateTime()));
+      } else {
+        drained.clear();
+        queue.drainTo(drained);
+        batch = coalesce(drained);
+      }
+
+      try {
+        if (!batch.isEmpty() && !cancelled) {
+          listener.onEvents(batch);
+        }
+      } finally {
+        scheduled.set(false);
+      }
+
+      // Stop unless an event was published after the queue was drained
+      if ((queue.isEmpty() && !overflowed.get()) || !scheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Coalesces consecutive events of the same type.
+   *
+   * @param events the events, oldest first
+   * @return the coalesced events
+   */
+  private static List<RegisterEvent> coalesce(List<RegisterEvent> events) {
+    ArrayList<RegisterEvent> coalesced = new ArrayList<>(events.size());
+    for (RegisterEvent event : events) {
+      int last = coalesced.size() - 1;
+      if (last >= 0 && coalesced.get(last).canCoalesce(event)) {
+        coalesced.set(last, coalesced.get(last).coalesce(event));
+      } else {
+        coalesced.add(event);
+      }
+    }
+    return coalesced;
+  }
+}
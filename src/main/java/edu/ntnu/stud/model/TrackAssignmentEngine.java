@@ -0,0 +1,302 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ *
+ *
+ * <h2>TrackAssignmentEngine</h2>
+ *
+ * <p>TrackAssignmentEngine assigns tracks to the departures in a {@link TrainRegister} that have no
+ * track. Departures keep the tracks they already have, and a departure is only assigned a track
+ * that is free for the dwell window of the register, see {@link
+ * TrainRegister#setDwellMinutes(int)}.
+ *
+ * <p>{@link #assignAll()} uses greedy interval partitioning. The departures without a track are
+ * read in order of departure time with delay, and the tracks wait in a priority queue ordered by
+ * the last departure planned on them. Each departure gets the track that has been free the longest,
+ * unless a departure that already had a track occupies it. With a fixed number of tracks at the
+ * station, assigning n departures costs O(n log n). The tracks are applied with one batch per
+ * track.
+ *
+ * <p>The register rejects a delay that makes a departure conflict with another departure on its
+ * track. {@link #addDelay(int, int)} adds delay to a departure, and if the engine gave it a track
+ * that the delay makes it conflict on, moves it to a free track in the same change. The rest of the
+ * plan is left as it is.
+ *
+ * <p>The engine subscribes to the register, and records which departures are delayed. {@link
+ * #replan()} only looks at those departures. A delayed departure without a track is assigned one,
+ * and a delayed departure that was given its track by the engine, and conflicts with another
+ * departure on that track, is moved to a free track.
+ *
+ * <p>Like {@link TrainRegister}, the engine is not thread-safe.
+ */
+public class TrackAssignmentEngine {
+  private static final int SUBSCRIPTION_CAPACITY = 1024;
+
+  private final TrainRegister trainRegister;
+  private final TrackOccupancy trackOccupancy;
+  private final int numberOfTracks;
+  private final Set<Integer> assignedByEngine;
+  private final LinkedHashSet<Integer> delayed;
+  private final Subscription subscription;
+  private boolean replanAll;
+  private boolean applying;
+
+  /**
+   * Constructs an engine that assigns tracks in a register, and subscribes to its changes.
+   *
+   * @param trainRegister the register to assign tracks in
+   * @param numberOfTracks the number of tracks at the station, numbered from 1
+   * @throws IllegalArgumentException if the number of tracks is not positive
+   */
+  public TrackAssignmentEngine(TrainRegister trainRegister, int numberOfTracks) {
+    if (numberOfTracks <= 0) {
+      throw new IllegalArgumentException("Number of tracks must be positive");
+    }
+    this.trainRegister = trainRegister;
+    this.trackOccupancy = trainRegister.getTrackOccupancy();
+    this.numberOfTracks = numberOfTracks;
+    this.assignedByEngine = new HashSet<>();
+    this.delayed = new LinkedHashSet<>();
+    // Events are only recorded, so they can be delivered by the thread that changes the register
+    this.subscription =
+        trainRegister.subscribe(this::recordEvents, SUBSCRIPTION_CAPACITY, Runnable::run);
+  }
+
+  /**
+   * Assigns tracks to every departure in the register that has no track.
+   *
+   * @return the departures that could not be assigned a track, because every track is occupied
+   */
+  public ArrayList<TrainDeparture> assignAll() {
+    int dwell = trackOccupancy.getDwellWindow();
+    long[] lastPlanned = new long[numberOfTracks + 1];
+    PriorityQueue<Integer> tracks =
+        new PriorityQueue<>(
+            numberOfTracks,
+            Comparator.<Integer>comparingLong(track -> lastPlanned[track])
+                .thenComparingInt(track -> track));
+    for (int track = 1; track <= numberOfTracks; track++) {
+      lastPlanned[track] = Long.MIN_VALUE / 2;
+      tracks.add(track);
+    }
+
+    TreeMap<Integer, List<Integer>> plan = new TreeMap<>();
+    ArrayList<TrainDeparture> unassigned = new ArrayList<>();
+    ArrayList<Integer> polled = new ArrayList<>();
+    for (TrainDeparture trainDeparture : trainRegister.getDeparturesWithoutTrack()) {
+      long minute = trainDeparture.getDelayedEpochMinute();
+      int chosen = 0;
+      polled.clear();
+      while (!tracks.isEmpty()) {
+        int track = tracks.poll();
+        polled.add(track);
+        if (minute - lastPlanned[track] <= dwell) {
+          // Every other track was planned even later
+          break;
+        }
+        if (trackOccupancy.findOccupant(track, minute, Set.of()) == null) {
+          chosen = track;
+          break;
+        }
+      }
+
+      if (chosen == 0) {
+        unassigned.add(trainDeparture);
+      } else {
+        lastPlanned[chosen] = minute;
+        plan.computeIfAbsent(chosen, track -> new ArrayList<>())
+            .add(trainDeparture.getTrainNumber());
+      }
+      tracks.addAll(polled);
+    }
+
+    plan.forEach(this::applyTrack);
+    return unassigned;
+  }
+
+  /**
+   * Re-plans the departures that have been delayed since the last plan. If events were dropped,
+   * every departure assigned by the engine is checked, and departures without a track are assigned.
+   *
+   * @return the delayed departures that could not be given a free track. They are left without a
+   *     track.
+   */
+  public ArrayList<TrainDeparture> replan() {
+    ArrayList<Integer> trainNumbers = new ArrayList<>(replanAll ? assignedByEngine : delayed);
+    boolean assignWithoutTrack = replanAll;
+    delayed.clear();
+    replanAll = false;
+
+    ArrayList<TrainDeparture> unassigned = new ArrayList<>();
+    for (int trainNumber : trainNumbers) {
+      TrainDeparture trainDeparture = trainRegister.findDepartureByTrainNumber(trainNumber);
+      if (trainDeparture == null || !replanDeparture(trainDeparture)) {
+        continue;
+      }
+      if (trainDeparture.getTrack() == 0) {
+        unassigned.add(trainDeparture);
+      }
+    }
+
+    if (assignWithoutTrack) {
+      unassigned = assignAll();
+    }
+    return unassigned;
+  }
+
+  /**
+   * Adds delay to a departure. If the engine gave the departure its track, and the delay would make
+   * it conflict with another departure on that track, it is moved to a free track, or left without
+   * a track if every track is occupied, in the same change as the delay.
+   *
+   * @param trainNumber the train number of the departure
+   * @param minutes the number of minutes to add to the delay
+   * @return true if the departure was moved to another track
+   * @throws IllegalArgumentException if the train number does not exist, if the delay is negative,
+   *     or if the departure was given its track by hand and the delay makes it conflict with
+   *     another departure on that track
+   */
+  public boolean addDelay(int trainNumber, int minutes) {
+    BatchOperation delay = BatchOperation.addDelay(minutes);
+    TrainDeparture trainDeparture = trainRegister.findDepartureByTrainNumber(trainNumber);
+    if (trainDeparture == null) {
+      throw new IllegalArgumentException("Train number " + trainNumber + " does not exist");
+    }
+
+    long minute = trainDeparture.getDelayedEpochMinute() + minutes;
+    int currentTrack = trainDeparture.getTrack();
+    boolean conflicts =
+        currentTrack != 0
+            && assignedByEngine.contains(trainNumber)
+            && trackOccupancy.findOccupant(currentTrack, minute, Set.of(trainNumber)) != null;
+    if (!conflicts) {
+      trainRegister.applyBatch(List.of(trainNumber), List.of(delay));
+      return false;
+    }
+
+    int chosen = findFreeTrack(minute, currentTrack);
+    applyTrack(chosen, List.of(trainNumber), List.of(delay, BatchOperation.changeTrack(chosen)));
+    return true;
+  }
+
+  /** Stops following the changes to the register. */
+  public void close() {
+    subscription.cancel();
+  }
+
+  /**
+   * Moves a delayed departure to a free track if it has no track, or if the engine gave it a track
+   * that is now occupied.
+   *
+   * @param trainDeparture the delayed departure
+   * @return true if the departure needed a new track, false if it was left as it is
+   */
+  private boolean replanDeparture(TrainDeparture trainDeparture) {
+    int trainNumber = trainDeparture.getTrainNumber();
+    long minute = trainDeparture.getDelayedEpochMinute();
+    int currentTrack = trainDeparture.getTrack();
+    boolean needsTrack = currentTrack == 0;
+    boolean conflicts =
+        currentTrack != 0
+            && assignedByEngine.contains(trainNumber)
+            && trackOccupancy.findOccupant(currentTrack, minute, Set.of(trainNumber)) != null;
+    if (!needsTrack && !conflicts) {
+      return false;
+    }
+
+    int chosen = findFreeTrack(minute, currentTrack);
+    if (chosen != 0 || conflicts) {
+      applyTrack(chosen, List.of(trainNumber));
+    }
+    return true;
+  }
+
+  /**
+   * Finds the first track that no departure occupies at the given minute.
+   *
+   * @param minute the departure time with delay in epoch minutes
+   * @param excludedTrack a track that is not chosen, or 0
+   * @return the free track, or 0 if every track is occupied
+   */
+  private int findFreeTrack(long minute, int excludedTrack) {
+    for (int track = 1; track <= numberOfTracks; track++) {
+      if (track != excludedTrack && trackOccupancy.findOccupant(track, minute, Set.of()) == null) {
+        return track;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Changes the track of departures as one batch, and remembers that the engine assigned them.
+   *
+   * @param track the new track, or 0 to remove the track
+   * @param trainNumbers the train numbers of the departures
+   */
+  private void applyTrack(int track, List<Integer> trainNumbers) {
+    applyTrack(track, trainNumbers, List.of(BatchOperation.changeTrack(track)));
+  }
+
+  /**
+   * Applies a batch that changes the track of departures, and remembers that the engine assigned
+   * them.
+   *
+   * @param track the new track, or 0 to remove the track
+   * @param trainNumbers the train numbers of the departures
+   * @param operations the operations of the batch, which change the track to the given track
+   */
+  private void applyTrack(int track, List<Integer> trainNumbers, List<BatchOperation> operations) {
+    applying = true;
+    try {
+      trainRegister.applyBatch(trainNumbers, operations);
+    } finally {
+      applying = false;
+    }
+
+    if (track == 0) {
+      trainNumbers.forEach(assignedByEngine::remove);
+    } else {
+      assignedByEngine.addAll(trainNumbers);
+    }
+  }
+
+  /**
+   * Records the departures that need to be re-planned. Departures that leave the register, or get a
+   * track from someone else than the engine, are no longer managed by the engine.
+   *
+   * @param events the events from the register
+   */
+  private void recordEvents(List<RegisterEvent> events) {
+    for (RegisterEvent event : events) {
+      switch (event.getType()) {
+        case DELAYED:
+          delayed.addAll(event.getTrainNumbers());
+          break;
+        case TRACK_CHANGED:
+          if (!applying) {
+            event.getTrainNumbers().forEach(assignedByEngine::remove);
+          }
+          break;
+        case DELETED:
+        case DEPARTED:
+          event.getTrainNumbers().forEach(assignedByEngine::remove);
+          event.getTrainNumbers().forEach(delayed::remove);
+          break;
+        case OVERFLOW:
+          replanAll = true;
+          break;
+        default:
+          break;
+      }
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package edu.ntnu.stud.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ *
+ *
+ * <h2>TrackOccupancy</h2>
+ *
+ * <p>TrackOccupancy is the track index of a {@link TrainRegister}. It holds the departures that
+ * have a track, grouped by track and ordered by departure time with delay, together with the dwell
+ * window of the register, see {@link TrainRegister#setDwellMinutes(int)}. A departure occupies its
+ * track for the dwell window before it leaves, so finding the departures that occupy a track at a
+ * given time only searches the index around that time, in O(log n).
+ *
+ * <p>The register adds departures to the index and removes them when they change, and checks every
+ * batch that changes the track or the delay of departures with {@link #checkConflicts(ArrayList,
+ * List)}, and every change that adds a different delay to each departure with {@link
+ * #checkDelays(Map)}, before it is applied.
+ */
+final class TrackOccupancy {
+  static final int NO_DWELL = -1;
+
+  private final HashMap<Integer, TreeSet<TrainDeparture>> trackIndex;
+  private int dwellMinutes;
+
+  /** Constructs an empty track index without a dwell window. */
+  TrackOccupancy() {
+    trackIndex = new HashMap<>();
+    dwellMinutes = NO_DWELL;
+  }
+
+  /**
+   * Returns the dwell window of the register.
+   *
+   * @return the dwell window in minutes, or {@link #NO_DWELL} if none is set
+   */
+  int getDwellMinutes() {
+    return dwellMinutes;
+  }
+
+  /**
+   * Sets the dwell window of the register. The register validates the dwell window.
+   *
+   * @param dwellMinutes the dwell window in minutes
+   */
+  void setDwellMinutes(int dwellMinutes) {
+    this.dwellMinutes = dwellMinutes;
+  }
+
+  /**
+   * Returns the dwell window used to find departures occupying a track, which is 0 if no dwell
+   * window is set.
+   *
+   * @return the dwell window in minutes
+   */
+  int getDwellWindow() {
+    return Math.max(dwellMinutes, 0);
+  }
+
+  /**
+   * Adds a departure to the index if it has a track.
+   *
+   * @param trainDeparture the departure stored in the register
+   */
+  void add(TrainDeparture trainDeparture) {
+    if (trainDeparture.getTrack() != 0) {
+      trackIndex
+          .computeIfAbsent(trainDeparture.getTrack(), track -> new TreeSet<>())
+          .add(trainDeparture);
+    }
+  }
+
+  /**
+   * Removes a departure from the index. Its track and delay must be the same as when it was added.
+   *
+   * @param trainDeparture the departure stored in the register
+   */
+  void remove(TrainDeparture trainDeparture) {
+    TreeSet<TrainDeparture> onTrack = trackIndex.get(trainDeparture.getTrack());
+    if (onTrack != null) {
+      onTrack.remove(trainDeparture);
+      if (onTrack.isEmpty()) {
+        trackIndex.remove(trainDeparture.getTrack());
+      }
+    }
+  }
+
+  /**
+   * Returns the departures on a track.
+   *
+   * @param track the track
+   * @return the departures on the track ordered by departure time with delay, or an empty set
+   */
+  NavigableSet<TrainDeparture> departuresOn(int track) {
+    TreeSet<TrainDeparture> onTrack = trackIndex.get(track);
+    return onTrack == null ? Collections.emptyNavigableSet() : onTrack;
+  }
+
+  /**
+   * Finds a departure that occupies a track at the same time as a departure leaving at the given
+   * minute, by searching the track index around the minute.
+   *
+   * @param track the track to search
+   * @param minute the departure time with delay in epoch minutes
+   * @param ignored train numbers of departures that are not counted
+   * @return a departure occupying the track, or null if the track is free
+   */
+  TrainDeparture findOccupant(int track, long minute, Set<Integer> ignored) {
+    TreeSet<TrainDeparture> onTrack = trackIndex.get(track);
+    if (onTrack == null) {
+      return null;
+    }
+
+    int window = getDwellWindow();
+    TrainDeparture lower = TrainDeparture.probe(minute - window, -1);
+    TrainDeparture upper = TrainDeparture.probe(minute + window + 1, -1);
+    for (TrainDeparture occupant : onTrack.subSet(lower, true, upper, false)) {
+      if (!ignored.contains(occupant.getTrainNumber())) {
+        return occupant;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the tracks from 1 to numberOfTracks that no departure occupies at the given minute.
+   *
+   * @param minute the departure time with delay in epoch minutes
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   */
+  ArrayList<Integer> findFreeTracks(long minute, int numberOfTracks) {
+    ArrayList<Integer> freeTracks = new ArrayList<>();
+    for (int track = 1; track <= numberOfTracks; track++) {
+      if (findOccupant(track, minute, Set.of()) == null) {
+        freeTracks.add(track);
+      }
+    }
+    return freeTracks;
+  }
+
+  /**
+   * Checks that departures do not conflict with other departures on their track after a batch of
+   * operations. Every operation is applied to every departure, so the departures end up on the
+   * track of the last track change, or stay on their own track if the batch does not change it,
+   * with the delay of every delay operation added. Departures with a track are checked against the
+   * departures already on their track, and against the departures of the batch on the same track.
+   * Nothing is checked if no dwell window is set.
+   *
+   * @param departures the departures stored in the register, without duplicates
+   * @param operations the operations to apply, without a delete
+   * @throws IllegalArgumentException if a departure would conflict with another departure
+   */
+  void checkConflicts(ArrayList<TrainDeparture> departures, List<BatchOperation> operations) {
+    if (dwellMinutes == NO_DWELL) {
+      return;
+    }
+
+    int newTrack = -1;
+    int addedDelay = 0;
+    for (BatchOperation operation : operations) {
+      if (operation.isTrackChange()) {
+        newTrack = operation.getValue();
+      } else if (operation.isDelay()) {
+        addedDelay += operation.getValue();
+      }
+    }
+    if (newTrack == -1 && addedDelay == 0) {
+      return;
+    }
+
+    int track = newTrack;
+    int delay = addedDelay;
+    checkMoves(
+        departures,
+        trainDeparture -> track == -1 ? trainDeparture.getTrack() : track,
+        trainDeparture -> trainDeparture.getDelayedEpochMinute() + delay);
+  }
+
+  /**
+   * Checks that departures do not conflict with other departures on their track after a different
+   * delay has been added to each of them. The departures stay on their own track. Nothing is
+   * checked if no dwell window is set.
+   *
+   * @param addedDelays the delay to add to each departure stored in the register, in minutes
+   * @throws IllegalArgumentException if a departure would conflict with another departure
+   */
+  void checkDelays(Map<TrainDeparture, Integer> addedDelays) {
+    if (dwellMinutes == NO_DWELL) {
+      return;
+    }
+
+    checkMoves(
+        new ArrayList<>(addedDelays.keySet()),
+        TrainDeparture::getTrack,
+        trainDeparture -> trainDeparture.getDelayedEpochMinute() + addedDelays.get(trainDeparture));
+  }
+
+  /**
+   * Checks that departures moved to new tracks and times do not conflict with the departures
+   * already on their track, or with each other. Departures without a track are not checked.
+   *
+   * @param departures the moved departures, without duplicates
+   * @param newTrack returns the track a departure is moved to
+   * @param newMinute returns the departure time with delay a departure is moved to, in epoch
+   *     minutes
+   * @throws IllegalArgumentException if a departure would conflict with another departure
+   */
+  private void checkMoves(
+      List<TrainDeparture> departures,
+      ToIntFunction<TrainDeparture> newTrack,
+      ToLongFunction<TrainDeparture> newMinute) {
+    HashSet<Integer> moved = new HashSet<>();
+    departures.forEach(trainDeparture -> moved.add(trainDeparture.getTrainNumber()));
+
+    HashMap<Integer, ArrayList<TrainDeparture>> byTrack = new HashMap<>();
+    for (TrainDeparture trainDeparture : departures) {
+      int track = newTrack.applyAsInt(trainDeparture);
+      if (track == 0) {
+        continue;
+      }
+      TrainDeparture occupant = findOccupant(track, newMinute.applyAsLong(trainDeparture), moved);
+      if (occupant != null) {
+        throw trackConflict(track, trainDeparture.getTrainNumber(), occupant.getTrainNumber());
+      }
+      byTrack.computeIfAbsent(track, key -> new ArrayList<>()).add(trainDeparture);
+    }
+
+    Comparator<TrainDeparture> byNewMinute =
+        Comparator.comparingLong(newMinute).thenComparingInt(TrainDeparture::getTrainNumber);
+    byTrack.forEach(
+        (track, onTrack) -> {
+          TrainDeparture[] byMinute = onTrack.toArray(new TrainDeparture[0]);
+          Arrays.sort(byMinute, byNewMinute);
+          for (int i = 1; i < byMinute.length; i++) {
+            long gap = newMinute.applyAsLong(byMinute[i]) - newMinute.applyAsLong(byMinute[i - 1]);
+            if (gap <= dwellMinutes) {
+              throw trackConflict(
+                  track, byMinute[i].getTrainNumber(), byMinute[i - 1].getTrainNumber());
+            }
+          }
+        });
+  }
+
+  /**
+   * Creates the exception for a track conflict.
+   *
+   * @param track the track
+   * @param trainNumber the train number of the departure that was moved to the track
+   * @param occupant the train number of the departure it conflicts with
+   * @return the exception
+   */
+  private static IllegalArgumentException trackConflict(int track, int trainNumber, int occupant) {
+    return new IllegalArgumentException(
+        "Train " + trainNumber + " conflicts with train " + occupant + " on track " + track);
+  }
+}
@@ -1,6 +1,8 @@
 package edu.ntnu.stud.model;
 
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 
@@ -11,19 +13,35 @@ import java.util.ArrayList;
  *
  * <p>The TrainDeparture class represents a train departure with its departure time, line, train
  * number, destination, track, and delay.
+ *
+ * <p>Times are stored with minute resolution as primitive epoch minutes, the number of minutes
+ * since midnight at the start of {@link LocalDate#EPOCH}, and the departure time with delay is
+ * precomputed whenever the delay changes. A delay that moves a departure past midnight simply gives
+ * a later epoch minute, so departures on different service days are ordered correctly, and
+ * comparing departures does not allocate. The {@link LocalTime}, {@link LocalDateTime} and {@link
+ * Duration} getters are adapters over the minutes. They and the comparisons only read the values
+ * through the getters, so {@link ColumnarTrainRegister} can hand out views over its columns that
+ * override the getters.
+ *
+ * <p>The track and the delay can only be changed from within the package, since the {@link
+ * TrainRegister} indexes departures by them. Outside the package a departure is changed through the
+ * register.
  */
 public class TrainDeparture implements Comparable<TrainDeparture> {
-  private LocalTime departureTime;
+  private long departureMinute;
   private String line;
   private int trainNumber;
   private String destination;
   private int track;
-  private Duration delay;
+  private int delayMinutes;
+  private long delayedMinute;
 
-  private static final int MAX_TRAIN_NUMBER = 9999;
+  static final int MAX_TRAIN_NUMBER = 9999;
+  static final int MINUTES_PER_DAY = 24 * 60;
 
   /**
-   * Adds a new item to the item register.
+   * Adds a new item to the item register. The departure is scheduled on {@link LocalDate#EPOCH},
+   * the day the clock of a new register starts on.
    *
    * @param departureTime the departure time of the train
    * @param line the line of the train
@@ -41,6 +59,34 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
       String destination,
       int track,
       Duration delay) {
+    this(
+        departureTime == null ? null : LocalDateTime.of(LocalDate.EPOCH, departureTime),
+        line,
+        trainNumber,
+        destination,
+        track,
+        delay);
+  }
+
+  /**
+   * Adds a new item to the item register, scheduled on the given date.
+   *
+   * @param departureTime the date and time the train is scheduled to depart
+   * @param line the line of the train
+   * @param trainNumber the train number
+   * @param destination the destination of the train
+   * @param track the track of the train
+   * @param delay the delay of the train
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   * @throws NullPointerException if any of the arguments are null
+   */
+  public TrainDeparture(
+      LocalDateTime departureTime,
+      String line,
+      int trainNumber,
+      String destination,
+      int track,
+      Duration delay) {
     setDepartureTime(departureTime);
     setLine(line);
     setTrainNumber(trainNumber);
@@ -49,25 +95,132 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
     setDelay(delay);
   }
 
+  /**
+   * Constructs a departure without values, for probes, see {@link #probe(long, int)}, and for
+   * subclasses that read their values from elsewhere by overriding the getters.
+   */
+  TrainDeparture() {}
+
+  /**
+   * Creates a departure that is only used as a bound when searching the time ordered indexes of the
+   * register. The train number is not validated, so -1 gives a bound before every departure leaving
+   * at the given minute.
+   *
+   * @param epochMinute the departure time with delay in epoch minutes
+   * @param trainNumber the train number, used as tie-breaker
+   * @return the probe departure
+   */
+  static TrainDeparture probe(long epochMinute, int trainNumber) {
+    TrainDeparture probe = new TrainDeparture();
+    probe.departureMinute = epochMinute;
+    probe.delayedMinute = epochMinute;
+    probe.trainNumber = trainNumber;
+    return probe;
+  }
+
+  /**
+   * Constructs a copy of the given train departure.
+   *
+   * @param other the train departure to copy
+   */
+  TrainDeparture(TrainDeparture other) {
+    this.departureMinute = other.getDepartureEpochMinute();
+    this.line = other.getLine();
+    this.trainNumber = other.getTrainNumber();
+    this.destination = other.getDestination();
+    this.track = other.getTrack();
+    this.delayMinutes = other.getDelayMinutes();
+    this.delayedMinute = other.getDelayedEpochMinute();
+  }
+
   public LocalTime getDepartureTime() {
-    return departureTime;
+    return LocalTime.ofSecondOfDay(getDepartureMinute() * 60L);
   }
 
   public LocalTime getDepartureTimeWithDelay() {
-    return departureTime.plus(delay);
+    return LocalTime.ofSecondOfDay(getDelayedMinuteOfDay() * 60L);
+  }
+
+  public LocalDateTime getDepartureDateTime() {
+    return toDateTime(getDepartureEpochMinute());
+  }
+
+  public LocalDateTime getDepartureDateTimeWithDelay() {
+    return toDateTime(getDelayedEpochMinute());
   }
 
   /**
-   * Sets the departure time of the train.
+   * Returns the scheduled departure time as minutes after midnight on the day it is scheduled.
+   *
+   * @return the scheduled departure time in minutes after midnight
+   */
+  public int getDepartureMinute() {
+    return Math.floorMod(getDepartureEpochMinute(), MINUTES_PER_DAY);
+  }
+
+  public long getDepartureEpochMinute() {
+    return departureMinute;
+  }
+
+  public long getDelayedEpochMinute() {
+    return delayedMinute;
+  }
+
+  /**
+   * Returns the departure time with delay as minutes after midnight. Wraps around like {@link
+   * #getDepartureTimeWithDelay()} if the delay moves the departure past midnight.
+   *
+   * @return the departure time with delay in minutes after midnight
+   */
+  public int getDelayedMinuteOfDay() {
+    return Math.floorMod(getDelayedEpochMinute(), MINUTES_PER_DAY);
+  }
+
+  /**
+   * Checks if the delay moves the departure past midnight, to a later day than it was scheduled.
+   *
+   * @return true if the departure with delay is on a later day, false otherwise
+   */
+  public boolean isDelayedPastMidnight() {
+    return Math.floorDiv(getDelayedEpochMinute(), MINUTES_PER_DAY)
+        > Math.floorDiv(getDepartureEpochMinute(), MINUTES_PER_DAY);
+  }
+
+  /**
+   * Converts a date and time to epoch minutes. Seconds are ignored.
+   *
+   * @param dateTime the date and time
+   * @return the number of whole minutes since midnight at the start of {@link LocalDate#EPOCH}
+   */
+  static long toEpochMinute(LocalDateTime dateTime) {
+    return dateTime.toLocalDate().toEpochDay() * MINUTES_PER_DAY
+        + dateTime.getHour() * 60
+        + dateTime.getMinute();
+  }
+
+  /**
+   * Converts epoch minutes to a date and time.
+   *
+   * @param epochMinute the number of minutes since midnight at the start of {@link LocalDate#EPOCH}
+   * @return the date and time
+   */
+  static LocalDateTime toDateTime(long epochMinute) {
+    return LocalDateTime.of(
+        LocalDate.ofEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY)),
+        LocalTime.ofSecondOfDay(Math.floorMod(epochMinute, MINUTES_PER_DAY) * 60L));
+  }
+
+  /**
+   * Sets the departure time of the train. Seconds are ignored.
    *
    * @param departureTime the departure time to be set
    * @throws IllegalArgumentException if the departure time is null
    */
-  private void setDepartureTime(LocalTime departureTime) {
+  private void setDepartureTime(LocalDateTime departureTime) {
     if (departureTime == null) {
       throw new NullPointerException("Departure time cannot be null");
     }
-    this.departureTime = departureTime;
+    this.departureMinute = toEpochMinute(departureTime);
   }
 
   public String getLine() {
@@ -135,7 +288,7 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
    * @param track the track number to be set
    * @throws IllegalArgumentException if the track number is negative
    */
-  public void setTrack(int track) {
+  void setTrack(int track) {
     if (track < 0) {
       throw new IllegalArgumentException("Track cannot be negative");
     }
@@ -143,23 +296,28 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
   }
 
   public Duration getDelay() {
-    return delay;
+    return Duration.ofMinutes(getDelayMinutes());
+  }
+
+  public int getDelayMinutes() {
+    return delayMinutes;
   }
 
   /**
-   * Sets the delay for the train departure.
+   * Sets the delay for the train departure. The delay is truncated to whole minutes.
    *
    * @param delay the delay duration
    * @throws IllegalArgumentException if the delay is negative
    */
-  public void setDelay(Duration delay) {
+  void setDelay(Duration delay) {
     if (delay == null) {
       throw new NullPointerException("Delay cannot be null");
     }
     if (delay.isNegative()) {
       throw new IllegalArgumentException("Delay cannot be negative");
     }
-    this.delay = delay;
+    this.delayMinutes = Math.toIntExact(delay.toMinutes());
+    this.delayedMinute = departureMinute + delayMinutes;
   }
 
   /**
@@ -167,12 +325,13 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
    *
    * @param minutes the number of minutes to add to the delay
    */
-  public void addDelay(int minutes) {
+  void addDelay(int minutes) {
     if (minutes < 0) {
       throw new IllegalArgumentException("Delay cannot be negative");
     }
 
-    delay = delay.plusMinutes(minutes);
+    delayMinutes = Math.addExact(delayMinutes, minutes);
+    delayedMinute = departureMinute + delayMinutes;
   }
 
   /**
@@ -186,13 +345,24 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
     return list;
   }
 
+  /**
+   * Compares departures by date and time of departure with delay. Departures leaving at the same
+   * time are ordered by train number, so the ordering only treats departures with the same train
+   * number as equal, like {@link #equals(Object)}.
+   *
+   * @param other the train departure to compare to
+   * @return a negative integer, zero, or a positive integer as this departure leaves before, at the
+   *     same time as, or after the other departure
+   */
   @Override
   public int compareTo(TrainDeparture other) {
-    return this.getDepartureTimeWithDelay().compareTo(other.getDepartureTimeWithDelay());
+    int byTime = Long.compare(getDelayedEpochMinute(), other.getDelayedEpochMinute());
+    return byTime != 0 ? byTime : Integer.compare(getTrainNumber(), other.getTrainNumber());
   }
 
   /**
-   * Indicates whether some other object is "equal to" this one. Asumes trainNumber is unique.
+   * Indicates whether some other object is "equal to" this one. Asumes trainNumber is unique, so
+   * any two departures with the same train number are equal, whatever their class.
    *
    * @param obj the reference object with which to compare
    * @return true if this object is the same as the obj argument; false otherwise
@@ -202,14 +372,21 @@ public class TrainDeparture implements Comparable<TrainDeparture> {
     if (this == obj) {
       return true;
     }
-    if (obj == null) {
-      return false;
-    }
-    if (getClass() != obj.getClass()) {
+    if (!(obj instanceof TrainDeparture other)) {
       return false;
     }
 
-    TrainDeparture other = (TrainDeparture) obj;
-    return trainNumber == other.trainNumber;
+    return getTrainNumber() == other.getTrainNumber();
+  }
+
+  /**
+   * Returns a hash code consistent with {@link #equals(Object)}, which only considers the train
+   * number. Makes it safe to use TrainDeparture in hashed collections.
+   *
+   * @return the hash code of the train number
+   */
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(getTrainNumber());
   }
 }
\ No newline at end of file
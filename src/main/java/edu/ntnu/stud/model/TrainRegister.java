@@ -1,9 +1,24 @@
 package edu.ntnu.stud.model;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -13,23 +28,103 @@ import java.util.stream.Collectors;
  *
  * <p>TrainRegister represents a register of train departures. It provides methods to add, delete,
  * and modify train departures, as well as retrieve information about the train departures.
+ *
+ * <p>Train departures are indexed by train number, so lookups and duplicate checks do not have to
+ * scan the list of departures. They are also indexed by destination. Destinations are
+ * dictionary-encoded, so the destination index is a list of buckets addressed by destination id.
+ * The destination names are also kept in a {@link DestinationTrie}, so destinations can be found by
+ * prefix, or by similarity when a name is misspelled, ignoring case and accents.
+ *
+ * <p>The train departures and each destination bucket are kept ordered by departure time with
+ * delay, with the train number as tie-breaker (see {@link TrainDeparture#compareTo}). Adding a
+ * departure or adding delay re-positions it in O(log n), so the register never has to be sorted.
+ * Because the position depends on the delay, the setters for the track and the delay of {@link
+ * TrainDeparture} are package-private, and the departures the register returns can only be changed
+ * through the register.
+ *
+ * <p>The clock of the register is a date and time, and runs on across midnight. Departures are
+ * ordered by their date and time, so departures delayed past midnight, or scheduled on a later
+ * service day, are ordered after the departures of the current day without special cases. Methods
+ * that take only a time use the current date of the clock.
+ *
+ * <p>Departures with a track are also indexed by track, ordered by departure time with delay, in a
+ * {@link TrackOccupancy}. A departure occupies its track for a dwell window before it leaves. Once
+ * a dwell window is set with {@link #setDwellMinutes(int)}, a track change or delay that makes a
+ * departure occupy its track at the same time as another departure is rejected. The track index
+ * only has to be searched around the departure time, so checking a departure costs O(log n).
+ *
+ * <p>Recurring services are added as {@link ServiceTemplate}s. Their departures are not all created
+ * up front. The next departure of each template waits in a priority queue ordered by departure
+ * time, and whenever the clock moves, the departures within the service horizon ahead of the clock
+ * are taken from the queue and added to the register. Departed trains leave the register as usual,
+ * so the memory used by templates is proportional to the horizon, not to the length of the
+ * timetable. If the clock jumps forward, the departures it jumped past are never added.
+ *
+ * <p>Criteria can be combined in a {@link DepartureQuery}. {@link #findDepartures(DepartureQuery,
+ * int)} plans the query with a {@link DepartureQueryPlanner}: every index is ordered by departure
+ * time with delay, so it reads from the smallest index that covers a criterion of the query,
+ * narrowed to the time window of the query, and checks the other criteria on each departure as it
+ * is read. Results are returned one {@link DeparturePage} at a time.
+ *
+ * <p>Several changes can be applied to many departures at once with {@link #applyBatch(Collection,
+ * List)}, which validates all train numbers through the index before changing anything.
+ *
+ * <p>Every change to the register increases its version. {@link #getSnapshot()} returns an
+ * immutable {@link DepartureSnapshot} of the register, which is only replaced when the version has
+ * changed since the last snapshot, and then only copies the departures that changed.
+ *
+ * <p>Every successful change can also be recorded in a {@link MutationLog}, for example a journal
+ * that makes the register durable, see {@link #setMutationLog(MutationLog)}.
+ *
+ * <p>Other parts of the application can follow the changes as {@link RegisterEvent}s, by
+ * subscribing a {@link RegisterListener} with {@link #subscribe(RegisterListener, int, Executor)}.
+ * Events are queued without blocking, and delivered in batches on the executor of each listener.
  */
-public class TrainRegister {
-  private final ArrayList<TrainDeparture> trainDepartures;
-  private LocalTime clock;
+public class TrainRegister implements DepartureRegister {
+  private static final int DEFAULT_SERVICE_HORIZON_MINUTES = 120;
+  private static final int MIN_CHANGES_BEFORE_FULL_SNAPSHOT = 64;
+
+  private final TreeSet<TrainDeparture> trainDepartures;
+  private final HashMap<Integer, TrainDeparture> trainNumberIndex;
+  private final StringDictionary destinations;
+  private final ArrayList<TreeSet<TrainDeparture>> destinationIndex;
+  private final DestinationTrie destinationTrie;
+  private final TrackOccupancy trackOccupancy;
+  private LocalDateTime clock;
+  private long version;
+  private DepartureSnapshot snapshot;
+  private final HashSet<Integer> changedSinceSnapshot;
+  private MutationLog mutationLog;
+  private final CopyOnWriteArrayList<Subscription> subscriptions;
+  private final ArrayList<ServiceTemplate> serviceTemplates;
+  private final PriorityQueue<PendingService> pendingServices;
+  private Map<ServiceTemplate, LocalDateTime> nextServiceDepartures;
+  private int serviceHorizonMinutes;
 
+  /** Constructs an empty train register with the clock set to 00:00 on {@link LocalDate#EPOCH}. */
   public TrainRegister() {
-    trainDepartures = new ArrayList<>();
-    clock = LocalTime.of(0, 0);
+    trainDepartures = new TreeSet<>();
+    trainNumberIndex = new HashMap<>();
+    destinations = new StringDictionary();
+    destinationIndex = new ArrayList<>();
+    destinationTrie = new DestinationTrie();
+    trackOccupancy = new TrackOccupancy();
+    clock = LocalDate.EPOCH.atStartOfDay();
+    changedSinceSnapshot = new HashSet<>();
+    subscriptions = new CopyOnWriteArrayList<>();
+    serviceTemplates = new ArrayList<>();
+    pendingServices = new PriorityQueue<>();
+    serviceHorizonMinutes = DEFAULT_SERVICE_HORIZON_MINUTES;
   }
 
   /**
-   * Returns the list of train departures. Used mainly by the test class.
+   * Returns a copy of the list of train departures, ordered by departure time with delay. Used
+   * mainly by the test class.
    *
    * @return the list of train departures
    */
   public ArrayList<TrainDeparture> getTrainDepartures() {
-    return trainDepartures;
+    return new ArrayList<>(trainDepartures);
   }
 
   /**
@@ -37,36 +132,321 @@ public class TrainRegister {
    *
    * @return the number of trains
    */
+  @Override
   public int getNumTrains() {
     return trainDepartures.size();
   }
 
+  @Override
   public LocalTime getClock() {
+    return clock.toLocalTime();
+  }
+
+  @Override
+  public LocalDateTime getClockDateTime() {
     return clock;
   }
 
   /**
-   * Sets the clock time of the train register.
+   * Returns the version of the register. The version increases on every change to the register.
+   *
+   * @return the version of the register
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns an immutable snapshot of the register. The same snapshot is returned until the register
+   * changes, so repeated reads of an unchanged register do not copy anything. After a change, the
+   * new snapshot is built on the previous one with copies of only the departures that changed, see
+   * {@link DepartureSnapshot}.
+   *
+   * @return a snapshot of the current version of the register
+   */
+  public DepartureSnapshot getSnapshot() {
+    snapshot = peekSnapshot();
+    changedSinceSnapshot.clear();
+    return snapshot;
+  }
+
+  /**
+   * Returns an immutable snapshot of the current version of the register without changing the
+   * register, unlike {@link #getSnapshot()}, which keeps the snapshot to build the next one on. The
+   * snapshot is built the same way, but it is not kept, so it can be taken while a change is being
+   * made, such as by a {@link MutationLog}, without changing the snapshots the register hands out
+   * later.
+   *
+   * @return a snapshot of the current version of the register
+   */
+  public DepartureSnapshot peekSnapshot() {
+    if (snapshot != null && snapshot.getVersion() == version) {
+      return snapshot;
+    }
+    if (snapshot == null || isFullSnapshotDue(Math.max(1, changedSinceSnapshot.size()))) {
+      return new DepartureSnapshot(
+          version,
+          clock,
+          trainDepartures,
+          getNextServiceDepartures(),
+          serviceHorizonMinutes,
+          trackOccupancy.getDwellMinutes());
+    }
+
+    HashMap<Integer, TrainDeparture> changes = new HashMap<>();
+    for (int trainNumber : changedSinceSnapshot) {
+      TrainDeparture current = trainNumberIndex.get(trainNumber);
+      changes.put(trainNumber, current == null ? null : new TrainDeparture(current));
+    }
+    return new DepartureSnapshot(
+        version,
+        clock,
+        trainDepartures.size(),
+        snapshot,
+        changes,
+        getNextServiceDepartures(),
+        serviceHorizonMinutes,
+        trackOccupancy.getDwellMinutes());
+  }
+
+  /**
+   * Sets the log that records every later change to the register. Changes made before the log is
+   * set are not recorded.
+   *
+   * @param mutationLog the log to record changes in, or null to stop recording
+   */
+  public void setMutationLog(MutationLog mutationLog) {
+    this.mutationLog = mutationLog;
+  }
+
+  /**
+   * Subscribes a listener to the changes made to the register from now on. Each listener has its
+   * own bounded queue of events, so a slow listener never delays the thread that changes the
+   * register or other listeners. See {@link Subscription}.
+   *
+   * @param listener the listener to deliver events to
+   * @param capacity the number of events that can be queued before events are dropped
+   * @param executor the executor that calls the listener
+   * @return the subscription, which can be cancelled
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  public Subscription subscribe(RegisterListener listener, int capacity, Executor executor) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+
+    Subscription subscription = new Subscription(this, listener, capacity, executor);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  /**
+   * Removes a subscription, see {@link Subscription#cancel()}.
+   *
+   * @param subscription the subscription to remove
+   */
+  void unsubscribe(Subscription subscription) {
+    subscriptions.remove(subscription);
+  }
+
+  /**
+   * Sets how many minutes a departure occupies its track before it leaves, and starts checking
+   * track changes and delays for conflicts. A departure at hh:mm occupies its track from
+   * dwellMinutes before hh:mm up to and including hh:mm, so with a dwell window of 0 only
+   * departures leaving at the same minute conflict. A delay is checked when the departure has a
+   * track, since it moves the departure within the track. Departures already in the register are
+   * not checked.
+   *
+   * @param dwellMinutes the dwell window in minutes
+   * @throws IllegalArgumentException if the dwell window is negative
+   */
+  public void setDwellMinutes(int dwellMinutes) {
+    if (dwellMinutes < 0) {
+      throw new IllegalArgumentException("Dwell time cannot be negative");
+    }
+    trackOccupancy.setDwellMinutes(dwellMinutes);
+    version++;
+    if (mutationLog != null) {
+      mutationLog.dwellMinutesSet(dwellMinutes);
+    }
+  }
+
+  /**
+   * Returns the track index of the register, which the track assignment engine reads.
+   *
+   * @return the track index
+   */
+  TrackOccupancy getTrackOccupancy() {
+    return trackOccupancy;
+  }
+
+  /**
+   * Returns the tracks from 1 to numberOfTracks that no departure occupies at the given time. Each
+   * track is checked in O(log n) through the track index. Uses a dwell window of 0 if none is set.
+   *
+   * @param time the time to find free tracks at
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   * @throws IllegalArgumentException if the number of tracks is negative
+   */
+  public ArrayList<Integer> findFreeTracks(LocalTime time, int numberOfTracks) {
+    return findFreeTracks(onClockDate(time), numberOfTracks);
+  }
+
+  /**
+   * Returns the tracks from 1 to numberOfTracks that no departure occupies at the given date and
+   * time. Uses a dwell window of 0 if none is set.
+   *
+   * @param dateTime the date and time to find free tracks at
+   * @param numberOfTracks the number of tracks at the station
+   * @return the free tracks, in ascending order
+   * @throws IllegalArgumentException if the number of tracks is negative
+   */
+  public ArrayList<Integer> findFreeTracks(LocalDateTime dateTime, int numberOfTracks) {
+    if (numberOfTracks < 0) {
+      throw new IllegalArgumentException("Number of tracks cannot be negative");
+    }
+
+    return trackOccupancy.findFreeTracks(TrainDeparture.toEpochMinute(dateTime), numberOfTracks);
+  }
+
+  /**
+   * Sets the clock time of the train register, on the current date of the clock. Use {@link
+   * #setClock(LocalDateTime)} or {@link #advanceClock(Duration)} to move the clock past midnight.
    *
    * @param clock the new clock time to be set
    * @throws IllegalArgumentException if the new time is before the current time
    */
+  @Override
   public void setClock(LocalTime clock) {
+    setClock(onClockDate(clock));
+  }
+
+  /**
+   * Advances the clock of the train register, across midnight if needed.
+   *
+   * @param duration how much to advance the clock
+   * @throws IllegalArgumentException if the duration is negative
+   */
+  public void advanceClock(Duration duration) {
+    if (duration.isNegative()) {
+      throw new IllegalArgumentException("New time cannot be before current time");
+    }
+    setClock(clock.plus(duration));
+  }
+
+  /**
+   * Sets the date and time of the clock of the train register.
+   *
+   * @param clock the new date and time to be set
+   * @throws IllegalArgumentException if the new time is before the current time
+   */
+  @Override
+  public void setClock(LocalDateTime clock) {
     if (clock.isBefore(this.clock)) {
       throw new IllegalArgumentException("New time cannot be before current time");
     }
 
-    this.clock = clock;
+    if (!clock.equals(this.clock)) {
+      this.clock = clock;
+      version++;
+      if (mutationLog != null) {
+        mutationLog.clockSet(clock);
+      }
+      publish(RegisterEvent.Type.CLOCK_SET, List.of());
+      materializeServices();
+    }
+  }
+
+  /**
+   * Adds a recurring service to the register. The departures of the service that leave from the
+   * current time and within the service horizon are added at once, and later departures are added
+   * as the clock moves. A departure whose train number is already in the register when it is added,
+   * for example because the departure of the day before is still delayed, is skipped.
+   *
+   * @param serviceTemplate the service to add
+   * @throws IllegalArgumentException if the train numbers of the service overlap with those of a
+   *     service already in the register
+   */
+  public void addServiceTemplate(ServiceTemplate serviceTemplate) {
+    addServiceTemplate(serviceTemplate, clock);
+  }
+
+  /**
+   * Adds a recurring service to the register, starting with its first departure at or after the
+   * given time, or the current time if that is later. Departures of the service before then are
+   * never added, which lets a register restored from a file continue a service where it left off.
+   * See {@link #addServiceTemplate(ServiceTemplate)}.
+   *
+   * @param serviceTemplate the service to add
+   * @param from the date and time to start the service from
+   * @throws IllegalArgumentException if the train numbers of the service overlap with those of a
+   *     service already in the register
+   */
+  public void addServiceTemplate(ServiceTemplate serviceTemplate, LocalDateTime from) {
+    for (ServiceTemplate other : serviceTemplates) {
+      if (other.overlaps(serviceTemplate)) {
+        throw new IllegalArgumentException("Train numbers overlap with another service");
+      }
+    }
+
+    long start = Math.max(toEpochMinuteRoundedUp(from), toEpochMinuteRoundedUp(clock));
+    long next = serviceTemplate.nextDepartureMinute(start);
+    serviceTemplates.add(serviceTemplate);
+    pendingServices.add(new PendingService(serviceTemplate, next));
+    nextServiceDepartures = null;
+    version++;
+    if (mutationLog != null) {
+      mutationLog.serviceAdded(serviceTemplate, TrainDeparture.toDateTime(next));
+    }
+    materializeServices();
+  }
+
+  /**
+   * Returns the recurring services of the register.
+   *
+   * @return an unmodifiable list of the services, in the order they were added
+   */
+  public List<ServiceTemplate> getServiceTemplates() {
+    return Collections.unmodifiableList(serviceTemplates);
+  }
+
+  /**
+   * Sets how far ahead of the clock the departures of recurring services are added. The default is
+   * two hours. A longer horizon adds the departures that now fall within it at once.
+   *
+   * @param horizon the service horizon, at least one minute and at most one day, since the train
+   *     numbers of a service repeat every day
+   * @throws IllegalArgumentException if the horizon is shorter than a minute or longer than a day
+   */
+  public void setServiceHorizon(Duration horizon) {
+    if (horizon.toMinutes() < 1 || horizon.toMinutes() > TrainDeparture.MINUTES_PER_DAY) {
+      throw new IllegalArgumentException("Horizon must be between one minute and one day");
+    }
+    serviceHorizonMinutes = (int) horizon.toMinutes();
+    version++;
+    if (mutationLog != null) {
+      mutationLog.serviceHorizonSet(horizon);
+    }
+    materializeServices();
   }
 
   /**
    * Departs trains from the train register. Deletes train departures that are scheduled before the
-   * current time. Uses {@link #deleteDeparturesBeforeTime(LocalTime)}.
+   * current time. Uses {@link #deleteDeparturesBeforeTime(LocalDateTime)}.
    *
    * @return the list of deleted train departures
    */
+  @Override
   public ArrayList<TrainDeparture> departTrains() {
     ArrayList<TrainDeparture> deletedDepartures = deleteDeparturesBeforeTime(clock);
+    if (!deletedDepartures.isEmpty()) {
+      version++;
+      if (mutationLog != null) {
+        mutationLog.trainsDeparted();
+      }
+      publish(RegisterEvent.Type.DEPARTED, trainNumbersOf(deletedDepartures));
+    }
     return deletedDepartures;
   }
 
@@ -76,12 +456,65 @@ public class TrainRegister {
    * @param trainDeparture the train departure to be added
    * @throws IllegalArgumentException if the train number already exists in the register
    */
+  @Override
   public void addTrainDeparture(TrainDeparture trainDeparture) {
     if (trainNumberExists(trainDeparture)) {
       throw new IllegalArgumentException("Train number already exists");
     }
 
-    trainDepartures.add(trainDeparture);
+    addToIndexes(trainDeparture);
+    version++;
+    if (mutationLog != null) {
+      mutationLog.departuresAdded(List.of(trainDeparture));
+    }
+    publish(RegisterEvent.Type.ADDED, List.of(trainDeparture.getTrainNumber()));
+  }
+
+  /**
+   * Adds several train departures to the train register as one change. Meant for bulk loading.
+   * Departures with a train number that already exists in the register, or earlier in the list, are
+   * not added.
+   *
+   * @param trainDepartures the train departures to be added
+   * @return the train departures that were not added because their train number already exists
+   * @throws IllegalArgumentException if the list contains null elements
+   */
+  public ArrayList<TrainDeparture> addTrainDepartures(Collection<TrainDeparture> trainDepartures) {
+    if (trainDepartures.stream().anyMatch(trainDeparture -> trainDeparture == null)) {
+      throw new IllegalArgumentException("One or more train departures are null.");
+    }
+    return addTrainDepartures(trainDepartures, true);
+  }
+
+  /**
+   * Adds several train departures to the train register as one change, skipping departures with a
+   * train number that already exists.
+   *
+   * @param trainDepartures the train departures to be added
+   * @param logged whether the change is recorded in the mutation log
+   * @return the train departures that were not added because their train number already exists
+   */
+  private ArrayList<TrainDeparture> addTrainDepartures(
+      Collection<TrainDeparture> trainDepartures, boolean logged) {
+    ArrayList<TrainDeparture> added = new ArrayList<>(trainDepartures.size());
+    ArrayList<TrainDeparture> rejected = new ArrayList<>();
+    for (TrainDeparture trainDeparture : trainDepartures) {
+      if (trainNumberExists(trainDeparture)) {
+        rejected.add(trainDeparture);
+      } else {
+        addToIndexes(trainDeparture);
+        added.add(trainDeparture);
+      }
+    }
+
+    if (!added.isEmpty()) {
+      version++;
+      if (logged && mutationLog != null) {
+        mutationLog.departuresAdded(added);
+      }
+      publish(RegisterEvent.Type.ADDED, trainNumbersOf(added));
+    }
+    return rejected;
   }
 
   /**
@@ -90,23 +523,193 @@ public class TrainRegister {
    * @param trainNumber the train number to search for
    * @return the TrainDeparture object with the given train number, or null if not found
    */
+  @Override
   public TrainDeparture findDepartureByTrainNumber(int trainNumber) {
-    return trainDepartures.stream()
-        .filter(trainDeparture -> trainDeparture.getTrainNumber() == trainNumber)
-        .findFirst()
-        .orElse(null);
+    return trainNumberIndex.get(trainNumber);
   }
 
   /**
-   * Retrieves a list of train departures that have the specified destination.
+   * Retrieves the train departures that have the specified destination, ordered by departure time
+   * with delay. Uses the destination index, so the cost depends on the number of departures found
+   * and not on the size of the register.
    *
    * @param destination The destination to filter train departures by.
-   * @return An ArrayList of TrainDeparture objects that have the specified destination.
+   * @return A new ArrayList of the TrainDeparture objects that have the specified destination, so
+   *     the register can be changed while the list is read.
    */
+  @Override
   public ArrayList<TrainDeparture> findDeparturesToDestination(String destination) {
-    return trainDepartures.stream()
-        .filter(trainDeparture -> trainDeparture.getDestination().equals(destination))
-        .collect(Collectors.toCollection(ArrayList::new));
+    return new ArrayList<>(destinationBucket(destination));
+  }
+
+  /**
+   * Returns the destination index bucket of a destination.
+   *
+   * @param destination the destination
+   * @return the departures to the destination in the index, or an empty set if there are none
+   */
+  private NavigableSet<TrainDeparture> destinationBucket(String destination) {
+    int destinationId = destinations.lookup(destination);
+    if (destinationId == StringDictionary.NOT_FOUND) {
+      return Collections.emptyNavigableSet();
+    }
+    return destinationIndex.get(destinationId);
+  }
+
+  /**
+   * Finds the destinations that start with the given prefix, ignoring case and accents. Only
+   * destinations with departures in the register are returned.
+   *
+   * @param prefix the prefix to search for
+   * @return the destinations, in alphabetical order of their normalized name
+   */
+  public List<String> findDestinationsByPrefix(String prefix) {
+    return withDepartures(destinationTrie.findByPrefix(prefix));
+  }
+
+  /**
+   * Finds the destinations within the given edit distance of a name, ignoring case and accents, so
+   * misspelled names can be found. Only destinations with departures in the register are returned.
+   *
+   * @param name the name to search for
+   * @param maxDistance the maximum number of characters that differ
+   * @return the destinations, closest first
+   * @throws IllegalArgumentException if the maximum distance is negative
+   */
+  public List<String> findSimilarDestinations(String name, int maxDistance) {
+    return withDepartures(destinationTrie.findSimilar(name, maxDistance));
+  }
+
+  /**
+   * Retrieves the train departures to any of the given destinations, ordered by departure time with
+   * delay.
+   *
+   * @param destinations the destinations to filter train departures by
+   * @return a new list of the departures
+   */
+  public ArrayList<TrainDeparture> findDeparturesToDestinations(Collection<String> destinations) {
+    ArrayList<TrainDeparture> found = new ArrayList<>();
+    new LinkedHashSet<>(destinations)
+        .forEach(destination -> found.addAll(destinationBucket(destination)));
+    Collections.sort(found);
+    return found;
+  }
+
+  /**
+   * Finds the first page of departures matching a query, ordered by departure time with delay.
+   *
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @return the first page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public DeparturePage findDepartures(DepartureQuery query, int pageSize) {
+    return findDepartures(query, pageSize, null);
+  }
+
+  /**
+   * Finds the page of departures matching a query that follows the given page. The departures are
+   * read from the index chosen by {@link DepartureQueryPlanner}, starting after the previous page
+   * and stopping at the end of the time window, and only departures matching the rest of the query
+   * are kept. Reading stops as soon as the page is full and the next match is found.
+   *
+   * @param query the criteria the departures must match
+   * @param pageSize the maximum number of departures on the page
+   * @param previous the previous page of the same query, or null for the first page. A previous
+   *     page without departures gives the first page again.
+   * @return the page
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public DeparturePage findDepartures(DepartureQuery query, int pageSize, DeparturePage previous) {
+    NavigableSet<TrainDeparture> index =
+        DepartureQueryPlanner.chooseIndex(
+            query, trainDepartures, this::destinationBucket, trackOccupancy::departuresOn);
+    return DepartureQueryPlanner.findPage(index, query, pageSize, previous);
+  }
+
+  /**
+   * Returns the destinations that have departures in the register. Destinations stay in the
+   * dictionary and the trie after their last departure has left.
+   *
+   * @param destinations the destinations to filter
+   * @return the destinations with departures, in the same order
+   */
+  private List<String> withDepartures(List<String> destinations) {
+    return destinations.stream()
+        .filter(destination -> !destinationBucket(destination).isEmpty())
+        .toList();
+  }
+
+  /**
+   * Returns the departures leaving from the given time, up to but not including the given end time,
+   * ordered by departure time with delay. The range is found in the time ordered index, so finding
+   * it costs O(log n), and only the departures in the range are copied. Both times are on the
+   * current date of the clock, so departures delayed past midnight are not included.
+   *
+   * @param from the earliest departure time with delay, inclusive
+   * @param to the latest departure time with delay, exclusive
+   * @return an iterator over a copy of the departures, which does not support remove, so the
+   *     register can be changed while it is read
+   * @throws IllegalArgumentException if from is after to
+   */
+  public Iterator<TrainDeparture> departuresBetween(LocalTime from, LocalTime to) {
+    return departuresBetween(onClockDate(from), onClockDate(to));
+  }
+
+  /**
+   * Returns the departures leaving from the given date and time, up to but not including the given
+   * end, ordered by departure time with delay. The range may span several days.
+   *
+   * @param from the earliest departure time with delay, inclusive
+   * @param to the latest departure time with delay, exclusive
+   * @return an iterator over a copy of the departures, which does not support remove, so the
+   *     register can be changed while it is read
+   * @throws IllegalArgumentException if from is after to
+   */
+  public Iterator<TrainDeparture> departuresBetween(LocalDateTime from, LocalDateTime to) {
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException("From time cannot be after to time");
+    }
+
+    TrainDeparture lower = TrainDeparture.probe(toEpochMinuteRoundedUp(from), -1);
+    TrainDeparture upper = TrainDeparture.probe(toEpochMinuteRoundedUp(to), -1);
+    return List.copyOf(trainDepartures.subSet(lower, true, upper, false)).iterator();
+  }
+
+  /**
+   * Returns the next departures that have not left at the given time, ordered by departure time
+   * with delay. The first departure is found in the time ordered index in O(log n), and at most
+   * limit departures are copied from the index. Which departures have left follows {@link
+   * #departTrains()}. The time is on the current date of the clock, and departures on later days,
+   * including departures delayed past midnight, follow the departures of the day.
+   *
+   * @param after the time to find the next departures after
+   * @param limit the maximum number of departures
+   * @return an iterator over a copy of the departures, which does not support remove, so the
+   *     register can be changed while it is read
+   * @throws IllegalArgumentException if the limit is negative
+   */
+  public Iterator<TrainDeparture> nextDepartures(LocalTime after, int limit) {
+    return nextDepartures(onClockDate(after), limit);
+  }
+
+  /**
+   * Returns the next departures that have not left at the given date and time, ordered by departure
+   * time with delay.
+   *
+   * @param after the date and time to find the next departures after
+   * @param limit the maximum number of departures
+   * @return an iterator over a copy of the departures, which does not support remove, so the
+   *     register can be changed while it is read
+   * @throws IllegalArgumentException if the limit is negative
+   */
+  public Iterator<TrainDeparture> nextDepartures(LocalDateTime after, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit cannot be negative");
+    }
+
+    TrainDeparture lower = TrainDeparture.probe(toEpochMinuteRoundedUp(after), -1);
+    return trainDepartures.tailSet(lower, true).stream().limit(limit).toList().iterator();
   }
 
   /**
@@ -117,10 +720,10 @@ public class TrainRegister {
    * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
    *     train departures that do not exist
    */
+  @Override
   public void deleteTrainDepartures(ArrayList<TrainDeparture> trainDepartures) {
-    validateTrainDeparturesToModify(trainDepartures);
-
-    this.trainDepartures.removeAll(trainDepartures);
+    applyOperations(
+        validateTrainDeparturesToModify(trainDepartures), List.of(BatchOperation.delete()));
   }
 
   /**
@@ -129,28 +732,123 @@ public class TrainRegister {
    *
    * @param trainDepartures the list of train departures to modify
    * @param newTrack the new track number to set for the train departures
-   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
-   *     train departures that do not exist
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains train
+   *     departures that do not exist, or if the track is occupied, see {@link
+   *     #setDwellMinutes(int)}
    */
+  @Override
   public void changeTracks(ArrayList<TrainDeparture> trainDepartures, int newTrack) {
-    validateTrainDeparturesToModify(trainDepartures);
-
-    trainDepartures.forEach(trainDeparture -> trainDeparture.setTrack(newTrack));
+    applyOperations(
+        validateTrainDeparturesToModify(trainDepartures),
+        List.of(BatchOperation.changeTrack(newTrack)));
   }
 
   /**
    * Adds a delay to the specified train departures. Verifies arguments with {@link
-   * #validateTrainDeparturesToModify(ArrayList)}.
+   * #validateTrainDeparturesToModify(ArrayList)}. Each departure is removed from the ordered
+   * indexes before the delay is added, and re-inserted at its new position afterwards.
    *
    * @param trainDepartures the list of train departures to modify
    * @param minutes the number of minutes to add as a delay
-   * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
-   *     train departures that do not exist
+   * @throws IllegalArgumentException if the list is empty, contains null elements, contains train
+   *     departures that do not exist, if the delay is negative, or if the delay makes a departure
+   *     conflict with another departure on its track, see {@link #setDwellMinutes(int)}
+   * @throws ArithmeticException if the delay of a departure would overflow, in which case nothing
+   *     is changed
    */
+  @Override
   public void addDelay(ArrayList<TrainDeparture> trainDepartures, int minutes) {
-    validateTrainDeparturesToModify(trainDepartures);
+    applyOperations(
+        validateTrainDeparturesToModify(trainDepartures),
+        List.of(BatchOperation.addDelay(minutes)));
+  }
 
-    trainDepartures.forEach(trainDeparture -> trainDeparture.addDelay(minutes));
+  /**
+   * Applies one or more operations to the departures with the given train numbers, as one change.
+   * All train numbers are looked up in the index in a single pass before anything is changed, so
+   * either every operation is applied to every departure, or nothing is changed. Departures are
+   * removed from the time ordered indexes once before the operations, and re-inserted once after.
+   *
+   * @param trainNumbers the train numbers of the departures to change. Duplicates are ignored.
+   * @param operations the operations to apply, in order. A delete must be the last operation.
+   * @return the changed departures, or the deleted departures if the batch deletes
+   * @throws IllegalArgumentException if there are no train numbers or operations, if any of them
+   *     are null, if a train number does not exist, if a delete is not the last operation, or if
+   *     the batch moves a departure to a time or track where another departure occupies the track
+   * @throws ArithmeticException if the delay of a departure would overflow, in which case nothing
+   *     is changed
+   */
+  public ArrayList<TrainDeparture> applyBatch(
+      Collection<Integer> trainNumbers, List<BatchOperation> operations) {
+    if (trainNumbers.isEmpty()) {
+      throw new IllegalArgumentException("No train departures available.");
+    }
+
+    ArrayList<TrainDeparture> departures = new ArrayList<>(trainNumbers.size());
+    for (Integer trainNumber : new LinkedHashSet<>(trainNumbers)) {
+      if (trainNumber == null) {
+        throw new IllegalArgumentException("One or more train numbers are null.");
+      }
+      TrainDeparture trainDeparture = trainNumberIndex.get(trainNumber);
+      if (trainDeparture == null) {
+        throw new IllegalArgumentException("Train number " + trainNumber + " does not exist");
+      }
+      departures.add(trainDeparture);
+    }
+
+    applyOperations(departures, operations);
+    return departures;
+  }
+
+  /**
+   * Adds a different delay to each of several departures as one change, such as the delays pushed
+   * on by a {@link DelayPropagationEngine}. Every train number is looked up, every new delay is
+   * checked for overflow, and the new times are checked for track conflicts before anything is
+   * changed, so either every delay is added, or nothing is changed.
+   *
+   * @param addedDelays the delay to add to each departure in minutes, by train number
+   * @return the delayed departures
+   * @throws IllegalArgumentException if there are no delays, if a train number or delay is null, if
+   *     a train number does not exist, if a delay is negative, or if a delay moves a departure to a
+   *     time where another departure occupies its track
+   * @throws ArithmeticException if the delay of a departure would overflow, in which case nothing
+   *     is changed
+   */
+  public ArrayList<TrainDeparture> addDelays(Map<Integer, Integer> addedDelays) {
+    if (addedDelays.isEmpty()) {
+      throw new IllegalArgumentException("No train departures available.");
+    }
+
+    LinkedHashMap<TrainDeparture, Integer> delays = new LinkedHashMap<>();
+    for (Map.Entry<Integer, Integer> entry : addedDelays.entrySet()) {
+      if (entry.getKey() == null || entry.getValue() == null) {
+        throw new IllegalArgumentException("One or more train numbers or delays are null.");
+      }
+      TrainDeparture trainDeparture = trainNumberIndex.get(entry.getKey());
+      if (trainDeparture == null) {
+        throw new IllegalArgumentException("Train number " + entry.getKey() + " does not exist");
+      }
+      if (entry.getValue() < 0) {
+        throw new IllegalArgumentException("Delay cannot be negative");
+      }
+      Math.addExact(trainDeparture.getDelayMinutes(), entry.getValue());
+      delays.put(trainDeparture, entry.getValue());
+    }
+    trackOccupancy.checkDelays(delays);
+
+    ArrayList<TrainDeparture> departures = new ArrayList<>(delays.keySet());
+    departures.forEach(this::removeFromIndexes);
+    delays.forEach(TrainDeparture::addDelay);
+    departures.forEach(this::addToIndexes);
+    version++;
+
+    if (mutationLog != null) {
+      LinkedHashMap<Integer, Integer> logged = new LinkedHashMap<>();
+      delays.forEach((trainDeparture, added) -> logged.put(trainDeparture.getTrainNumber(), added));
+      mutationLog.delaysAdded(Collections.unmodifiableMap(logged));
+    }
+    publish(RegisterEvent.Type.DELAYED, trainNumbersOf(departures));
+    return departures;
   }
 
   /**
@@ -158,6 +856,7 @@ public class TrainRegister {
    *
    * @return ArrayList of TrainDeparture objects with assigned tracks.
    */
+  @Override
   public ArrayList<TrainDeparture> getDeparturesWithTrack() {
     return trainDepartures.stream()
         .filter(trainDeparture -> trainDeparture.getTrack() != 0)
@@ -169,6 +868,7 @@ public class TrainRegister {
    *
    * @return ArrayList of TrainDeparture objects without a track
    */
+  @Override
   public ArrayList<TrainDeparture> getDeparturesWithoutTrack() {
     return trainDepartures.stream()
         .filter(trainDeparture -> trainDeparture.getTrack() == 0)
@@ -176,35 +876,290 @@ public class TrainRegister {
   }
 
   /**
-   * Sorts the train departures in the train register by departure time with delay. Uses compareTo
-   * method in TrainDeparture. The original order of train departures does not matter. Therefore,
-   * the method does not return a sorted copy, but the train departures itself.
+   * Returns the train departures sorted by departure time with delay. The register is always kept
+   * in this order, so nothing has to be sorted and the method only copies the departures.
    *
    * @return A sorted ArrayList of TrainDeparture objects.
    */
+  @Override
   public ArrayList<TrainDeparture> sortByDelayedTime() {
-    Collections.sort(trainDepartures);
-
-    return trainDepartures;
+    return getTrainDepartures();
   }
 
   /**
-   * Validates the train departures to be modified.
+   * Validates the train departures to be modified, and looks up the departures stored in the
+   * register in the same pass.
    *
    * @param trainDepartures the list of train departures to be validated
+   * @return the departures in the register with the same train numbers, without duplicates
    * @throws IllegalArgumentException if the list is empty, contains null elements, or contains
    *     train departures that do not exist
    */
-  private void validateTrainDeparturesToModify(ArrayList<TrainDeparture> trainDepartures) {
+  private ArrayList<TrainDeparture> validateTrainDeparturesToModify(
+      ArrayList<TrainDeparture> trainDepartures) {
     if (trainDepartures.isEmpty()) {
       throw new IllegalArgumentException("No train departures available.");
     }
-    if (trainDepartures.stream().anyMatch(trainDeparture -> trainDeparture == null)) {
-      throw new IllegalArgumentException("One or more train departures are null.");
+
+    LinkedHashSet<TrainDeparture> indexed = new LinkedHashSet<>();
+    for (TrainDeparture trainDeparture : trainDepartures) {
+      if (trainDeparture == null) {
+        throw new IllegalArgumentException("One or more train departures are null.");
+      }
+      TrainDeparture found = trainNumberIndex.get(trainDeparture.getTrainNumber());
+      if (found == null) {
+        throw new IllegalArgumentException("One or more train departures does not exist");
+      }
+      indexed.add(found);
     }
-    if (!this.trainDepartures.containsAll(trainDepartures)) {
-      throw new IllegalArgumentException("One or more train departures does not exist");
+
+    return new ArrayList<>(indexed);
+  }
+
+  /**
+   * Applies validated operations to departures in the register as one change. Departures are only
+   * removed from and re-inserted into the ordered indexes if an operation changes their position or
+   * their track.
+   *
+   * @param departures the departures stored in the register, without duplicates
+   * @param operations the operations to apply
+   * @throws IllegalArgumentException if there are no operations, an operation is null, a delete is
+   *     not the last operation, or a track change or delay conflicts with another departure
+   * @throws ArithmeticException if the delay of a departure would overflow
+   */
+  private void applyOperations(
+      ArrayList<TrainDeparture> departures, List<BatchOperation> operations) {
+    if (operations.isEmpty()) {
+      throw new IllegalArgumentException("No operations to apply.");
     }
+    for (int i = 0; i < operations.size(); i++) {
+      if (operations.get(i) == null) {
+        throw new IllegalArgumentException("One or more operations are null.");
+      }
+      if (operations.get(i).isDelete() && i != operations.size() - 1) {
+        throw new IllegalArgumentException("Delete must be the last operation.");
+      }
+    }
+
+    // Checked before any departure is taken out of the indexes, so an overflow changes nothing
+    int addedDelay = 0;
+    for (BatchOperation operation : operations) {
+      if (operation.isDelay()) {
+        addedDelay = Math.addExact(addedDelay, operation.getValue());
+      }
+    }
+    for (TrainDeparture trainDeparture : departures) {
+      Math.addExact(trainDeparture.getDelayMinutes(), addedDelay);
+    }
+
+    boolean deletes = operations.get(operations.size() - 1).isDelete();
+    boolean retracks = operations.stream().anyMatch(BatchOperation::isTrackChange);
+    if (!deletes) {
+      trackOccupancy.checkConflicts(departures, operations);
+    }
+    boolean reorders = deletes || retracks || operations.stream().anyMatch(BatchOperation::isDelay);
+
+    if (reorders) {
+      departures.forEach(this::removeFromIndexes);
+    }
+    for (TrainDeparture trainDeparture : departures) {
+      operations.forEach(operation -> operation.applyTo(trainDeparture));
+    }
+    if (reorders && !deletes) {
+      departures.forEach(this::addToIndexes);
+    }
+    version++;
+
+    if (mutationLog == null && subscriptions.isEmpty()) {
+      return;
+    }
+    List<Integer> trainNumbers = trainNumbersOf(departures);
+    if (mutationLog != null) {
+      mutationLog.departuresChanged(trainNumbers, List.copyOf(operations));
+    }
+    for (BatchOperation operation : operations) {
+      switch (operation.getType()) {
+        case ADD_DELAY:
+          publish(RegisterEvent.Type.DELAYED, trainNumbers);
+          break;
+        case CHANGE_TRACK:
+          publish(RegisterEvent.Type.TRACK_CHANGED, trainNumbers);
+          break;
+        default:
+          publish(RegisterEvent.Type.DELETED, trainNumbers);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Publishes an event for a change that has just been made to every subscription.
+   *
+   * @param type the kind of change
+   * @param trainNumbers the train numbers of the changed departures
+   */
+  private void publish(RegisterEvent.Type type, List<Integer> trainNumbers) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+
+    RegisterEvent event = new RegisterEvent(type, version, trainNumbers, clock);
+    for (Subscription subscription : subscriptions) {
+      subscription.publish(event);
+    }
+  }
+
+  /**
+   * Returns the first minute at which a departure has not left at the given time. Departures have
+   * minute resolution, so a departure at hh:mm has left at any time after hh:mm.
+   *
+   * @param dateTime the date and time
+   * @return the time in epoch minutes, rounded up
+   */
+  static long toEpochMinuteRoundedUp(LocalDateTime dateTime) {
+    long minute = TrainDeparture.toEpochMinute(dateTime);
+    boolean partial = dateTime.getSecond() != 0 || dateTime.getNano() != 0;
+    return partial ? minute + 1 : minute;
+  }
+
+  /**
+   * Adds the departures of the recurring services that leave before the end of the service horizon,
+   * as one change. Only the services whose next departure is within the horizon are visited.
+   * Departures that have already left, because the clock was moved past them, are skipped. The
+   * added departures are not logged, see {@link MutationLog}.
+   */
+  private void materializeServices() {
+    long start = toEpochMinuteRoundedUp(clock);
+    long end = start + serviceHorizonMinutes;
+
+    ArrayList<PendingService> behind = new ArrayList<>();
+    while (!pendingServices.isEmpty() && pendingServices.peek().nextMinute < start) {
+      PendingService pending = pendingServices.poll();
+      pending.nextMinute = pending.serviceTemplate.nextDepartureMinute(start);
+      behind.add(pending);
+    }
+    pendingServices.addAll(behind);
+
+    ArrayList<TrainDeparture> due = new ArrayList<>();
+    while (!pendingServices.isEmpty() && pendingServices.peek().nextMinute < end) {
+      PendingService pending = pendingServices.poll();
+      due.add(pending.serviceTemplate.createDeparture(pending.nextMinute));
+      pending.nextMinute = pending.serviceTemplate.nextDepartureMinute(pending.nextMinute + 1);
+      pendingServices.add(pending);
+    }
+
+    if (!behind.isEmpty() || !due.isEmpty()) {
+      nextServiceDepartures = null;
+    }
+    if (!due.isEmpty()) {
+      addTrainDepartures(due, false);
+    }
+  }
+
+  /**
+   * Returns the time of the next departure of each recurring service that is not in the register
+   * yet. The map is only built again after it has changed.
+   *
+   * @return an unmodifiable map of the services, in the order they were added
+   */
+  private Map<ServiceTemplate, LocalDateTime> getNextServiceDepartures() {
+    if (nextServiceDepartures == null) {
+      HashMap<ServiceTemplate, Long> nextMinutes = new HashMap<>();
+      pendingServices.forEach(
+          pending -> nextMinutes.put(pending.serviceTemplate, pending.nextMinute));
+      LinkedHashMap<ServiceTemplate, LocalDateTime> next = new LinkedHashMap<>();
+      for (ServiceTemplate serviceTemplate : serviceTemplates) {
+        next.put(serviceTemplate, TrainDeparture.toDateTime(nextMinutes.get(serviceTemplate)));
+      }
+      nextServiceDepartures = Collections.unmodifiableMap(next);
+    }
+    return nextServiceDepartures;
+  }
+
+  /**
+   * Returns the given time on the current date of the clock.
+   *
+   * @param time the time
+   * @return the date and time
+   */
+  private LocalDateTime onClockDate(LocalTime time) {
+    return LocalDateTime.of(clock.toLocalDate(), time);
+  }
+
+  /**
+   * Returns the train numbers of the given departures.
+   *
+   * @param departures the departures
+   * @return the train numbers, in the same order
+   */
+  private static List<Integer> trainNumbersOf(List<TrainDeparture> departures) {
+    return departures.stream().map(TrainDeparture::getTrainNumber).toList();
+  }
+
+  /**
+   * Adds a train departure to the time ordered set and the train number and destination indexes.
+   *
+   * @param trainDeparture the train departure to index
+   */
+  private void addToIndexes(TrainDeparture trainDeparture) {
+    recordChange(trainDeparture.getTrainNumber());
+    trainDepartures.add(trainDeparture);
+    trainNumberIndex.put(trainDeparture.getTrainNumber(), trainDeparture);
+
+    int destinationId = destinations.encode(trainDeparture.getDestination());
+    if (destinationId == destinationIndex.size()) {
+      destinationIndex.add(new TreeSet<>());
+      destinationTrie.add(trainDeparture.getDestination());
+    }
+    destinationIndex.get(destinationId).add(trainDeparture);
+
+    trackOccupancy.add(trainDeparture);
+  }
+
+  /**
+   * Removes a train departure from the time ordered set and the train number and destination
+   * indexes. The departure stored in the register is removed, even if an equal copy is passed.
+   *
+   * @param trainDeparture the train departure to remove
+   */
+  private void removeFromIndexes(TrainDeparture trainDeparture) {
+    TrainDeparture indexed = trainNumberIndex.remove(trainDeparture.getTrainNumber());
+    recordChange(indexed.getTrainNumber());
+    trainDepartures.remove(indexed);
+    int destinationId = destinations.lookup(indexed.getDestination());
+    destinationIndex.get(destinationId).remove(indexed);
+    trackOccupancy.remove(indexed);
+  }
+
+  /**
+   * Records that a departure changed since the last snapshot, so the next snapshot copies it. When
+   * the snapshots since the last full snapshot hold more changes than the register has departures,
+   * the next snapshot is taken in full instead, which bounds the work of merging the changes.
+   *
+   * @param trainNumber the train number of the departure that changed
+   */
+  private void recordChange(int trainNumber) {
+    if (snapshot == null) {
+      return;
+    }
+
+    changedSinceSnapshot.add(trainNumber);
+    if (isFullSnapshotDue(changedSinceSnapshot.size())) {
+      snapshot = null;
+      changedSinceSnapshot.clear();
+    }
+  }
+
+  /**
+   * Checks if the next snapshot should be taken in full.
+   *
+   * @param changes the number of changes the next snapshot would add
+   * @return true if the snapshots since the last full snapshot would hold more changes than the
+   *     register has departures
+   */
+  private boolean isFullSnapshotDue(int changes) {
+    return snapshot.getChangesSinceFull() + changes
+        > Math.max(trainDepartures.size(), MIN_CHANGES_BEFORE_FULL_SNAPSHOT);
   }
 
   /**
@@ -214,31 +1169,56 @@ public class TrainRegister {
    * @return true if the train number exists, false otherwise
    */
   private boolean trainNumberExists(TrainDeparture trainDeparture) {
-    return trainDepartures.contains(trainDeparture);
+    return trainNumberIndex.containsKey(trainDeparture.getTrainNumber());
   }
 
   /**
-   * Deletes all train departures that have a departure time before the specified time. Returns the
-   * list of deleted train departures. Example use of an iterator.
+   * Deletes all train departures that have a departure time with delay before the specified time.
+   * Returns the list of deleted train departures. Since the departures are ordered by delayed time,
+   * only the front of the ordered set is visited, and the scan stops at the first departure that
+   * has not left yet. Departures delayed past midnight are ordered by their date, so they stay
+   * behind the departures of the day until the clock passes them.
    *
    * @param time the time to compare the departure time against
    * @return the list of deleted train departures
    */
-  private ArrayList<TrainDeparture> deleteDeparturesBeforeTime(LocalTime time) {
+  private ArrayList<TrainDeparture> deleteDeparturesBeforeTime(LocalDateTime time) {
+    long minute = toEpochMinuteRoundedUp(time);
+
     ArrayList<TrainDeparture> deletedDepartures = new ArrayList<>();
     Iterator<TrainDeparture> iterator = trainDepartures.iterator();
     while (iterator.hasNext()) {
       TrainDeparture trainDeparture = iterator.next();
-      if (trainDeparture.getDepartureTimeWithDelay().isBefore(time)
-          && (trainDeparture.getDepartureTimeWithDelay().isAfter(trainDeparture.getDepartureTime())
-              || trainDeparture
-                  .getDepartureTimeWithDelay()
-                  .equals(trainDeparture.getDepartureTime()))) {
-        deletedDepartures.add(trainDeparture);
-        iterator.remove();
+      if (trainDeparture.getDelayedEpochMinute() >= minute) {
+        break;
       }
+
+      deletedDepartures.add(trainDeparture);
+      recordChange(trainDeparture.getTrainNumber());
+      iterator.remove();
+      trainNumberIndex.remove(trainDeparture.getTrainNumber());
+      destinationIndex
+          .get(destinations.lookup(trainDeparture.getDestination()))
+          .remove(trainDeparture);
+      trackOccupancy.remove(trainDeparture);
     }
 
     return deletedDepartures;
   }
+
+  /** A recurring service, with the time of its next departure that is not in the register yet. */
+  private static class PendingService implements Comparable<PendingService> {
+    private final ServiceTemplate serviceTemplate;
+    private long nextMinute;
+
+    PendingService(ServiceTemplate serviceTemplate, long nextMinute) {
+      this.serviceTemplate = serviceTemplate;
+      this.nextMinute = nextMinute;
+    }
+
+    @Override
+    public int compareTo(PendingService other) {
+      return Long.compare(nextMinute, other.nextMinute);
+    }
+  }
 }
@@ -0,0 +1,93 @@
+package edu.ntnu.stud.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ *
+ * <h2>ImportReport</h2>
+ *
+ * <p>The ImportReport class is the result of importing a timetable with {@link TimetableImporter}.
+ * It holds the number of departures that were added to the register, and one error for every row
+ * that could not be imported.
+ */
+public class ImportReport {
+  private final int importedCount;
+  private final List<RowError> errors;
+
+  /**
+   * Constructs a report.
+   *
+   * @param importedCount the number of departures added to the register
+   * @param errors the errors, ordered by line number
+   */
+  ImportReport(int importedCount, List<RowError> errors) {
+    this.importedCount = importedCount;
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  public int getImportedCount() {
+    return importedCount;
+  }
+
+  /**
+   * Returns the rows that could not be imported, ordered by line number.
+   *
+   * @return an unmodifiable list of the errors
+   */
+  public List<RowError> getErrors() {
+    return errors;
+  }
+
+  /**
+   * Checks if any row could not be imported.
+   *
+   * @return true if there are errors, false otherwise
+   */
+  public boolean hasErrors() {
+    return !errors.isEmpty();
+  }
+
+  /** A row of the timetable file that could not be imported. */
+  public static class RowError {
+    private final long lineNumber;
+    private final String line;
+    private final String message;
+
+    /**
+     * Constructs an error for a row.
+     *
+     * @param lineNumber the line number of the row, starting at 1
+     * @param line the text of the row
+     * @param message the reason the row could not be imported
+     */
+    RowError(long lineNumber, String line, String message) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+      this.message = message;
+    }
+
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    public String getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    /**
+     * Returns the error as "Line n: message".
+     *
+     * @return a string representation of the error
+     */
+    @Override
+    public String toString() {
+      return "Line " + lineNumber + ": " + message;
+    }
+  }
+}
@@ -0,0 +1,691 @@
+package edu.ntnu.stud.persistence;
+
+import edu.ntnu.stud.model.BatchOperation;
+import edu.ntnu.stud.model.DepartureSnapshot;
+import edu.ntnu.stud.model.MutationLog;
+import edu.ntnu.stud.model.ServiceTemplate;
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ *
+ *
+ * <h2>RegisterJournal</h2>
+ *
+ * <p>The RegisterJournal class makes a {@link TrainRegister} durable. It is the {@link MutationLog}
+ * of the register, and appends a record to a journal file for every change. Together with the
+ * latest {@link RegisterSnapshotFile}, the journal holds the full state of the register, so the
+ * register can be recovered with {@link #open(Path, Path)} after a restart or crash. Recurring
+ * services, the service horizon and the dwell window are recorded as well. The departures of
+ * recurring services are not, since replaying the services and the clock adds them again.
+ *
+ * <p>Records are only buffered when a change is made. {@link #commit()} writes the buffered records
+ * and syncs the journal to disk. Commits are grouped: while one thread syncs, other threads calling
+ * commit wait, and the next sync covers all of their records. A burst of changes from several
+ * dispatchers therefore costs one sync instead of one per change. When used with a {@link
+ * edu.ntnu.stud.model.ConcurrentTrainRegister}, commit after the change has returned, so the
+ * register lock is not held during the sync.
+ *
+ * <p>Every record has a sequence number and a checksum. When the journal grows past the compaction
+ * threshold, the next commit writes a snapshot of the register, which stores the sequence number of
+ * the last record it includes, and rewrites the journal without the records in the snapshot.
+ * Recovery replays the records after the snapshot, and ignores a torn record at the end of the
+ * journal left by a crash during a write.
+ */
+public class RegisterJournal implements MutationLog, Closeable {
+  private static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+  private static final byte DEPARTURES_ADDED = 1;
+  private static final byte DEPARTURES_CHANGED = 2;
+  private static final byte CLOCK_SET = 3;
+  private static final byte TRAINS_DEPARTED = 4;
+  private static final byte SERVICE_ADDED = 5;
+  private static final byte SERVICE_HORIZON_SET = 6;
+  private static final byte DWELL_MINUTES_SET = 7;
+  private static final byte DELAYS_ADDED = 8;
+
+  private static final byte OPERATION_ADD_DELAY = 1;
+  private static final byte OPERATION_CHANGE_TRACK = 2;
+  private static final byte OPERATION_DELETE = 3;
+
+  // Payload length, sequence number, type and checksum
+  private static final int RECORD_OVERHEAD = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES;
+
+  private final TrainRegister trainRegister;
+  private final Path snapshotPath;
+  private final Path journalPath;
+  private final long compactionThreshold;
+  private final ReentrantLock lock;
+  private final Condition synced;
+  private final ByteArrayOutputStream pending;
+  private FileChannel channel;
+
+  private long appendedSequence;
+  private long durableSequence;
+  private long appendedBytes;
+  private long fileStart;
+  private boolean syncing;
+  private IOException failure;
+
+  private DepartureSnapshot compactionSnapshot;
+  private long compactionSequence;
+  private long compactionOffset;
+
+  private RegisterJournal(
+      TrainRegister trainRegister,
+      Path snapshotPath,
+      Path journalPath,
+      long compactionThreshold,
+      FileChannel channel,
+      long sequence,
+      long journalSize) {
+    this.trainRegister = trainRegister;
+    this.snapshotPath = snapshotPath;
+    this.journalPath = journalPath;
+    this.compactionThreshold = compactionThreshold;
+    this.channel = channel;
+    this.lock = new ReentrantLock();
+    this.synced = lock.newCondition();
+    this.pending = new ByteArrayOutputStream();
+    this.appendedSequence = sequence;
+    this.durableSequence = sequence;
+    this.appendedBytes = journalSize;
+  }
+
+  /**
+   * Opens a journal with a compaction threshold of 1 MB. See {@link #open(Path, Path, long)}.
+   *
+   * @param snapshotPath the path of the snapshot file
+   * @param journalPath the path of the journal file
+   * @return the opened journal
+   * @throws IOException if the files cannot be read, or are corrupt
+   */
+  public static RegisterJournal open(Path snapshotPath, Path journalPath) throws IOException {
+    return open(snapshotPath, journalPath, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Opens a journal and recovers its register. The register is read from the snapshot file, or is
+   * empty if there is no snapshot, and the journal is replayed on top of it. Missing files are
+   * created when needed.
+   *
+   * @param snapshotPath the path of the snapshot file
+   * @param journalPath the path of the journal file
+   * @param compactionThreshold the journal size in bytes at which it is compacted
+   * @return the opened journal, which records every change to {@link #getTrainRegister()}
+   * @throws IOException if the files cannot be read, or are corrupt
+   * @throws IllegalArgumentException if the compaction threshold is not positive
+   */
+  public static RegisterJournal open(Path snapshotPath, Path journalPath, long compactionThreshold)
+      throws IOException {
+    if (compactionThreshold <= 0) {
+      throw new IllegalArgumentException("Compaction threshold must be positive");
+    }
+
+    TrainRegister trainRegister = new TrainRegister();
+    long snapshotSequence = 0;
+    if (Files.exists(snapshotPath)) {
+      trainRegister = RegisterSnapshotFile.read(snapshotPath);
+      snapshotSequence = RegisterSnapshotFile.readJournalSequence(snapshotPath);
+    }
+
+    FileChannel channel =
+        FileChannel.open(
+            journalPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      long[] replayed = replay(journalPath, trainRegister, snapshotSequence);
+      long sequence = Math.max(snapshotSequence, replayed[0]);
+      long journalSize = replayed[1];
+
+      // Drop a torn record left at the end of the journal by a crash
+      channel.truncate(journalSize);
+      channel.position(journalSize);
+
+      RegisterJournal journal =
+          new RegisterJournal(
+              trainRegister,
+              snapshotPath,
+              journalPath,
+              compactionThreshold,
+              channel,
+              sequence,
+              journalSize);
+      trainRegister.setMutationLog(journal);
+      return journal;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the register recovered by the journal. Every change to it is recorded in the journal.
+   *
+   * @return the register
+   */
+  public TrainRegister getTrainRegister() {
+    return trainRegister;
+  }
+
+  /**
+   * Returns the sequence number of the last record that has been synced to disk.
+   *
+   * @return the last durable sequence number
+   */
+  public long getDurableSequence() {
+    lock.lock();
+    try {
+      return durableSequence;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Makes every change recorded before the call durable. Writes and syncs the buffered records, or
+   * waits for a sync in progress by another thread that covers them. Compacts the journal if it has
+   * grown past the compaction threshold.
+   *
+   * @throws IOException if the journal cannot be written. The journal cannot be used afterwards.
+   */
+  public void commit() throws IOException {
+    lock.lock();
+    try {
+      sync(appendedSequence, null);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes a snapshot of the register and removes every record from the journal. The register must
+   * not be changed while the snapshot is taken.
+   *
+   * @throws IOException if the snapshot or journal cannot be written
+   */
+  public void compact() throws IOException {
+    lock.lock();
+    try {
+      captureCompaction();
+      sync(appendedSequence, compactionSnapshot);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Commits the buffered records, closes the journal file and stops recording changes to the
+   * register. Should be called after the last change to the register.
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      trainRegister.setMutationLog(null);
+      if (failure == null) {
+        sync(appendedSequence, null);
+      }
+    } finally {
+      lock.unlock();
+      channel.close();
+    }
+  }
+
+  @Override
+  public void departuresAdded(List<TrainDeparture> trainDepartures) {
+    ArrayList<byte[]> strings = new ArrayList<>(trainDepartures.size() * 2);
+    int size = Integer.BYTES;
+    for (TrainDeparture trainDeparture : trainDepartures) {
+      byte[] line = trainDeparture.getLine().getBytes(StandardCharsets.UTF_8);
+      byte[] destination = trainDeparture.getDestination().getBytes(StandardCharsets.UTF_8);
+      strings.add(line);
+      strings.add(destination);
+      size += Long.BYTES + 5 * Integer.BYTES + line.length + destination.length;
+    }
+
+    ByteBuffer payload = ByteBuffer.allocate(size);
+    payload.putInt(trainDepartures.size());
+    for (int i = 0; i < trainDepartures.size(); i++) {
+      TrainDeparture trainDeparture = trainDepartures.get(i);
+      payload.putLong(trainDeparture.getDepartureEpochMinute());
+      payload.putInt(trainDeparture.getTrainNumber());
+      payload.putInt(trainDeparture.getTrack());
+      payload.putInt(trainDeparture.getDelayMinutes());
+      putString(payload, strings.get(2 * i));
+      putString(payload, strings.get(2 * i + 1));
+    }
+    append(DEPARTURES_ADDED, payload);
+  }
+
+  @Override
+  public void departuresChanged(List<Integer> trainNumbers, List<BatchOperation> operations) {
+    ByteBuffer payload =
+        ByteBuffer.allocate(
+            2 * Integer.BYTES
+                + trainNumbers.size() * Integer.BYTES
+                + operations.size() * (1 + Integer.BYTES));
+    payload.putInt(trainNumbers.size());
+    trainNumbers.forEach(payload::putInt);
+    payload.putInt(operations.size());
+    for (BatchOperation operation : operations) {
+      switch (operation.getType()) {
+        case ADD_DELAY:
+          payload.put(OPERATION_ADD_DELAY);
+          break;
+        case CHANGE_TRACK:
+          payload.put(OPERATION_CHANGE_TRACK);
+          break;
+        default:
+          payload.put(OPERATION_DELETE);
+          break;
+      }
+      payload.putInt(operation.getValue());
+    }
+    append(DEPARTURES_CHANGED, payload);
+  }
+
+  @Override
+  public void delaysAdded(Map<Integer, Integer> addedDelays) {
+    ByteBuffer payload =
+        ByteBuffer.allocate(Integer.BYTES + addedDelays.size() * 2 * Integer.BYTES);
+    payload.putInt(addedDelays.size());
+    addedDelays.forEach((trainNumber, added) -> payload.putInt(trainNumber).putInt(added));
+    append(DELAYS_ADDED, payload);
+  }
+
+  @Override
+  public void clockSet(LocalDateTime clock) {
+    append(
+        CLOCK_SET,
+        ByteBuffer.allocate(Long.BYTES + Integer.BYTES)
+            .putLong(clock.toEpochSecond(ZoneOffset.UTC))
+            .putInt(clock.getNano()));
+  }
+
+  @Override
+  public void trainsDeparted() {
+    append(TRAINS_DEPARTED, ByteBuffer.allocate(0));
+  }
+
+  @Override
+  public void serviceAdded(ServiceTemplate serviceTemplate, LocalDateTime nextDeparture) {
+    byte[] line = serviceTemplate.getLine().getBytes(StandardCharsets.UTF_8);
+    byte[] destination = serviceTemplate.getDestination().getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer payload =
+        ByteBuffer.allocate(2 * Long.BYTES + 6 * Integer.BYTES + line.length + destination.length);
+    payload.putLong(nextDeparture.toEpochSecond(ZoneOffset.UTC));
+    payload.putLong(serviceTemplate.getInterval().toMinutes());
+    payload.putInt(serviceTemplate.getTrack());
+    payload.putInt(serviceTemplate.getFirstDeparture().toSecondOfDay());
+    payload.putInt(serviceTemplate.getLastDeparture().toSecondOfDay());
+    payload.putInt(serviceTemplate.getFirstTrainNumber());
+    putString(payload, line);
+    putString(payload, destination);
+    append(SERVICE_ADDED, payload);
+  }
+
+  @Override
+  public void serviceHorizonSet(Duration horizon) {
+    append(SERVICE_HORIZON_SET, ByteBuffer.allocate(Long.BYTES).putLong(horizon.toMinutes()));
+  }
+
+  @Override
+  public void dwellMinutesSet(int dwellMinutes) {
+    append(DWELL_MINUTES_SET, ByteBuffer.allocate(Integer.BYTES).putInt(dwellMinutes));
+  }
+
+  /**
+   * Buffers a record. Captures a snapshot of the register for compaction if the journal has grown
+   * past the compaction threshold. The register holds exactly the changes recorded so far, so the
+   * snapshot matches the sequence number of the record.
+   *
+   * @param type the type of the record
+   * @param payload the payload of the record, filled from the start
+   */
+  private void append(byte type, ByteBuffer payload) {
+    payload.flip();
+    int length = payload.remaining();
+    ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + length);
+
+    lock.lock();
+    try {
+      appendedSequence++;
+      record.putInt(length).putLong(appendedSequence).put(type).put(payload);
+      record.putInt(checksum(record, 0, length));
+      pending.write(record.array(), 0, record.capacity());
+      appendedBytes += record.capacity();
+
+      if (compactionSnapshot == null && appendedBytes - fileStart > compactionThreshold) {
+        captureCompaction();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Captures a snapshot of the register to compact the journal with. The register is being changed
+   * when the journal is called, so the snapshot is peeked, which leaves the snapshots the register
+   * hands out unchanged. Must hold the lock.
+   */
+  private void captureCompaction() {
+    compactionSnapshot = trainRegister.peekSnapshot();
+    compactionSequence = appendedSequence;
+    compactionOffset = appendedBytes;
+  }
+
+  /**
+   * Waits until the records up to the target sequence number are durable, and until the given
+   * compaction is done. The first waiting thread becomes the leader, which writes and syncs every
+   * buffered record, and compacts if a compaction has been captured. Must hold the lock, which is
+   * released while the leader writes.
+   *
+   * @param targetSequence the sequence number that must become durable
+   * @param compaction the captured compaction to wait for, or null
+   * @throws IOException if the journal cannot be written
+   */
+  private void sync(long targetSequence, DepartureSnapshot compaction) throws IOException {
+    while (durableSequence < targetSequence
+        || (compaction != null && compactionSnapshot == compaction)) {
+      if (failure != null) {
+        throw new IOException("Journal could not be written", failure);
+      }
+      if (syncing) {
+        synced.awaitUninterruptibly();
+        continue;
+      }
+
+      syncing = true;
+      byte[] records = pending.toByteArray();
+      pending.reset();
+      long sequence = appendedSequence;
+      DepartureSnapshot snapshot = compactionSnapshot;
+      long snapshotSequence = compactionSequence;
+      long snapshotOffset = compactionOffset;
+      long start = fileStart;
+
+      lock.unlock();
+      IOException error = null;
+      try {
+        write(records);
+        if (snapshot != null) {
+          RegisterSnapshotFile.write(snapshot, snapshotSequence, snapshotPath);
+          truncateJournal(snapshotOffset - start);
+        }
+      } catch (IOException e) {
+        error = e;
+      } finally {
+        lock.lock();
+        syncing = false;
+        synced.signalAll();
+      }
+
+      if (error != null) {
+        failure = error;
+        throw error;
+      }
+      durableSequence = sequence;
+      if (snapshot != null) {
+        fileStart = snapshotOffset;
+        if (compactionSnapshot == snapshot) {
+          compactionSnapshot = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes records to the end of the journal file and syncs it.
+   *
+   * @param records the records to write
+   * @throws IOException if the journal cannot be written
+   */
+  private void write(byte[] records) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(records);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Removes the records before a position from the journal file. The records after the position are
+   * copied to a new file, which replaces the journal.
+   *
+   * @param position the position in the journal file of the first record to keep
+   * @throws IOException if the journal cannot be rewritten
+   */
+  private void truncateJournal(long position) throws IOException {
+    Path temporaryPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+    try (FileChannel compacted =
+        FileChannel.open(
+            temporaryPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = channel.size();
+      long transferred = position;
+      while (transferred < size) {
+        transferred += channel.transferTo(transferred, size - transferred, compacted);
+      }
+      compacted.force(false);
+    }
+
+    channel.close();
+    Files.move(
+        temporaryPath,
+        journalPath,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+  }
+
+  /**
+   * Replays the records in a journal file with a sequence number after the snapshot.
+   *
+   * @param journalPath the path of the journal file
+   * @param trainRegister the register to apply the records to
+   * @param snapshotSequence the sequence number of the last record in the snapshot
+   * @return the sequence number of the last record, and the length of the journal without a torn
+   *     record at the end
+   * @throws IOException if the journal cannot be read, or a record cannot be applied
+   */
+  private static long[] replay(Path journalPath, TrainRegister trainRegister, long snapshotSequence)
+      throws IOException {
+    long sequence = 0;
+    int validLength = 0;
+    try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Journal is too large");
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      while (buffer.remaining() >= RECORD_OVERHEAD) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() - (RECORD_OVERHEAD - Integer.BYTES)) {
+          break;
+        }
+        long recordSequence = buffer.getLong();
+        byte type = buffer.get();
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        if (buffer.getInt() != checksum(buffer, start, length)) {
+          break;
+        }
+
+        if (recordSequence > snapshotSequence) {
+          try {
+            apply(type, payload, trainRegister);
+          } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Corrupt journal record " + recordSequence, e);
+          }
+        }
+        sequence = recordSequence;
+        validLength = buffer.position();
+      }
+    }
+    return new long[] {sequence, validLength};
+  }
+
+  /**
+   * Applies a journal record to a register.
+   *
+   * @param type the type of the record
+   * @param payload the payload of the record
+   * @param trainRegister the register to apply the record to
+   * @throws IOException if the record is of an unknown type
+   */
+  private static void apply(byte type, ByteBuffer payload, TrainRegister trainRegister)
+      throws IOException {
+    switch (type) {
+      case DEPARTURES_ADDED:
+        int departureCount = payload.getInt();
+        ArrayList<TrainDeparture> trainDepartures = new ArrayList<>(departureCount);
+        for (int i = 0; i < departureCount; i++) {
+          long departureMinute = payload.getLong();
+          int trainNumber = payload.getInt();
+          int track = payload.getInt();
+          int delayMinutes = payload.getInt();
+          String line = getString(payload);
+          String destination = getString(payload);
+          trainDepartures.add(
+              new TrainDeparture(
+                  LocalDateTime.ofEpochSecond(departureMinute * 60, 0, ZoneOffset.UTC),
+                  line,
+                  trainNumber,
+                  destination,
+                  track,
+                  Duration.ofMinutes(delayMinutes)));
+        }
+        if (!trainRegister.addTrainDepartures(trainDepartures).isEmpty()) {
+          throw new IllegalArgumentException("Train number already exists");
+        }
+        break;
+      case DEPARTURES_CHANGED:
+        int trainNumberCount = payload.getInt();
+        ArrayList<Integer> trainNumbers = new ArrayList<>(trainNumberCount);
+        for (int i = 0; i < trainNumberCount; i++) {
+          trainNumbers.add(payload.getInt());
+        }
+        int operationCount = payload.getInt();
+        ArrayList<BatchOperation> operations = new ArrayList<>(operationCount);
+        for (int i = 0; i < operationCount; i++) {
+          byte operation = payload.get();
+          int value = payload.getInt();
+          if (operation == OPERATION_ADD_DELAY) {
+            operations.add(BatchOperation.addDelay(value));
+          } else if (operation == OPERATION_CHANGE_TRACK) {
+            operations.add(BatchOperation.changeTrack(value));
+          } else {
+            operations.add(BatchOperation.delete());
+          }
+        }
+        trainRegister.applyBatch(trainNumbers, operations);
+        break;
+      case DELAYS_ADDED:
+        int delayCount = payload.getInt();
+        LinkedHashMap<Integer, Integer> addedDelays = new LinkedHashMap<>();
+        for (int i = 0; i < delayCount; i++) {
+          addedDelays.put(payload.getInt(), payload.getInt());
+        }
+        trainRegister.addDelays(addedDelays);
+        break;
+      case CLOCK_SET:
+        trainRegister.setClock(
+            LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC));
+        break;
+      case TRAINS_DEPARTED:
+        trainRegister.departTrains();
+        break;
+      case SERVICE_ADDED:
+        LocalDateTime nextDeparture =
+            LocalDateTime.ofEpochSecond(payload.getLong(), 0, ZoneOffset.UTC);
+        Duration interval = Duration.ofMinutes(payload.getLong());
+        int serviceTrack = payload.getInt();
+        LocalTime firstDeparture = LocalTime.ofSecondOfDay(payload.getInt());
+        LocalTime lastDeparture = LocalTime.ofSecondOfDay(payload.getInt());
+        int firstTrainNumber = payload.getInt();
+        String serviceLine = getString(payload);
+        String serviceDestination = getString(payload);
+        trainRegister.addServiceTemplate(
+            new ServiceTemplate(
+                serviceLine,
+                serviceDestination,
+                serviceTrack,
+                firstDeparture,
+                lastDeparture,
+                interval,
+                firstTrainNumber),
+            nextDeparture);
+        break;
+      case SERVICE_HORIZON_SET:
+        trainRegister.setServiceHorizon(Duration.ofMinutes(payload.getLong()));
+        break;
+      case DWELL_MINUTES_SET:
+        trainRegister.setDwellMinutes(payload.getInt());
+        break;
+      default:
+        throw new IOException("Unknown journal record type " + type);
+    }
+  }
+
+  /**
+   * Computes the checksum of a record, covering the sequence number, type and payload.
+   *
+   * @param buffer the buffer holding the record
+   * @param start the position of the record in the buffer
+   * @param length the length of the payload
+   * @return the checksum
+   */
+  private static int checksum(ByteBuffer buffer, int start, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.slice(start + Integer.BYTES, Long.BYTES + 1 + length));
+    return (int) crc.getValue();
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] bytes) {
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
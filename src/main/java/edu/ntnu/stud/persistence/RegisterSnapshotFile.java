@@ -0,0 +1,346 @@
+package edu.ntnu.stud.persistence;
+
+import edu.ntnu.stud.model.DepartureSnapshot;
+import edu.ntnu.stud.model.ServiceTemplate;
+import edu.ntnu.stud.model.StringDictionary;
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *
+ * <h2>RegisterSnapshotFile</h2>
+ *
+ * <p>The RegisterSnapshotFile class saves the full state of a {@link TrainRegister} to a compact
+ * binary file, and restores it again. The file holds, in order:
+ *
+ * <ul>
+ *   <li>a header with a magic number, the format version, the sequence number of the last journal
+ *       record included in the snapshot, the clock in seconds since {@link
+ *       java.time.LocalDate#EPOCH}, the number of lines, destinations, departures and recurring
+ *       services, the service horizon in minutes, and the dwell window in minutes or -1
+ *   <li>a string dictionary of the lines, followed by one of the destinations, each string stored
+ *       as its UTF-8 length followed by its bytes
+ *   <li>one fixed-width record per departure, ordered by departure time with delay, holding the
+ *       scheduled departure in epoch minutes, line id, train number, destination id, track and
+ *       delay in minutes
+ *   <li>one fixed-width record per recurring service, in the order the services were added, holding
+ *       the next departure that is not in the register yet in epoch minutes, line id, destination
+ *       id, track, first and last departure of the day and interval in minutes, and first train
+ *       number
+ * </ul>
+ *
+ * <p>The file is written in a single buffer through a {@link FileChannel}, to a temporary file that
+ * replaces the old snapshot when it is complete. It is read by memory-mapping the file, so
+ * restoring a register does no parsing beyond reading fixed-width integers.
+ */
+public class RegisterSnapshotFile {
+  private static final int MAGIC = 0x54445253;
+  private static final int FORMAT_VERSION = 3;
+  private static final int HEADER_SIZE = 8 * Integer.BYTES + 2 * Long.BYTES;
+  private static final int RECORD_SIZE = Long.BYTES + 5 * Integer.BYTES;
+  private static final int SERVICE_RECORD_SIZE = Long.BYTES + 7 * Integer.BYTES;
+
+  private RegisterSnapshotFile() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * Writes the state of a train register to a snapshot file, replacing any existing file.
+   *
+   * @param trainRegister the register to save
+   * @param path the path of the snapshot file
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(TrainRegister trainRegister, Path path) throws IOException {
+    write(trainRegister.getSnapshot(), 0, path);
+  }
+
+  /**
+   * Writes a snapshot of a train register to a snapshot file, replacing any existing file.
+   *
+   * @param snapshot the snapshot to save
+   * @param journalSequence the sequence number of the last journal record in the snapshot, or 0
+   * @param path the path of the snapshot file
+   * @throws IOException if the file cannot be written
+   */
+  static void write(DepartureSnapshot snapshot, long journalSequence, Path path)
+      throws IOException {
+    List<TrainDeparture> trainDepartures = snapshot.getTrainDepartures();
+    Map<ServiceTemplate, LocalDateTime> services = snapshot.getNextServiceDepartures();
+    StringDictionary lines = new StringDictionary();
+    StringDictionary destinations = new StringDictionary();
+    for (TrainDeparture trainDeparture : trainDepartures) {
+      lines.encode(trainDeparture.getLine());
+      destinations.encode(trainDeparture.getDestination());
+    }
+    for (ServiceTemplate serviceTemplate : services.keySet()) {
+      lines.encode(serviceTemplate.getLine());
+      destinations.encode(serviceTemplate.getDestination());
+    }
+
+    List<byte[]> encodedLines = encodeStrings(lines);
+    List<byte[]> encodedDestinations = encodeStrings(destinations);
+    int size =
+        HEADER_SIZE
+            + dictionarySize(encodedLines)
+            + dictionarySize(encodedDestinations)
+            + trainDepartures.size() * RECORD_SIZE
+            + services.size() * SERVICE_RECORD_SIZE;
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+    buffer.putInt(MAGIC);
+    buffer.putInt(FORMAT_VERSION);
+    buffer.putLong(journalSequence);
+    buffer.putLong(snapshot.getClockDateTime().toEpochSecond(ZoneOffset.UTC));
+    buffer.putInt(encodedLines.size());
+    buffer.putInt(encodedDestinations.size());
+    buffer.putInt(trainDepartures.size());
+    buffer.putInt(services.size());
+    buffer.putInt((int) snapshot.getServiceHorizon().toMinutes());
+    buffer.putInt(snapshot.getDwellMinutes());
+    putStrings(buffer, encodedLines);
+    putStrings(buffer, encodedDestinations);
+    for (TrainDeparture trainDeparture : trainDepartures) {
+      buffer.putLong(trainDeparture.getDepartureEpochMinute());
+      buffer.putInt(lines.lookup(trainDeparture.getLine()));
+      buffer.putInt(trainDeparture.getTrainNumber());
+      buffer.putInt(destinations.lookup(trainDeparture.getDestination()));
+      buffer.putInt(trainDeparture.getTrack());
+      buffer.putInt(trainDeparture.getDelayMinutes());
+    }
+    for (Map.Entry<ServiceTemplate, LocalDateTime> service : services.entrySet()) {
+      ServiceTemplate serviceTemplate = service.getKey();
+      buffer.putLong(service.getValue().toEpochSecond(ZoneOffset.UTC) / 60);
+      buffer.putInt(lines.lookup(serviceTemplate.getLine()));
+      buffer.putInt(destinations.lookup(serviceTemplate.getDestination()));
+      buffer.putInt(serviceTemplate.getTrack());
+      buffer.putInt(serviceTemplate.getFirstDeparture().toSecondOfDay() / 60);
+      buffer.putInt(serviceTemplate.getLastDeparture().toSecondOfDay() / 60);
+      buffer.putInt((int) serviceTemplate.getInterval().toMinutes());
+      buffer.putInt(serviceTemplate.getFirstTrainNumber());
+    }
+    buffer.flip();
+
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporaryPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    Files.move(
+        temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a snapshot file into a new train register.
+   *
+   * @param path the path of the snapshot file
+   * @return a register with the clock, departures, recurring services and settings of the snapshot
+   * @throws IOException if the file cannot be read, or is not a valid snapshot file
+   */
+  public static TrainRegister read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Not a register snapshot file");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return readRegister(buffer);
+    } catch (BufferUnderflowException
+        | IndexOutOfBoundsException
+        | IllegalArgumentException
+        | DateTimeException e) {
+      throw new IOException("Corrupt register snapshot file", e);
+    }
+  }
+
+  /**
+   * Reads the sequence number of the last journal record included in a snapshot file.
+   *
+   * @param path the path of the snapshot file
+   * @return the journal sequence number of the snapshot
+   * @throws IOException if the file cannot be read, or is not a valid snapshot file
+   */
+  static long readJournalSequence(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long headerSize = Math.min(channel.size(), HEADER_SIZE);
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize);
+      readHeader(header);
+      return header.getLong();
+    }
+  }
+
+  /**
+   * Reads a snapshot from a buffer into a new train register.
+   *
+   * @param buffer the contents of the snapshot file
+   * @return a register with the clock, departures, recurring services and settings of the snapshot
+   * @throws IOException if the buffer is not a valid snapshot
+   */
+  private static TrainRegister readRegister(ByteBuffer buffer) throws IOException {
+    readHeader(buffer);
+    buffer.getLong();
+
+    LocalDateTime clock = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC);
+    int lineCount = buffer.getInt();
+    int destinationCount = buffer.getInt();
+    int departureCount = buffer.getInt();
+    int serviceCount = buffer.getInt();
+    int serviceHorizonMinutes = buffer.getInt();
+    int dwellMinutes = buffer.getInt();
+    String[] lines = getStrings(buffer, lineCount);
+    String[] destinations = getStrings(buffer, destinationCount);
+    if (departureCount < 0
+        || serviceCount < 0
+        || buffer.remaining()
+            != (long) departureCount * RECORD_SIZE + (long) serviceCount * SERVICE_RECORD_SIZE) {
+      throw new IOException("Corrupt register snapshot file");
+    }
+
+    ArrayList<TrainDeparture> trainDepartures = new ArrayList<>(departureCount);
+    for (int i = 0; i < departureCount; i++) {
+      long departureMinute = buffer.getLong();
+      String line = lines[buffer.getInt()];
+      int trainNumber = buffer.getInt();
+      String destination = destinations[buffer.getInt()];
+      int track = buffer.getInt();
+      int delayMinutes = buffer.getInt();
+      trainDepartures.add(
+          new TrainDeparture(
+              LocalDateTime.ofEpochSecond(departureMinute * 60, 0, ZoneOffset.UTC),
+              line,
+              trainNumber,
+              destination,
+              track,
+              Duration.ofMinutes(delayMinutes)));
+    }
+
+    TrainRegister trainRegister = new TrainRegister();
+    if (dwellMinutes != -1) {
+      trainRegister.setDwellMinutes(dwellMinutes);
+    }
+    trainRegister.setServiceHorizon(Duration.ofMinutes(serviceHorizonMinutes));
+    trainRegister.setClock(clock);
+    if (!trainRegister.addTrainDepartures(trainDepartures).isEmpty()) {
+      throw new IOException("Corrupt register snapshot file");
+    }
+
+    // Services continue from their next departure, so departures already added or removed are
+    // not added again
+    for (int i = 0; i < serviceCount; i++) {
+      long nextMinute = buffer.getLong();
+      String line = lines[buffer.getInt()];
+      String destination = destinations[buffer.getInt()];
+      int track = buffer.getInt();
+      LocalTime firstDeparture = LocalTime.ofSecondOfDay(buffer.getInt() * 60L);
+      LocalTime lastDeparture = LocalTime.ofSecondOfDay(buffer.getInt() * 60L);
+      Duration interval = Duration.ofMinutes(buffer.getInt());
+      int firstTrainNumber = buffer.getInt();
+      trainRegister.addServiceTemplate(
+          new ServiceTemplate(
+              line, destination, track, firstDeparture, lastDeparture, interval, firstTrainNumber),
+          LocalDateTime.ofEpochSecond(nextMinute * 60, 0, ZoneOffset.UTC));
+    }
+    return trainRegister;
+  }
+
+  /**
+   * Checks the magic number and format version at the start of a snapshot file.
+   *
+   * @param buffer the buffer positioned at the start of the file
+   * @throws IOException if the buffer does not start with a supported snapshot header
+   */
+  private static void readHeader(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+      throw new IOException("Not a register snapshot file");
+    }
+    int formatVersion = buffer.getInt();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Unsupported snapshot format version " + formatVersion);
+    }
+  }
+
+  /**
+   * Encodes the strings of a dictionary as UTF-8, ordered by id.
+   *
+   * @param dictionary the dictionary to encode
+   * @return the encoded strings
+   */
+  private static List<byte[]> encodeStrings(StringDictionary dictionary) {
+    ArrayList<byte[]> encoded = new ArrayList<>(dictionary.size());
+    for (int id = 0; id < dictionary.size(); id++) {
+      encoded.add(dictionary.decode(id).getBytes(StandardCharsets.UTF_8));
+    }
+    return encoded;
+  }
+
+  /**
+   * Returns the number of bytes needed to store the encoded strings of a dictionary.
+   *
+   * @param encoded the encoded strings
+   * @return the size in bytes
+   */
+  private static int dictionarySize(List<byte[]> encoded) {
+    int size = 0;
+    for (byte[] bytes : encoded) {
+      size += Integer.BYTES + bytes.length;
+    }
+    return size;
+  }
+
+  private static void putStrings(ByteBuffer buffer, List<byte[]> encoded) {
+    for (byte[] bytes : encoded) {
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  /**
+   * Reads the strings of a dictionary.
+   *
+   * @param buffer the buffer positioned at the first string
+   * @param count the number of strings
+   * @return the strings, indexed by id
+   * @throws IOException if a string length is invalid
+   */
+  private static String[] getStrings(ByteBuffer buffer, int count) throws IOException {
+    if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+      throw new IOException("Corrupt register snapshot file");
+    }
+    String[] strings = new String[count];
+    for (int i = 0; i < count; i++) {
+      int length = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IOException("Corrupt register snapshot file");
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      strings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return strings;
+  }
+}
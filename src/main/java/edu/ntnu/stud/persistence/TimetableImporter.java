@@ -0,0 +1,388 @@
+package edu.ntnu.stud.persistence;
+
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ *
+ *
+ * <h2>TimetableImporter</h2>
+ *
+ * <p>The TimetableImporter class loads train departures from a timetable file into a {@link
+ * TrainRegister}. The file has one departure per line, with comma separated fields:
+ *
+ * <pre>
+ * departureTime,line,trainNumber,destination,track,delayMinutes
+ * 12:00,L2,100,Oslo,2,0
+ * </pre>
+ *
+ * <p>The departure time is either a time, which is scheduled on the current date of the register
+ * clock, or a date and time such as 2023-12-24T12:00. The track and delay may be left empty, which
+ * means no track and no delay. Empty lines and lines starting with '#' are ignored, and so is the
+ * first line if it is the header shown above. Any other first line is parsed as a row. Fields
+ * cannot contain commas.
+ *
+ * <p>The file is memory-mapped and split into chunks at line breaks. The chunks are parsed in
+ * parallel, a few at a time, and every row is validated by the TrainDeparture constructor. The
+ * departures of those chunks are added to the register in file order, in batches, before the next
+ * chunks are parsed, so only a bounded number of parsed rows are held at once, whatever the size of
+ * the file. Only the line number and position of each parsed row are kept, and the text of a row is
+ * read back from the file if the register rejects it. Rows that cannot be parsed, are invalid, or
+ * have a train number that is already in use are reported in the {@link ImportReport} instead of
+ * stopping the import.
+ */
+public class TimetableImporter {
+  private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final int NUMBER_OF_FIELDS = 6;
+  private static final String HEADER_FIELD = "departureTime";
+  private static final int CHUNKS_IN_PARALLEL = Runtime.getRuntime().availableProcessors();
+
+  private final int chunkSize;
+  private final int batchSize;
+
+  /** Constructs an importer with 4 MB chunks and batches of 1000 departures. */
+  public TimetableImporter() {
+    this(DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructs an importer with the given chunk and batch sizes.
+   *
+   * @param chunkSize the approximate number of bytes parsed by each parallel task
+   * @param batchSize the number of departures added to the register at a time
+   * @throws IllegalArgumentException if any of the sizes are not positive
+   */
+  public TimetableImporter(int chunkSize, int batchSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.chunkSize = chunkSize;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Imports the departures in a timetable file into the register.
+   *
+   * @param path the path of the timetable file
+   * @param trainRegister the register to add the departures to
+   * @return a report with the number of imported departures and the rows that were not imported
+   * @throws IOException if the file cannot be read, or is larger than 2 GB
+   */
+  public ImportReport importFile(Path path, TrainRegister trainRegister) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Timetable files larger than 2 GB are not supported");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      List<ByteBuffer> chunks = splitIntoChunks(buffer);
+      LocalDate serviceDate = trainRegister.getClockDateTime().toLocalDate();
+
+      ArrayList<ImportReport.RowError> errors = new ArrayList<>();
+      ArrayList<TrainDeparture> batch = new ArrayList<>(batchSize);
+      IdentityHashMap<TrainDeparture, SourceLine> sourceLines = new IdentityHashMap<>();
+      int importedCount = 0;
+
+      long firstLineNumber = 1;
+      for (int first = 0; first < chunks.size(); first += CHUNKS_IN_PARALLEL) {
+        List<ParsedChunk> parsedChunks =
+            IntStream.range(first, Math.min(first + CHUNKS_IN_PARALLEL, chunks.size()))
+                .parallel()
+                .mapToObj(i -> parseChunk(chunks.get(i), i == 0, serviceDate))
+                .toList();
+
+        for (ParsedChunk parsedChunk : parsedChunks) {
+          for (ImportReport.RowError error : parsedChunk.errors) {
+            errors.add(
+                new ImportReport.RowError(
+                    firstLineNumber + error.getLineNumber(), error.getLine(), error.getMessage()));
+          }
+          for (int i = 0; i < parsedChunk.departures.size(); i++) {
+            TrainDeparture trainDeparture = parsedChunk.departures.get(i);
+            batch.add(trainDeparture);
+            sourceLines.put(
+                trainDeparture,
+                new SourceLine(
+                    firstLineNumber + parsedChunk.lineIndexes[i],
+                    parsedChunk.chunk,
+                    parsedChunk.lineStarts[i]));
+            if (batch.size() == batchSize) {
+              importedCount += addBatch(batch, sourceLines, trainRegister, errors);
+            }
+          }
+          firstLineNumber += parsedChunk.lineCount;
+        }
+      }
+      importedCount += addBatch(batch, sourceLines, trainRegister, errors);
+
+      errors.sort(Comparator.comparingLong(ImportReport.RowError::getLineNumber));
+      return new ImportReport(importedCount, errors);
+    }
+  }
+
+  /**
+   * Adds a batch of departures to the register and reports the ones with a train number in use.
+   * Clears the batch afterwards.
+   *
+   * @param batch the departures to add
+   * @param sourceLines the rows the departures were parsed from
+   * @param trainRegister the register to add the departures to
+   * @param errors the list to add errors to
+   * @return the number of departures added
+   */
+  private static int addBatch(
+      ArrayList<TrainDeparture> batch,
+      IdentityHashMap<TrainDeparture, SourceLine> sourceLines,
+      TrainRegister trainRegister,
+      ArrayList<ImportReport.RowError> errors) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    ArrayList<TrainDeparture> rejected = trainRegister.addTrainDepartures(batch);
+    for (TrainDeparture trainDeparture : rejected) {
+      SourceLine source = sourceLines.get(trainDeparture);
+      errors.add(
+          new ImportReport.RowError(
+              source.lineNumber,
+              source.readText(),
+              "Train number " + trainDeparture.getTrainNumber() + " already exists"));
+    }
+
+    int added = batch.size() - rejected.size();
+    sourceLines.clear();
+    batch.clear();
+    return added;
+  }
+
+  /**
+   * Splits the file into chunks of about the chunk size, each ending with a line break or the end
+   * of the file. Since '\n' is never part of a multi-byte UTF-8 character, every chunk can be
+   * decoded on its own.
+   *
+   * @param buffer the contents of the file
+   * @return the chunks, in file order
+   */
+  private List<ByteBuffer> splitIntoChunks(ByteBuffer buffer) {
+    ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    int start = 0;
+    while (start < buffer.limit()) {
+      int end = (int) Math.min((long) start + chunkSize, buffer.limit());
+      while (end < buffer.limit() && buffer.get(end - 1) != '\n') {
+        end++;
+      }
+      chunks.add(buffer.slice(start, end - start));
+      start = end;
+    }
+    return chunks;
+  }
+
+  /**
+   * Parses the lines of a chunk. Line numbers in the result are relative to the chunk.
+   *
+   * @param chunk the bytes of the chunk
+   * @param firstChunk whether the chunk starts at the beginning of the file
+   * @param serviceDate the date of departures given only as a time
+   * @return the departures and errors of the chunk
+   */
+  private static ParsedChunk parseChunk(
+      ByteBuffer chunk, boolean firstChunk, LocalDate serviceDate) {
+    CharBuffer chars = StandardCharsets.UTF_8.decode(chunk.duplicate());
+    ParsedChunk parsedChunk = new ParsedChunk(chunk);
+
+    int lineStart = 0;
+    int lineIndex = 0;
+    int byteOffset = 0;
+    int length = chars.length();
+    while (lineStart < length) {
+      int lineEnd = lineStart;
+      while (lineEnd < length && chars.charAt(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      String line = chars.subSequence(lineStart, lineEnd).toString().strip();
+
+      boolean header = firstChunk && lineIndex == 0 && isHeader(line);
+      if (!line.isEmpty() && !line.startsWith("#") && !header) {
+        parseRow(line, lineIndex, byteOffset, serviceDate, parsedChunk);
+      }
+
+      byteOffset += utf8Length(chars, lineStart, Math.min(lineEnd + 1, length));
+      lineIndex++;
+      lineStart = lineEnd + 1;
+    }
+
+    parsedChunk.lineCount = lineIndex;
+    return parsedChunk;
+  }
+
+  /**
+   * Parses one row and adds the departure or the error to the parsed chunk.
+   *
+   * @param line the text of the row
+   * @param lineIndex the index of the line in the chunk
+   * @param byteOffset the position of the first byte of the line in the chunk
+   * @param serviceDate the date of a departure given only as a time
+   * @param parsedChunk the chunk to add the result to
+   */
+  private static void parseRow(
+      String line, int lineIndex, int byteOffset, LocalDate serviceDate, ParsedChunk parsedChunk) {
+    String[] fields = line.split(",", -1);
+    if (fields.length != NUMBER_OF_FIELDS) {
+      parsedChunk.errors.add(
+          new ImportReport.RowError(
+              lineIndex, line, "Expected " + NUMBER_OF_FIELDS + " fields, got " + fields.length));
+      return;
+    }
+
+    try {
+      String track = fields[4].strip();
+      String delay = fields[5].strip();
+      String departureTime = fields[0].strip();
+      TrainDeparture trainDeparture =
+          new TrainDeparture(
+              departureTime.indexOf('T') >= 0
+                  ? LocalDateTime.parse(departureTime)
+                  : LocalDateTime.of(serviceDate, LocalTime.parse(departureTime)),
+              fields[1].strip(),
+              Integer.parseInt(fields[2].strip()),
+              fields[3].strip(),
+              track.isEmpty() ? 0 : Integer.parseInt(track),
+              delay.isEmpty() ? Duration.ZERO : Duration.ofMinutes(Long.parseLong(delay)));
+      parsedChunk.addDeparture(trainDeparture, lineIndex, byteOffset);
+    } catch (DateTimeParseException e) {
+      parsedChunk.errors.add(new ImportReport.RowError(lineIndex, line, "Invalid departure time"));
+    } catch (NumberFormatException e) {
+      parsedChunk.errors.add(new ImportReport.RowError(lineIndex, line, "Invalid number"));
+    } catch (ArithmeticException e) {
+      parsedChunk.errors.add(new ImportReport.RowError(lineIndex, line, "Delay is too large"));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      parsedChunk.errors.add(new ImportReport.RowError(lineIndex, line, e.getMessage()));
+    }
+  }
+
+  /**
+   * Checks if a line is the header, meaning its first field is the name of the departure time
+   * field. A first line that is neither the header nor a row is parsed, and reported as an error.
+   *
+   * @param line the line to check
+   * @return true if the line is the header
+   */
+  private static boolean isHeader(String line) {
+    int end = line.indexOf(',');
+    String firstField = end < 0 ? line : line.substring(0, end);
+    return firstField.strip().equalsIgnoreCase(HEADER_FIELD);
+  }
+
+  /**
+   * Returns the number of bytes the characters take in UTF-8.
+   *
+   * @param chars the characters
+   * @param start the index of the first character
+   * @param end the index after the last character
+   * @return the number of bytes
+   */
+  private static int utf8Length(CharSequence chars, int start, int end) {
+    int bytes = 0;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        // The pair is one four byte character
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * The departures and errors parsed from one chunk. The line index and byte offset of the row of
+   * each departure are kept instead of its text.
+   */
+  private static class ParsedChunk {
+    private final ByteBuffer chunk;
+    private final ArrayList<TrainDeparture> departures = new ArrayList<>();
+    private int[] lineIndexes = new int[16];
+    private int[] lineStarts = new int[16];
+    private final ArrayList<ImportReport.RowError> errors = new ArrayList<>();
+    private int lineCount;
+
+    private ParsedChunk(ByteBuffer chunk) {
+      this.chunk = chunk;
+    }
+
+    /**
+     * Adds a parsed departure.
+     *
+     * @param trainDeparture the departure
+     * @param lineIndex the index of its line in the chunk
+     * @param lineStart the position of the first byte of its line in the chunk
+     */
+    private void addDeparture(TrainDeparture trainDeparture, int lineIndex, int lineStart) {
+      int index = departures.size();
+      if (index == lineIndexes.length) {
+        lineIndexes = Arrays.copyOf(lineIndexes, index * 2);
+        lineStarts = Arrays.copyOf(lineStarts, index * 2);
+      }
+      departures.add(trainDeparture);
+      lineIndexes[index] = lineIndex;
+      lineStarts[index] = lineStart;
+    }
+  }
+
+  /** The line number and position in the file of the row a departure was parsed from. */
+  private static class SourceLine {
+    private final long lineNumber;
+    private final ByteBuffer chunk;
+    private final int lineStart;
+
+    private SourceLine(long lineNumber, ByteBuffer chunk, int lineStart) {
+      this.lineNumber = lineNumber;
+      this.chunk = chunk;
+      this.lineStart = lineStart;
+    }
+
+    /**
+     * Reads the text of the row back from the file.
+     *
+     * @return the text of the row, without surrounding whitespace
+     */
+    private String readText() {
+      int lineEnd = lineStart;
+      while (lineEnd < chunk.limit() && chunk.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      return StandardCharsets.UTF_8
+          .decode(chunk.slice(lineStart, lineEnd - lineStart))
+          .toString()
+          .strip();
+    }
+  }
+}
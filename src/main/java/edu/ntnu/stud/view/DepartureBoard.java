@@ -0,0 +1,321 @@
+package edu.ntnu.stud.view;
+
+import edu.ntnu.stud.model.ConcurrentTrainRegister;
+import edu.ntnu.stud.model.DepartureQuery;
+import edu.ntnu.stud.model.DepartureSnapshot;
+import edu.ntnu.stud.model.TrainDeparture;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The DepartureBoard class shows the next departures of a train register as a live board, like a
+ * station display. A scheduled clock advances the clock of the register and departs trains.
+ *
+ * <p>The board is drawn once, and after that only the lines that changed are redrawn, by moving the
+ * cursor to the line with an ANSI escape code and overwriting it. All changes of a tick are written
+ * to the console at once. The register clock is only set to whole minutes, so a tick that does not
+ * reach the next minute leaves the register unchanged, and the board is not rebuilt.
+ *
+ * <p>The clock thread changes the register while other threads may use it, so the board takes a
+ * {@link ConcurrentTrainRegister} and draws each frame from one snapshot. If a tick fails, the
+ * board stops its clock and shows the error in place of the prompt, instead of freezing silently.
+ */
+public class DepartureBoard {
+  private static final String CLEAR_SCREEN = "\u001b[2J";
+  private static final String CLEAR_LINE = "\u001b[K";
+  private static final String HIDE_CURSOR = "\u001b[?25l";
+  private static final String SHOW_CURSOR = "\u001b[?25h";
+
+  // Screen lines, starting at 1
+  private static final int CLOCK_LINE = 1;
+  private static final int HEADER_LINE = 3;
+  private static final int FIRST_ROW_LINE = 5;
+
+  private final ConcurrentTrainRegister trainRegister;
+  private final String[] header;
+  private final int[] columnWidths;
+  private final Function<TrainDeparture, String[]> rowFormatter;
+  private final PrintStream out;
+  private final String[] drawnLines;
+  private final StringBuilder frame;
+
+  private ScheduledExecutorService clock;
+  private LocalDateTime boardTime;
+  private long drawnVersion;
+  private long lastTick;
+  private long speed;
+  private boolean stopped;
+
+  /**
+   * Constructs a departure board.
+   *
+   * @param trainRegister the register to show and advance the clock of
+   * @param header the header of each column
+   * @param columnWidths the width of each column
+   * @param rowFormatter formats a departure as one cell per column
+   * @param rows the number of departures to show
+   * @param out the stream to draw the board on
+   * @throws IllegalArgumentException if the number of rows is not positive, or the header and
+   *     column widths do not have the same length
+   */
+  public DepartureBoard(
+      ConcurrentTrainRegister trainRegister,
+      String[] header,
+      int[] columnWidths,
+      Function<TrainDeparture, String[]> rowFormatter,
+      int rows,
+      PrintStream out) {
+    if (rows <= 0) {
+      throw new IllegalArgumentException("Number of rows must be positive");
+    }
+    if (header.length != columnWidths.length) {
+      throw new IllegalArgumentException("Every column must have a width");
+    }
+    this.trainRegister = trainRegister;
+    this.header = header.clone();
+    this.columnWidths = columnWidths.clone();
+    this.rowFormatter = rowFormatter;
+    this.out = out;
+    // The clock line, followed by one line per row
+    this.drawnLines = new String[rows + 1];
+    this.frame = new StringBuilder();
+  }
+
+  /**
+   * Draws the board and starts the clock. Each tick advances the clock of the register by the real
+   * time since the last tick, multiplied by the speed, and then departs trains.
+   *
+   * @param tickInterval the time between ticks
+   * @param speed how many times faster than real time the clock runs
+   * @throws IllegalStateException if the board is already running
+   * @throws IllegalArgumentException if the tick interval or speed is not positive
+   */
+  public synchronized void start(Duration tickInterval, long speed) {
+    if (clock != null) {
+      throw new IllegalStateException("Board is already running");
+    }
+    if (tickInterval.isNegative() || tickInterval.isZero() || speed <= 0) {
+      throw new IllegalArgumentException("Tick interval and speed must be positive");
+    }
+
+    this.speed = speed;
+    stopped = false;
+    boardTime = trainRegister.getClockDateTime();
+    drawFrame();
+    lastTick = System.nanoTime();
+
+    clock =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "departure-board-clock");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long interval = tickInterval.toNanos();
+    clock.scheduleAtFixedRate(this::tickRealTime, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops the clock and waits for the current tick to finish. Moves the cursor below the board, so
+   * the console can be used again. The board is marked as stopped before waiting, and the wait
+   * happens outside the monitor, so a tick waiting for the monitor returns without drawing.
+   */
+  public void stop() {
+    ScheduledExecutorService stoppedClock;
+    synchronized (this) {
+      if (clock == null) {
+        return;
+      }
+      stoppedClock = clock;
+      clock = null;
+      stopped = true;
+    }
+
+    stoppedClock.shutdown();
+    try {
+      stoppedClock.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized (this) {
+      out.print(moveTo(FIRST_ROW_LINE + drawnLines.length) + SHOW_CURSOR);
+      out.flush();
+    }
+  }
+
+  /**
+   * Advances the clock by the real time since the last tick, times the speed. An exception would
+   * cancel the schedule without a trace, so it stops the board with the error shown instead.
+   */
+  private void tickRealTime() {
+    long now = System.nanoTime();
+    long elapsed = now - lastTick;
+    lastTick = now;
+    try {
+      tick(Duration.ofNanos(elapsed).multipliedBy(speed));
+    } catch (RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Stops the clock after a failed tick and shows the error in place of the prompt. The board stays
+   * on the screen until {@link #stop()} restores the cursor.
+   *
+   * @param error the exception thrown by the tick
+   */
+  private synchronized void fail(RuntimeException error) {
+    if (stopped) {
+      return;
+    }
+    stopped = true;
+    clock.shutdown();
+
+    frame.setLength(0);
+    frame
+        .append(moveTo(FIRST_ROW_LINE + drawnLines.length))
+        .append("Board stopped: ")
+        .append(error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage())
+        .append(". Press Enter to return")
+        .append(CLEAR_LINE);
+    write();
+  }
+
+  /**
+   * Advances the clock of the board, departs trains and redraws the lines that changed. The
+   * register clock follows the board clock in whole minutes, and runs on into the next day.
+   *
+   * @param advance how much to advance the clock
+   */
+  synchronized void tick(Duration advance) {
+    if (stopped) {
+      return;
+    }
+    if (boardTime == null) {
+      boardTime = trainRegister.getClockDateTime();
+    }
+    boardTime = boardTime.plus(advance);
+
+    LocalDateTime minute = boardTime.truncatedTo(ChronoUnit.MINUTES);
+    if (minute.isAfter(trainRegister.getClockDateTime())) {
+      trainRegister.setClockAndDepartTrains(minute);
+    }
+
+    DepartureSnapshot snapshot = trainRegister.getSnapshot();
+    if (snapshot.getVersion() != drawnVersion) {
+      frame.setLength(0);
+      appendChangedLines(snapshot);
+      write();
+    }
+  }
+
+  /** Clears the screen and draws the whole board. */
+  private void drawFrame() {
+    frame.setLength(0);
+    frame.append(CLEAR_SCREEN).append(HIDE_CURSOR);
+    frame.append(moveTo(HEADER_LINE));
+    appendRow(header);
+    frame.append(moveTo(HEADER_LINE + 1));
+    for (int columnWidth : columnWidths) {
+      frame.append("-".repeat(columnWidth)).append("  ");
+    }
+    frame.append(moveTo(FIRST_ROW_LINE + drawnLines.length)).append("Press Enter to stop");
+
+    Arrays.fill(drawnLines, null);
+    appendChangedLines(trainRegister.getSnapshot());
+    write();
+  }
+
+  /**
+   * Builds every line of the board from a snapshot, and adds the lines that differ from what is on
+   * the screen to the frame.
+   *
+   * @param snapshot the snapshot of the register to draw
+   */
+  private void appendChangedLines(DepartureSnapshot snapshot) {
+    drawnVersion = snapshot.getVersion();
+    updateLine(
+        0,
+        CLOCK_LINE,
+        "Departures          Clock " + snapshot.getClock().truncatedTo(ChronoUnit.MINUTES));
+
+    // Only the departures on the board are read, however large the register is
+    DepartureQuery notLeft =
+        DepartureQuery.all().between(snapshot.getClockDateTime(), LocalDateTime.MAX);
+    List<TrainDeparture> departures =
+        snapshot.findDepartures(notLeft, drawnLines.length - 1, null).getDepartures();
+    for (int i = 0; i < drawnLines.length - 1; i++) {
+      String line = "";
+      if (i < departures.size()) {
+        int start = frame.length();
+        appendRow(rowFormatter.apply(departures.get(i)));
+        line = frame.substring(start);
+        frame.setLength(start);
+      }
+      updateLine(i + 1, FIRST_ROW_LINE + i, line);
+    }
+  }
+
+  /** Writes the frame to the console in one write, if anything changed. */
+  private void write() {
+    if (frame.length() > 0) {
+      out.print(frame);
+      out.flush();
+    }
+  }
+
+  /**
+   * Adds a line to the frame if it differs from the line on the screen.
+   *
+   * @param index the index of the line in drawnLines
+   * @param screenLine the line on the screen, starting at 1
+   * @param line the new content of the line
+   */
+  private void updateLine(int index, int screenLine, String line) {
+    if (line.equals(drawnLines[index])) {
+      return;
+    }
+    frame.append(moveTo(screenLine)).append(line).append(CLEAR_LINE);
+    drawnLines[index] = line;
+  }
+
+  /**
+   * Appends the cells of a row to the frame, each padded to the width of its column. Plain cells
+   * that are too wide are cut off, so the columns stay aligned.
+   *
+   * @param cells the cells of the row
+   */
+  private void appendRow(String[] cells) {
+    for (int i = 0; i < columnWidths.length; i++) {
+      String cell = cells[i];
+      int width = TableFormatter.getRenderedLength(cell);
+      if (width > columnWidths[i] && width == cell.length()) {
+        cell = cell.substring(0, columnWidths[i]);
+        width = columnWidths[i];
+      }
+      frame.append(cell);
+      for (int j = width; j < columnWidths[i] + 2; j++) {
+        frame.append(' ');
+      }
+    }
+  }
+
+  /**
+   * Returns the escape code that moves the cursor to the start of a line.
+   *
+   * @param line the line on the screen, starting at 1
+   * @return the escape code
+   */
+  private static String moveTo(int line) {
+    return "\u001b[" + line + ";1H";
+  }
+}
@@ -0,0 +1,161 @@
+package edu.ntnu.stud.view;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The StreamingTableWriter class writes tables in the same format as {@link TableFormatter}, but
+ * without holding the whole table in memory. Rows are read from an iterator and written to a
+ * buffered Writer as they are produced, so output starts right away and memory use does not grow
+ * with the number of rows.
+ *
+ * <p>Column widths are computed from the header, optional minimum widths, and a bounded first pass
+ * over the first rows. A cell in a later row that is wider than its column is cut off with '…', so
+ * the table stays aligned. Cells with escape codes are never cut, so columns with escape codes
+ * should have a minimum width that fits every cell.
+ *
+ * <p>With paging, the table is closed after every page, and the writer asks whether to continue
+ * before writing the next page.
+ */
+public class StreamingTableWriter {
+  private static final char TRUNCATION_MARK = '…';
+
+  private final Writer out;
+  private final int sampleSize;
+  private int[] minimumWidths;
+  private int pageSize;
+  private BooleanSupplier nextPage;
+
+  /**
+   * Constructs a streaming table writer.
+   *
+   * @param out the Writer to write tables to. Wrapped in a BufferedWriter if it is not buffered.
+   * @param sampleSize the number of rows read before writing, to compute the column widths
+   * @throws IllegalArgumentException if the sample size is not positive
+   */
+  public StreamingTableWriter(Writer out, int sampleSize) {
+    if (sampleSize <= 0) {
+      throw new IllegalArgumentException("Sample size must be positive");
+    }
+    this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+    this.sampleSize = sampleSize;
+    this.minimumWidths = new int[0];
+  }
+
+  /**
+   * Sets the minimum width of each column, for columns with a known maximum width.
+   *
+   * @param minimumWidths the minimum widths, in column order
+   */
+  public void setMinimumWidths(int... minimumWidths) {
+    this.minimumWidths = minimumWidths.clone();
+  }
+
+  /**
+   * Splits the table into pages. After each full page, the output is flushed and nextPage is asked
+   * whether to write the next page.
+   *
+   * @param pageSize the number of rows per page
+   * @param nextPage returns true to write the next page, or false to stop
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public void setPaging(int pageSize, BooleanSupplier nextPage) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    this.pageSize = pageSize;
+    this.nextPage = nextPage;
+  }
+
+  /**
+   * Writes a table with the given header and rows, and flushes the output. The Writer is not
+   * closed.
+   *
+   * @param header the header of each column
+   * @param rows the rows of the table, each with one cell per column
+   * @return the number of rows written
+   * @throws IOException if the table cannot be written
+   */
+  public long writeTable(String[] header, Iterator<String[]> rows) throws IOException {
+    ArrayList<String[]> sample = new ArrayList<>(sampleSize);
+    while (sample.size() < sampleSize && rows.hasNext()) {
+      sample.add(rows.next());
+    }
+
+    int[] columnWidths = new int[header.length];
+    for (int i = 0; i < header.length; i++) {
+      columnWidths[i] = TableFormatter.getRenderedLength(header[i]);
+      if (i < minimumWidths.length) {
+        columnWidths[i] = Math.max(columnWidths[i], minimumWidths[i]);
+      }
+    }
+    for (String[] row : sample) {
+      for (int i = 0; i < columnWidths.length; i++) {
+        columnWidths[i] = Math.max(columnWidths[i], TableFormatter.getRenderedLength(row[i]));
+      }
+    }
+
+    String horizontalLine = TableFormatter.buildHorizontalLine(columnWidths);
+    int[] cellWidths = new int[columnWidths.length];
+    String[] cells = new String[columnWidths.length];
+
+    out.append(horizontalLine);
+    writeRow(header, columnWidths, cellWidths, cells);
+    out.append(horizontalLine);
+
+    long written = 0;
+    while (written < sample.size() || rows.hasNext()) {
+      if (pageSize > 0 && written > 0 && written % pageSize == 0) {
+        out.append(horizontalLine);
+        out.flush();
+        if (!nextPage.getAsBoolean()) {
+          return written;
+        }
+        out.append(horizontalLine);
+      }
+
+      String[] row;
+      if (written < sample.size()) {
+        // Rows are written once, so the sample does not have to keep them
+        row = sample.set((int) written, null);
+      } else {
+        row = rows.next();
+      }
+      writeRow(row, columnWidths, cellWidths, cells);
+      written++;
+    }
+
+    out.append(horizontalLine);
+    out.flush();
+    return written;
+  }
+
+  /**
+   * Writes a row, cutting off cells that are wider than their column.
+   *
+   * @param row the cells of the row
+   * @param columnWidths the widths of each column
+   * @param cellWidths reused array for the rendered width of each cell
+   * @param cells reused array for the cells to write
+   * @throws IOException if the row cannot be written
+   */
+  private void writeRow(String[] row, int[] columnWidths, int[] cellWidths, String[] cells)
+      throws IOException {
+    for (int i = 0; i < columnWidths.length; i++) {
+      String cell = row[i];
+      int width = TableFormatter.getRenderedLength(cell);
+      if (width > columnWidths[i] && width == cell.length() && columnWidths[i] > 0) {
+        cell = cell.substring(0, columnWidths[i] - 1) + TRUNCATION_MARK;
+        width = columnWidths[i];
+      }
+      cells[i] = cell;
+      cellWidths[i] = width;
+    }
+
+    TableFormatter.writeRow(cells, cellWidths, 0, columnWidths, out);
+  }
+}
@@ -1,6 +1,16 @@
 package edu.ntnu.stud.view;
 
-/** The TableFormatter class provides utility methods for building formatted tables. */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The TableFormatter class provides utility methods for building formatted tables.
+ *
+ * <p>The rendered width of each cell is measured once, by a scanner that skips ANSI escape codes,
+ * and reused for the column widths and the padding of the cell. The table is written straight into
+ * one builder presized to the exact length of the table, or into a given {@link Appendable}, so
+ * apart from the output only the array of widths is allocated.
+ */
 public class TableFormatter {
   private static int padding = 2;
 
@@ -20,43 +30,91 @@ public class TableFormatter {
       throw new IllegalArgumentException("Table cannot be empty");
     }
 
-    int[] columnWidths = getColumnWidths(table);
-    StringBuilder sb = new StringBuilder();
+    int[] cellWidths = getCellWidths(table);
+    int[] columnWidths = getColumnWidths(table, cellWidths);
 
-    sb.append(buildHorizontalLine(columnWidths));
-    sb.append(buildRow(table[0], columnWidths));
-    sb.append(buildHorizontalLine(columnWidths));
+    // Every line is as long as the horizontal line, plus the escape codes in its cells
+    int lineLength = getHorizontalLineLength(columnWidths);
+    long length = (long) (table.length + 3) * lineLength;
+    int columns = columnWidths.length;
+    for (int i = 0; i < table.length; i++) {
+      for (int j = 0; j < columns; j++) {
+        length += table[i][j].length() - cellWidths[i * columns + j];
+      }
+    }
 
-    for (int i = 1; i < table.length; i++) {
-      sb.append(buildRow(table[i], columnWidths));
+    StringBuilder sb = new StringBuilder(Math.toIntExact(length));
+    try {
+      writeTable(table, cellWidths, columnWidths, sb);
+    } catch (IOException e) {
+      // A StringBuilder never throws IOException
+      throw new UncheckedIOException(e);
     }
+    return sb.toString();
+  }
 
-    sb.append(buildHorizontalLine(columnWidths));
+  /**
+   * Writes a formatted table to an Appendable, such as a Writer.
+   *
+   * @param table The 2D array representing the table data.
+   * @param out The Appendable to write the table to.
+   * @throws IllegalArgumentException if the table is empty.
+   * @throws IOException if the table cannot be written.
+   */
+  public static void buildTable(String[][] table, Appendable out) throws IOException {
+    if (table.length == 0) {
+      throw new IllegalArgumentException("Table cannot be empty");
+    }
 
-    return sb.toString();
+    int[] cellWidths = getCellWidths(table);
+    writeTable(table, cellWidths, getColumnWidths(table, cellWidths), out);
   }
 
   /**
-   * Builds a row of a table with the given rowData and columnWidths.
+   * Writes the header, the rows and the horizontal lines of a table.
    *
-   * @param rowData the data for each column in the row
+   * @param table the table data
+   * @param cellWidths the rendered width of each cell, row by row
    * @param columnWidths the widths of each column in the table
-   * @return the formatted row as a string
+   * @param out the Appendable to write to
+   * @throws IOException if the table cannot be written
    */
-  private static String buildRow(String[] rowData, int[] columnWidths) {
-    StringBuilder sb = new StringBuilder();
-
-    for (int i = 0; i < rowData.length; i++) {
-      sb.append("|");
-      sb.append(" ".repeat(padding));
-      sb.append(rowData[i]);
-      sb.append(" ".repeat(columnWidths[i] - getRenderedLength(rowData[i])));
-      sb.append(" ".repeat(padding));
+  private static void writeTable(
+      String[][] table, int[] cellWidths, int[] columnWidths, Appendable out) throws IOException {
+    String horizontalLine = buildHorizontalLine(columnWidths);
+
+    out.append(horizontalLine);
+    writeRow(table[0], cellWidths, 0, columnWidths, out);
+    out.append(horizontalLine);
+
+    for (int i = 1; i < table.length; i++) {
+      writeRow(table[i], cellWidths, i * columnWidths.length, columnWidths, out);
     }
 
-    sb.append("|\n");
+    out.append(horizontalLine);
+  }
 
-    return sb.toString();
+  /**
+   * Writes a row of a table with the given rowData and columnWidths.
+   *
+   * @param rowData the data for each column in the row
+   * @param cellWidths the rendered width of each cell in the table
+   * @param offset the index of the first cell of the row in cellWidths
+   * @param columnWidths the widths of each column in the table
+   * @param out the Appendable to write to
+   * @throws IOException if the row cannot be written
+   */
+  static void writeRow(
+      String[] rowData, int[] cellWidths, int offset, int[] columnWidths, Appendable out)
+      throws IOException {
+    for (int i = 0; i < columnWidths.length; i++) {
+      out.append('|');
+      appendRepeated(out, ' ', padding);
+      out.append(rowData[i]);
+      appendRepeated(out, ' ', columnWidths[i] - cellWidths[offset + i] + padding);
+    }
+
+    out.append("|\n");
   }
 
   /**
@@ -65,12 +123,14 @@ public class TableFormatter {
    * @param columnWidths an array of column widths
    * @return the horizontal line string
    */
-  private static String buildHorizontalLine(int[] columnWidths) {
-    StringBuilder sb = new StringBuilder();
+  static String buildHorizontalLine(int[] columnWidths) {
+    StringBuilder sb = new StringBuilder(getHorizontalLineLength(columnWidths));
 
     for (int columnWidth : columnWidths) {
-      sb.append("+");
-      sb.append("-".repeat(columnWidth + padding * 2));
+      sb.append('+');
+      for (int i = 0; i < columnWidth + padding * 2; i++) {
+        sb.append('-');
+      }
     }
 
     sb.append("+\n");
@@ -79,31 +139,117 @@ public class TableFormatter {
   }
 
   /**
-   * Calculates the rendered length of a string by removing ANSI escape codes.
+   * Returns the length of a horizontal line, including the line break. Every row of the table has
+   * the same rendered length.
+   *
+   * @param columnWidths an array of column widths
+   * @return the length of a horizontal line
+   */
+  private static int getHorizontalLineLength(int[] columnWidths) {
+    int length = 2;
+    for (int columnWidth : columnWidths) {
+      length += 1 + columnWidth + padding * 2;
+    }
+    return length;
+  }
+
+  /**
+   * Appends a character a number of times.
+   *
+   * @param out the Appendable to write to
+   * @param c the character to append
+   * @param count the number of times to append the character
+   * @throws IOException if the characters cannot be written
+   */
+  private static void appendRepeated(Appendable out, char c, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.append(c);
+    }
+  }
+
+  /**
+   * Calculates the rendered length of a string, which does not include ANSI escape codes. Scans the
+   * string once, skipping every complete escape code of the form ESC [ digits and ';' m.
    *
    * @param str the input string
    * @return the length of the string without ANSI codes
    */
-  private static int getRenderedLength(String str) {
-    String ansiEscapeRegex = "\u001b\\[[;\\d]*m";
-    String withoutAnsi = str.replaceAll(ansiEscapeRegex, "");
+  static int getRenderedLength(String str) {
+    int length = 0;
+    int i = 0;
+    while (i < str.length()) {
+      int escapeEnd = str.charAt(i) == '\u001b' ? getEscapeCodeEnd(str, i) : -1;
+      if (escapeEnd == -1) {
+        length++;
+        i++;
+      } else {
+        i = escapeEnd;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Finds the end of an ANSI escape code starting at the given index.
+   *
+   * @param str the input string
+   * @param start the index of the escape character
+   * @return the index after the escape code, or -1 if there is no complete escape code at start
+   */
+  private static int getEscapeCodeEnd(String str, int start) {
+    int i = start + 1;
+    if (i == str.length() || str.charAt(i) != '[') {
+      return -1;
+    }
+
+    for (i++; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == 'm') {
+        return i + 1;
+      }
+      if (c != ';' && (c < '0' || c > '9')) {
+        return -1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Measures the rendered length of every cell in a table once. Uses {@link
+   * #getRenderedLength(String)}.
+   *
+   * @param table The table represented as a 2D array of strings.
+   * @return The rendered length of each cell, row by row.
+   */
+  private static int[] getCellWidths(String[][] table) {
+    int columns = table[0].length;
+    int[] cellWidths = new int[table.length * columns];
+
+    for (int i = 0; i < table.length; i++) {
+      for (int j = 0; j < columns; j++) {
+        cellWidths[i * columns + j] = getRenderedLength(table[i][j]);
+      }
+    }
 
-    return withoutAnsi.length();
+    return cellWidths;
   }
 
   /**
-   * Calculates the maximum width for each column in a table. Uses {@link
-   * #getRenderedLength(String)} to calculate the rendered length of each string.
+   * Calculates the maximum width for each column in a table from the widths of its cells.
    *
    * @param table The table represented as a 2D array of strings.
+   * @param cellWidths The rendered length of each cell, row by row.
    * @return An array of integers representing the maximum width for each column.
    */
-  private static int[] getColumnWidths(String[][] table) {
-    int[] columnWidths = new int[table[0].length];
+  private static int[] getColumnWidths(String[][] table, int[] cellWidths) {
+    int columns = table[0].length;
+    int[] columnWidths = new int[columns];
 
     for (int i = 0; i < table.length; i++) {
-      for (int j = 0; j < table[0].length; j++) {
-        columnWidths[j] = Math.max(columnWidths[j], getRenderedLength(table[i][j]));
+      for (int j = 0; j < columns; j++) {
+        columnWidths[j] = Math.max(columnWidths[j], cellWidths[i * columns + j]);
       }
     }
 
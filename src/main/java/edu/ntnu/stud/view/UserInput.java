@@ -107,6 +107,65 @@ public class UserInput {
     }
   }
 
+  /**
+   * Reads an optional string from the user.
+   *
+   * @param prompt the text asking for the input
+   * @return the string entered by the user, or null if the user only pressed Enter
+   */
+  public static String readOptionalString(String prompt) {
+    System.out.println(prompt + " (or empty to skip):");
+    String input = scanner.nextLine().strip();
+
+    return input.isEmpty() ? null : input;
+  }
+
+  /**
+   * Reads an optional number that is not negative from the user.
+   *
+   * @param prompt the text asking for the input
+   * @return the number entered by the user, or null if the user only pressed Enter
+   */
+  public static Integer readOptionalNumber(String prompt) {
+    while (true) {
+      String input = readOptionalString(prompt);
+      if (input == null) {
+        return null;
+      }
+
+      try {
+        int number = Integer.parseInt(input);
+        if (number >= 0) {
+          return number;
+        }
+      } catch (NumberFormatException e) {
+        // Asks again below
+      }
+      System.out.println("Please enter a number that is not negative\n");
+    }
+  }
+
+  /**
+   * Reads an optional time in the format (hh:mm) from the user.
+   *
+   * @param prompt the text asking for the input
+   * @return the time entered by the user, or null if the user only pressed Enter
+   */
+  public static LocalTime readOptionalTime(String prompt) {
+    while (true) {
+      String input = readOptionalString(prompt + " in format (hh:mm)");
+      if (input == null) {
+        return null;
+      }
+
+      try {
+        return LocalTime.parse(input);
+      } catch (Exception e) {
+        System.out.println("Please enter a valid time in the format (hh:mm)\n");
+      }
+    }
+  }
+
   /**
    * Reads and returns the train number entered by the user.
    *
@@ -179,6 +238,41 @@ public class UserInput {
     }
   }
 
+  /**
+   * Reads the path of a file from the user.
+   *
+   * @return the path entered by the user as a String
+   */
+  public static String readFilePath() {
+    while (true) {
+      System.out.println("Enter file path:");
+      String path = readNonEmptyString();
+
+      if (!path.isEmpty()) {
+        return path;
+      }
+
+      System.out.println("Path cannot be empty\n");
+    }
+  }
+
+  /**
+   * Asks the user whether to show the next page of a long table.
+   *
+   * @return true if the user pressed Enter, false if the user typed "q"
+   */
+  public static boolean readNextPage() {
+    System.out.println("Press Enter to show more, or type q to stop");
+    String input = scanner.nextLine().trim().toLowerCase();
+
+    return input.isEmpty() || input.charAt(0) != 'q';
+  }
+
+  /** Waits until the user presses Enter. Anything typed before Enter is ignored. */
+  public static void waitForEnter() {
+    scanner.nextLine();
+  }
+
   /**
    * Displays a confirmation dialog to the user and returns their response. The user is prompted to
    * enter "yes" or "no" and the method will keep asking until a valid response is given. If the
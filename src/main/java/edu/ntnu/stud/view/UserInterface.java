@@ -1,10 +1,25 @@
 package edu.ntnu.stud.view;
 
+import edu.ntnu.stud.model.ConcurrentTrainRegister;
+import edu.ntnu.stud.model.DeparturePage;
+import edu.ntnu.stud.model.DepartureQuery;
+import edu.ntnu.stud.model.DepartureSnapshot;
 import edu.ntnu.stud.model.TrainDeparture;
 import edu.ntnu.stud.model.TrainRegister;
+import edu.ntnu.stud.persistence.ImportReport;
+import edu.ntnu.stud.persistence.RegisterSnapshotFile;
+import edu.ntnu.stud.persistence.TimetableImporter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -25,10 +40,15 @@ public class UserInterface {
   private static final int UPDATE_CLOCK_OPTION = 2;
   private static final int SEARCH_MENU_OPTION = 3;
   private static final int ADD_DEPARTURE_OPTION = 4;
+  private static final int IMPORT_TIMETABLE_OPTION = 5;
+  private static final int SAVE_REGISTER_OPTION = 6;
+  private static final int LOAD_REGISTER_OPTION = 7;
+  private static final int DEPARTURE_BOARD_OPTION = 8;
 
   // Search menu options.
   private static final int SEARCH_BY_TRAIN_NUMBER_OPTION = 1;
   private static final int SEARCH_BY_DESTINATION_OPTION = 2;
+  private static final int SEARCH_BY_CRITERIA_OPTION = 3;
 
   // Process trains menu options.
   private static final int DISPLAY_FOUND_TRAINS_OPTION = 1;
@@ -36,8 +56,30 @@ public class UserInterface {
   private static final int CHANGE_TRACK_OPTION = 3;
   private static final int ADD_DELAY_OPTION = 4;
 
+  // Departure tables. The departure column is at most "hh:mm hh:mm" wide.
+  private static final String[] TABLE_HEADER = {
+    "Departure", "Line", "Number", "Destination", "Track", "Delay"
+  };
+  private static final int DEPARTURE_COLUMN_WIDTH = 11;
+  private static final int STREAMING_TABLE_THRESHOLD = 1000;
+  private static final int TABLE_SAMPLE_SIZE = 1000;
+  private static final int TABLE_PAGE_SIZE = 100;
+
+  // Live departure board. The clock runs one minute per second.
+  private static final int[] BOARD_COLUMN_WIDTHS = {DEPARTURE_COLUMN_WIDTH, 6, 6, 20, 5, 6};
+  private static final int BOARD_ROWS = 15;
+  private static final Duration BOARD_TICK_INTERVAL = Duration.ofSeconds(1);
+  private static final long BOARD_CLOCK_SPEED = 60;
+
+  // Tracks. A departure occupies its track for a few minutes before it leaves.
+  private static final int TRACK_DWELL_MINUTES = 5;
+  private static final int STATION_TRACKS = 10;
+
+  // Destination search. Misspelled destinations are found within a few characters.
+  private static final int DESTINATION_MAX_DISTANCE = 2;
+
   // Dependencies
-  private final TrainRegister trainRegister;
+  private TrainRegister trainRegister;
 
   // Menus
   private final Menu mainMenu;
@@ -50,6 +92,7 @@ public class UserInterface {
    */
   public UserInterface() {
     this.trainRegister = new TrainRegister();
+    this.trainRegister.setDwellMinutes(TRACK_DWELL_MINUTES);
 
     this.mainMenu = new Menu("Main Menu");
     this.searchMenu = new Menu("Search Menu");
@@ -66,11 +109,16 @@ public class UserInterface {
     this.mainMenu.addOption(UPDATE_CLOCK_OPTION, "Update clock");
     this.mainMenu.addOption(SEARCH_MENU_OPTION, "Search (delete, change/add track, add delay)");
     this.mainMenu.addOption(ADD_DEPARTURE_OPTION, "Add train departure");
+    this.mainMenu.addOption(IMPORT_TIMETABLE_OPTION, "Import timetable from file");
+    this.mainMenu.addOption(SAVE_REGISTER_OPTION, "Save register to file");
+    this.mainMenu.addOption(LOAD_REGISTER_OPTION, "Load register from file");
+    this.mainMenu.addOption(DEPARTURE_BOARD_OPTION, "Live departure board");
     this.mainMenu.addOption(EXIT_OPTION, "Exit application");
 
     // Add options to search menu
     this.searchMenu.addOption(SEARCH_BY_TRAIN_NUMBER_OPTION, "Search by train number");
     this.searchMenu.addOption(SEARCH_BY_DESTINATION_OPTION, "Search by destination");
+    this.searchMenu.addOption(SEARCH_BY_CRITERIA_OPTION, "Search by several criteria");
     this.searchMenu.addOption(EXIT_OPTION, "Exit to main menu");
 
     // Add options to process trains menu
@@ -109,15 +157,13 @@ public class UserInterface {
     trainRegister.addTrainDeparture(
         new TrainDeparture(LocalTime.of(14, 0), "L9", 450, "Ålesund", 0, Duration.ofMinutes(0)));
 
-    // Sort by time
-    trainRegister.sortByDelayedTime();
-
     handleMainMenu();
   }
 
   /**
    * Handles the main menu of the user interface. Allows the user to display train departures,
-   * update clock and depart trains, open search menu, and add a new train departure.
+   * update clock and depart trains, open search menu, add a new train departure, import a
+   * timetable, save or load the register, and show a live departure board.
    */
   private void handleMainMenu() {
     int option;
@@ -136,6 +182,18 @@ public class UserInterface {
         case ADD_DEPARTURE_OPTION:
           handleAddDeparture();
           break;
+        case IMPORT_TIMETABLE_OPTION:
+          handleImportTimetable();
+          break;
+        case SAVE_REGISTER_OPTION:
+          handleSaveRegister();
+          break;
+        case LOAD_REGISTER_OPTION:
+          handleLoadRegister();
+          break;
+        case DEPARTURE_BOARD_OPTION:
+          handleDepartureBoard();
+          break;
         default:
           break;
       }
@@ -157,6 +215,9 @@ public class UserInterface {
         case SEARCH_BY_DESTINATION_OPTION:
           handleSearchByDestination();
           break;
+        case SEARCH_BY_CRITERIA_OPTION:
+          handleSearchByCriteria();
+          break;
         default:
           break;
       }
@@ -194,17 +255,19 @@ public class UserInterface {
 
   /**
    * Displays the departures of trains. If there are no trains registered, it prints "No trains
-   * registered". Otherwise, it displays a table of departures sorted by delayed time.
+   * registered". Otherwise, it displays a table of departures sorted by delayed time. Reads the
+   * snapshot of the register, which is already partitioned by track and is only rebuilt when the
+   * register has changed.
    */
   private void displayDepartures() {
-    if (trainRegister.getNumTrains() == 0) {
+    DepartureSnapshot snapshot = trainRegister.getSnapshot();
+    if (snapshot.getNumTrains() == 0) {
       System.out.println("No trains registered\n");
       return;
     }
 
-    ArrayList<TrainDeparture> trainDeparturesWithTrack = trainRegister.getDeparturesWithTrack();
-    ArrayList<TrainDeparture> trainDeparturesWithoutTrack =
-        trainRegister.getDeparturesWithoutTrack();
+    List<TrainDeparture> trainDeparturesWithTrack = snapshot.getDeparturesWithTrack();
+    List<TrainDeparture> trainDeparturesWithoutTrack = snapshot.getDeparturesWithoutTrack();
 
     if (!trainDeparturesWithTrack.isEmpty()) {
       System.out.println("Trains with track:");
@@ -225,15 +288,21 @@ public class UserInterface {
     System.out.println("Current time: " + trainRegister.getClock());
     LocalTime newTime = UserInput.readTime();
 
+    LocalDateTime newClock =
+        LocalDateTime.of(trainRegister.getClockDateTime().toLocalDate(), newTime);
     if (newTime.equals(trainRegister.getClock())) {
       System.out.println("Time not updated\n");
       return;
     } else if (newTime.isBefore(trainRegister.getClock())) {
-      System.out.println("Time cannot be set to a time before the current time\n");
-      return;
+      System.out.println("The time is before the current time. Move the clock to the next day?");
+      if (!UserInput.confirmationDialog()) {
+        System.out.println("Time not updated\n");
+        return;
+      }
+      newClock = newClock.plusDays(1);
     }
 
-    trainRegister.setClock(newTime);
+    trainRegister.setClock(newClock);
     ArrayList<TrainDeparture> departedTrains = trainRegister.departTrains();
 
     if (departedTrains.isEmpty()) {
@@ -249,10 +318,16 @@ public class UserInterface {
   /**
    * Handles the addition of a train departure. Reads user input for departure time, line, train
    * number, destination, track, and delay. Creates a new TrainDeparture object with the provided
-   * information and adds it to the train register.
+   * information and adds it to the train register. The departure is scheduled on the current date
+   * of the clock, or on the next day if the time has already passed.
    */
   private void handleAddDeparture() {
-    LocalTime departureTime = UserInput.readTime();
+    LocalTime time = UserInput.readTime();
+    LocalDateTime departureTime =
+        LocalDateTime.of(trainRegister.getClockDateTime().toLocalDate(), time);
+    if (time.isBefore(trainRegister.getClock())) {
+      departureTime = departureTime.plusDays(1);
+    }
     String line = UserInput.readLine();
     int trainNumber = UserInput.readTrainNumber();
     String destination = UserInput.readDestination();
@@ -261,8 +336,81 @@ public class UserInterface {
 
     trainRegister.addTrainDeparture(
         new TrainDeparture(departureTime, line, trainNumber, destination, track, delay));
+  }
 
-    trainRegister.sortByDelayedTime();
+  /**
+   * Handles importing a timetable file. Reads the path from user input, imports the departures in
+   * the file, and prints how many were imported along with the rows that could not be imported.
+   */
+  private void handleImportTimetable() {
+    String path = UserInput.readFilePath();
+
+    ImportReport report;
+    try {
+      report = new TimetableImporter().importFile(Path.of(path), trainRegister);
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("Could not read file: " + e.getMessage() + "\n");
+      return;
+    }
+
+    System.out.println("Imported " + report.getImportedCount() + " train departures");
+    report.getErrors().forEach(System.out::println);
+    System.out.println();
+  }
+
+  /** Handles saving the clock and departures of the register to a snapshot file. */
+  private void handleSaveRegister() {
+    String path = UserInput.readFilePath();
+
+    try {
+      RegisterSnapshotFile.write(trainRegister, Path.of(path));
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("Could not save register: " + e.getMessage() + "\n");
+      return;
+    }
+
+    System.out.println("Register saved\n");
+  }
+
+  /**
+   * Handles loading a register from a snapshot file. The loaded register replaces the current
+   * register, including its clock.
+   */
+  private void handleLoadRegister() {
+    String path = UserInput.readFilePath();
+
+    try {
+      trainRegister = RegisterSnapshotFile.read(Path.of(path));
+      trainRegister.setDwellMinutes(TRACK_DWELL_MINUTES);
+    } catch (IOException | InvalidPathException e) {
+      System.out.println("Could not load register: " + e.getMessage() + "\n");
+      return;
+    }
+
+    System.out.println("Loaded " + trainRegister.getNumTrains() + " train departures\n");
+  }
+
+  /**
+   * Handles the live departure board. Shows the next departures while the clock runs and trains
+   * depart, until the user presses Enter.
+   */
+  private void handleDepartureBoard() {
+    // The board changes the register from its clock thread, so it goes through a concurrent
+    // register until it is stopped
+    DepartureBoard board =
+        new DepartureBoard(
+            new ConcurrentTrainRegister(trainRegister),
+            TABLE_HEADER,
+            BOARD_COLUMN_WIDTHS,
+            this::toTableRow,
+            BOARD_ROWS,
+            System.out);
+
+    board.start(BOARD_TICK_INTERVAL, BOARD_CLOCK_SPEED);
+    UserInput.waitForEnter();
+    board.stop();
+
+    System.out.println("Clock stopped at " + trainRegister.getClock() + "\n");
   }
 
   /**
@@ -289,14 +437,27 @@ public class UserInterface {
   /**
    * Handles the search for train departures by destination. Prompts the user to enter a destination
    * and retrieves a list of train departures to that destination from the train register. If no
-   * train departures are found, a message is displayed. Otherwise, the list of train departures is
-   * displayed and the user is prompted to process the trains further.
+   * destination matches exactly, destinations starting with the input are used, and then
+   * destinations that are spelled almost the same. If no train departures are found, a message is
+   * displayed. Otherwise, the list of train departures is displayed and the user is prompted to
+   * process the trains further.
    */
   private void handleSearchByDestination() {
     String destination = UserInput.readDestination();
     ArrayList<TrainDeparture> trainDepartures =
         trainRegister.findDeparturesToDestination(destination);
 
+    if (trainDepartures.isEmpty()) {
+      List<String> destinations = trainRegister.findDestinationsByPrefix(destination);
+      if (destinations.isEmpty()) {
+        destinations = trainRegister.findSimilarDestinations(destination, DESTINATION_MAX_DISTANCE);
+      }
+      if (!destinations.isEmpty()) {
+        System.out.println("Showing trains to " + String.join(", ", destinations));
+        trainDepartures = trainRegister.findDeparturesToDestinations(destinations);
+      }
+    }
+
     if (trainDepartures.isEmpty()) {
       System.out.println("No trains found\n");
       return;
@@ -308,6 +469,72 @@ public class UserInterface {
     handleProcessTrainsMenu(trainDepartures);
   }
 
+  /**
+   * Handles the search for train departures matching several criteria. Prompts the user for each
+   * criterion, which can be skipped. The found departures are displayed one page at a time, and the
+   * user is prompted to process the trains on the pages that were shown.
+   */
+  private void handleSearchByCriteria() {
+    DepartureQuery query = DepartureQuery.all();
+    String destination = UserInput.readOptionalString("Enter destination");
+    if (destination != null) {
+      query = query.toDestination(destination);
+    }
+    String line = UserInput.readOptionalString("Enter line");
+    if (line != null) {
+      query = query.onLine(line);
+    }
+    Integer track = UserInput.readOptionalNumber("Enter track, 0 for no track");
+    if (track != null) {
+      query = query.onTrack(track);
+    }
+    Integer delay = UserInput.readOptionalNumber("Enter minimum delay in minutes");
+    if (delay != null && delay > 0) {
+      query = query.delayedMoreThan(delay - 1);
+    }
+    LocalTime fromTime = UserInput.readOptionalTime("Enter earliest departure time");
+    LocalTime toTime = UserInput.readOptionalTime("Enter latest departure time");
+    if (fromTime != null || toTime != null) {
+      // A time window ending before it starts ends on the next day
+      LocalDateTime from =
+          fromTime == null ? trainRegister.getClockDateTime() : onClockDate(fromTime);
+      LocalDateTime to = toTime == null ? from.plusDays(1) : onClockDate(toTime);
+      if (to.isBefore(from)) {
+        to = to.plusDays(1);
+      }
+      query = query.between(from, to.plusMinutes(1));
+    }
+
+    DeparturePage page = trainRegister.findDepartures(query, TABLE_PAGE_SIZE);
+    if (page.getDepartures().isEmpty()) {
+      System.out.println("No trains found\n");
+      return;
+    }
+
+    System.out.println("Trains found:");
+    ArrayList<TrainDeparture> foundTrainDepartures = new ArrayList<>();
+    while (true) {
+      displayTable(page.getDepartures());
+      foundTrainDepartures.addAll(page.getDepartures());
+      if (!page.hasNextPage() || !UserInput.readNextPage()) {
+        break;
+      }
+      page = trainRegister.findDepartures(query, TABLE_PAGE_SIZE, page);
+    }
+
+    handleProcessTrainsMenu(foundTrainDepartures);
+  }
+
+  /**
+   * Returns the given time on the current date of the register clock.
+   *
+   * @param time the time
+   * @return the date and time
+   */
+  private LocalDateTime onClockDate(LocalTime time) {
+    return LocalDateTime.of(trainRegister.getClockDateTime().toLocalDate(), time);
+  }
+
   /**
    * Handles the deletion of trains. Prompts the user for confirmation before deleting the trains.
    * If the user confirms, the specified train departures are deleted from the train register. If
@@ -330,26 +557,46 @@ public class UserInterface {
   }
 
   /**
-   * Handles the change of track for a list of train departures.
+   * Handles the change of track for a list of train departures. If the track is occupied when one
+   * of the trains leaves, no track is changed, and the free tracks at the departure time of the
+   * first train are shown instead.
    *
    * @param foundTrainDepartures The list of train departures to be changed.
    */
   private void handleChangeTrack(ArrayList<TrainDeparture> foundTrainDepartures) {
-    // Maybe not allow mulitple trains to change to the same track??
     int newTrack = UserInput.readTrack();
-    trainRegister.changeTracks(foundTrainDepartures, newTrack);
+    try {
+      trainRegister.changeTracks(foundTrainDepartures, newTrack);
+    } catch (IllegalArgumentException e) {
+      LocalDateTime departureTime = foundTrainDepartures.get(0).getDepartureDateTimeWithDelay();
+      System.out.println("Could not change track: " + e.getMessage());
+      System.out.println(
+          "Free tracks at "
+              + departureTime.toLocalTime()
+              + ": "
+              + trainRegister.findFreeTracks(departureTime, STATION_TRACKS)
+              + "\n");
+      return;
+    }
 
     System.out.println("Changed " + foundTrainDepartures.size() + " trains to track " + newTrack);
   }
 
   /**
-   * Handles the addition of delay to a list of train departures.
+   * Handles the addition of delay to a list of train departures. If the delay makes one of the
+   * trains conflict with another train on its track, no delay is added.
    *
    * @param foundTrainDepartures The list of train departures to add delay to.
    */
   private void handleAddDelay(ArrayList<TrainDeparture> foundTrainDepartures) {
     int minutes = (int) UserInput.readDelay().toMinutes();
-    trainRegister.addDelay(foundTrainDepartures, minutes);
+    try {
+      trainRegister.addDelay(foundTrainDepartures, minutes);
+    } catch (IllegalArgumentException e) {
+      System.out.println("Could not add delay: " + e.getMessage());
+      System.out.println("Change the track of the train first.\n");
+      return;
+    }
 
     System.out.println(
         "Added " + minutes + " minutes to " + foundTrainDepartures.size() + " trains");
@@ -363,7 +610,7 @@ public class UserInterface {
    * @return the formatted departure time as a String
    */
   private String formatDelayedDepartureTime(TrainDeparture trainDeparture) {
-    return trainDeparture.getDelay().isZero()
+    return trainDeparture.getDelayMinutes() == 0
         ? trainDeparture.getDepartureTime().toString()
         : trainDeparture.getDepartureTimeWithDelay()
             + " \u001b[9m"
@@ -383,30 +630,64 @@ public class UserInterface {
   }
 
   /**
-   * Displays a table of train departures.
+   * Displays a table of train departures. Short lists are formatted as one table. Lists with more
+   * than {@link #STREAMING_TABLE_THRESHOLD} departures are streamed to the console one page at a
+   * time, without building the whole table first.
    *
    * @param trainDepartures the list of train departures to display
    */
-  private void displayTable(ArrayList<TrainDeparture> trainDepartures) {
-    String[][] table = new String[trainDepartures.size() + 1][6];
-    table[0] = new String[] {"Departure", "Line", "Number", "Destination", "Track", "Delay"};
+  private void displayTable(List<TrainDeparture> trainDepartures) {
+    if (trainDepartures.size() > STREAMING_TABLE_THRESHOLD) {
+      streamTable(trainDepartures);
+      return;
+    }
+
+    String[][] table = new String[trainDepartures.size() + 1][];
+    table[0] = TABLE_HEADER;
 
     for (int i = 0; i < trainDepartures.size(); i++) {
-      TrainDeparture trainDeparture = trainDepartures.get(i);
-      // Maybe more clean to use ArrayList?
-      table[i + 1] =
-          new String[] {
-            formatDelayedDepartureTime(trainDeparture),
-            trainDeparture.getLine(),
-            Integer.toString(trainDeparture.getTrainNumber()),
-            trainDeparture.getDestination(),
-            formatTrackNumber(trainDeparture.getTrack()),
-            (trainDeparture.getDelay().isZero()
-                ? ""
-                : trainDeparture.getDelay().toMinutes() + " min")
-          };
+      table[i + 1] = toTableRow(trainDepartures.get(i));
     }
 
     System.out.println(TableFormatter.buildTable(table));
   }
+
+  /**
+   * Streams a table of train departures to the console, one page at a time. Rows are formatted as
+   * they are written.
+   *
+   * @param trainDepartures the list of train departures to display
+   */
+  private void streamTable(List<TrainDeparture> trainDepartures) {
+    // Flushed but not closed, since closing would close System.out
+    Writer out = new OutputStreamWriter(System.out, Charset.defaultCharset());
+    StreamingTableWriter tableWriter = new StreamingTableWriter(out, TABLE_SAMPLE_SIZE);
+    tableWriter.setMinimumWidths(DEPARTURE_COLUMN_WIDTH);
+    tableWriter.setPaging(TABLE_PAGE_SIZE, UserInput::readNextPage);
+
+    try {
+      tableWriter.writeTable(
+          TABLE_HEADER, trainDepartures.stream().map(this::toTableRow).iterator());
+    } catch (IOException e) {
+      System.out.println("Could not display table: " + e.getMessage());
+    }
+    System.out.println();
+  }
+
+  /**
+   * Formats a train departure as a row of the departure table.
+   *
+   * @param trainDeparture the train departure to format
+   * @return the cells of the row
+   */
+  private String[] toTableRow(TrainDeparture trainDeparture) {
+    return new String[] {
+      formatDelayedDepartureTime(trainDeparture),
+      trainDeparture.getLine(),
+      Integer.toString(trainDeparture.getTrainNumber()),
+      trainDeparture.getDestination(),
+      formatTrackNumber(trainDeparture.getTrack()),
+      (trainDeparture.getDelayMinutes() == 0 ? "" : trainDeparture.getDelayMinutes() + " min")
+    };
+  }
 }
@@ -0,0 +1,57 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the BatchOperation class. */
+public class BatchOperationTest {
+  /** This nested class contains negative tests for the BatchOperation class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Negative delay throws IllegalArgumentException")
+    public void testNegativeDelay() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> BatchOperation.addDelay(-1),
+          "Delay cannot be negative");
+    }
+
+    @Test
+    @DisplayName("Negative track throws IllegalArgumentException")
+    public void testNegativeTrack() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> BatchOperation.changeTrack(-1),
+          "Track cannot be negative");
+    }
+  }
+
+  /** This nested class contains positive tests for the BatchOperation class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Operations change the departure they are applied to")
+    public void testApplyTo() {
+      TrainDeparture trainDeparture =
+          new TrainDeparture(LocalTime.of(13, 45), "L1", 123, "Trondheim", 1, Duration.ZERO);
+
+      BatchOperation.addDelay(10).applyTo(trainDeparture);
+      BatchOperation.changeTrack(4).applyTo(trainDeparture);
+      BatchOperation.delete().applyTo(trainDeparture);
+
+      assertEquals(10, trainDeparture.getDelayMinutes());
+      assertEquals(4, trainDeparture.getTrack());
+      assertTrue(BatchOperation.delete().isDelete());
+    }
+  }
+}
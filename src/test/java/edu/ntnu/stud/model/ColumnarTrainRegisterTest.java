@@ -0,0 +1,229 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class is a test class for the ColumnarTrainRegister class. It uses the same departures as
+ * TrainRegisterTest, so the two registers are checked against the same expectations.
+ */
+public class ColumnarTrainRegisterTest {
+  private ColumnarTrainRegister trainRegister;
+  private TrainDeparture trainDeparture;
+
+  /** Sets up the test environment before each test case. */
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new ColumnarTrainRegister();
+
+    trainDeparture =
+        new TrainDeparture(LocalTime.of(13, 45), "L1", 123, "Trondheim", 1, Duration.ofMinutes(5));
+    trainRegister.addTrainDeparture(trainDeparture);
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(12, 00), "L2", 100, "Oslo", 2, Duration.ofMinutes(0)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(15, 30), "L3", 150, "Bergen", 3, Duration.ofMinutes(10)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(17, 15), "L4", 200, "Stavanger", 4, Duration.ofMinutes(2)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(9, 00), "L5", 250, "Bodø", 5, Duration.ofMinutes(7)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(18, 45), "L6", 300, "Tromsø", 6, Duration.ofMinutes(20)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(5, 30), "L7", 350, "Arendal", 7, Duration.ofMinutes(0)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(23, 0), "L8", 400, "Oslo", 8, Duration.ofMinutes(60)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(14, 0), "L9", 450, "Ålesund", 0, Duration.ofMinutes(0)));
+  }
+
+  /** This nested class contains negative tests for the ColumnarTrainRegister class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Adding train departure with same train number throws exception")
+    public void testAddTrainDepartureWithSameTrainNumber() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.addTrainDeparture(trainDeparture),
+          "Train number already exists");
+    }
+
+    @Test
+    @DisplayName("Modifying a departure that is not in the register throws exception")
+    public void testAddDelayToMissingDeparture() {
+      TrainDeparture missing =
+          new TrainDeparture(LocalTime.of(8, 0), "L1", 1, "Oslo", 1, Duration.ZERO);
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.addDelay(missing.toArrayList(), 5),
+          "One or more train departures does not exist");
+    }
+
+    @Test
+    @DisplayName("Delay overflowing an int throws exception and changes nothing")
+    public void testAddDelayOverflow() {
+      ArrayList<TrainDeparture> trainDepartures = new ArrayList<>();
+      trainDepartures.add(trainRegister.findDepartureByTrainNumber(100));
+      trainDepartures.add(trainDeparture);
+
+      assertThrows(
+          ArithmeticException.class,
+          () -> trainRegister.addDelay(trainDepartures, Integer.MAX_VALUE - 1));
+      assertEquals(0, trainRegister.findDepartureByTrainNumber(100).getDelayMinutes());
+      assertEquals(5, trainRegister.findDepartureByTrainNumber(123).getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("Reading a view of a departure that has left the register throws exception")
+    public void testViewOfDeletedDeparture() {
+      TrainDeparture view = trainRegister.findDepartureByTrainNumber(123);
+      trainRegister.deleteTrainDepartures(view.toArrayList());
+
+      assertEquals(123, view.getTrainNumber());
+      assertThrows(IllegalStateException.class, view::getDestination);
+      assertThrows(IllegalStateException.class, view::getDepartureTimeWithDelay);
+    }
+  }
+
+  /** This nested class contains positive tests for the ColumnarTrainRegister class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Departures found by train number have the values that were added")
+    public void testFindDepartureByTrainNumber() {
+      TrainDeparture found = trainRegister.findDepartureByTrainNumber(123);
+      assertEquals(trainDeparture, found);
+      assertEquals("L1", found.getLine());
+      assertEquals("Trondheim", found.getDestination());
+      assertEquals(LocalTime.of(13, 50), found.getDepartureTimeWithDelay());
+      assertNull(trainRegister.findDepartureByTrainNumber(404));
+    }
+
+    @Test
+    @DisplayName("Departures are returned as shared views that show later changes")
+    public void testViewsShowChanges() {
+      TrainDeparture view = trainRegister.findDepartureByTrainNumber(123);
+      trainRegister.addDelay(view.toArrayList(), 10);
+      trainRegister.changeTracks(view.toArrayList(), 9);
+
+      assertSame(view, trainRegister.findDepartureByTrainNumber(123));
+      assertSame(view, trainRegister.findDeparturesToDestination("Trondheim").get(0));
+      assertEquals(15, view.getDelayMinutes());
+      assertEquals(9, view.getTrack());
+      assertEquals(LocalTime.of(14, 0), view.getDepartureTimeWithDelay());
+    }
+
+    @Test
+    @DisplayName("Departures to a destination are returned sorted by delayed time")
+    public void testFindDeparturesToDestination() {
+      ArrayList<TrainDeparture> departuresToOslo =
+          trainRegister.findDeparturesToDestination("Oslo");
+      assertEquals(2, departuresToOslo.size());
+      assertEquals(100, departuresToOslo.get(0).getTrainNumber());
+      assertEquals(400, departuresToOslo.get(1).getTrainNumber());
+    }
+
+    @Test
+    @DisplayName("Deleting a departure keeps the other rows reachable")
+    public void testDeleteTrainDepartures() {
+      trainRegister.deleteTrainDepartures(trainDeparture.toArrayList());
+
+      assertEquals(8, trainRegister.getNumTrains());
+      assertNull(trainRegister.findDepartureByTrainNumber(123));
+      assertEquals("Ålesund", trainRegister.findDepartureByTrainNumber(450).getDestination());
+    }
+
+    @Test
+    @DisplayName("Track and delay changes are stored in the columns")
+    public void testChangeTrackAndAddDelay() {
+      trainRegister.changeTracks(trainDeparture.toArrayList(), 9);
+      trainRegister.addDelay(trainDeparture.toArrayList(), 10);
+
+      TrainDeparture found = trainRegister.findDepartureByTrainNumber(123);
+      assertEquals(9, found.getTrack());
+      assertEquals(15, found.getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("A departure listed twice is delayed once")
+    public void testAddDelayToDuplicates() {
+      ArrayList<TrainDeparture> trainDepartures = new ArrayList<>();
+      trainDepartures.add(trainDeparture);
+      trainDepartures.add(trainDeparture);
+      trainRegister.addDelay(trainDepartures, 10);
+
+      assertEquals(15, trainRegister.findDepartureByTrainNumber(123).getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("Departures are split by whether they have a track")
+    public void testDeparturesWithAndWithoutTrack() {
+      assertEquals(8, trainRegister.getDeparturesWithTrack().size());
+      ArrayList<TrainDeparture> withoutTrack = trainRegister.getDeparturesWithoutTrack();
+      assertEquals(1, withoutTrack.size());
+      assertEquals(450, withoutTrack.get(0).getTrainNumber());
+    }
+
+    @Test
+    @DisplayName("Departing trains deletes departures before the clock, except past midnight")
+    public void testDepartTrains() {
+      trainRegister.setClock(LocalTime.of(23, 59));
+      ArrayList<TrainDeparture> departed = trainRegister.departTrains();
+
+      assertEquals(8, departed.size());
+      assertEquals(350, departed.get(0).getTrainNumber());
+      assertEquals(1, trainRegister.getNumTrains());
+      assertNotNull(trainRegister.findDepartureByTrainNumber(400));
+    }
+
+    @Test
+    @DisplayName("Departing trains returns copies and follows delays and deletions")
+    public void testDepartTrainsAfterChanges() {
+      trainRegister.addDelay(trainRegister.findDepartureByTrainNumber(350).toArrayList(), 600);
+      trainRegister.deleteTrainDepartures(
+          trainRegister.findDepartureByTrainNumber(100).toArrayList());
+      trainRegister.setClock(LocalTime.of(15, 0));
+      ArrayList<TrainDeparture> departed = trainRegister.departTrains();
+
+      assertEquals(3, departed.size());
+      assertEquals(250, departed.get(0).getTrainNumber());
+      assertEquals(123, departed.get(1).getTrainNumber());
+      assertEquals("Ålesund", departed.get(2).getDestination());
+      assertEquals(
+          LocalTime.of(15, 30),
+          trainRegister.findDepartureByTrainNumber(350).getDepartureTimeWithDelay());
+      assertEquals(5, trainRegister.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("Both registers give the same departures through the shared interface")
+    public void testSharedInterface() {
+      DepartureRegister objectRegister = new TrainRegister();
+      trainRegister
+          .sortByDelayedTime()
+          .forEach(view -> objectRegister.addTrainDeparture(new TrainDeparture(view)));
+      DepartureRegister columnarRegister = trainRegister;
+
+      assertEquals(columnarRegister.sortByDelayedTime(), objectRegister.sortByDelayedTime());
+      objectRegister.setClock(LocalTime.of(14, 0));
+      columnarRegister.setClock(LocalTime.of(14, 0));
+      assertEquals(columnarRegister.departTrains(), objectRegister.departTrains());
+      assertEquals(
+          columnarRegister.getDeparturesWithTrack(), objectRegister.getDeparturesWithTrack());
+    }
+  }
+}
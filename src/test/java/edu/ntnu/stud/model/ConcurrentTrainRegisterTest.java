@@ -0,0 +1,220 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the ConcurrentTrainRegister class. */
+public class ConcurrentTrainRegisterTest {
+  private ConcurrentTrainRegister trainRegister;
+  private TrainDeparture trainDeparture;
+
+  /** Sets up the test environment before each test case. */
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new ConcurrentTrainRegister();
+
+    trainDeparture =
+        new TrainDeparture(LocalTime.of(13, 45), "L1", 123, "Trondheim", 1, Duration.ofMinutes(5));
+    trainRegister.addTrainDeparture(trainDeparture);
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(12, 00), "L2", 100, "Oslo", 2, Duration.ofMinutes(0)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(14, 0), "L9", 450, "Ålesund", 0, Duration.ofMinutes(0)));
+  }
+
+  /** This nested class contains negative tests for the ConcurrentTrainRegister class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Adding train departure with same train number throws exception")
+    public void testAddTrainDepartureWithSameTrainNumber() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.addTrainDeparture(trainDeparture),
+          "Train number already exists");
+    }
+
+    @Test
+    @DisplayName("Snapshots cannot be modified")
+    public void testSnapshotIsUnmodifiable() {
+      List<TrainDeparture> trainDepartures = trainRegister.getTrainDepartures();
+      assertThrows(UnsupportedOperationException.class, trainDepartures::clear);
+    }
+
+    @Test
+    @DisplayName("A change that fails only throws to the writer that made it")
+    public void testConcurrentFailures() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        // Every train number is added twice, so one of the two adds fails
+        int trainNumber = 1000 + i / 2;
+        futures.add(
+            executor.submit(
+                () -> {
+                  try {
+                    trainRegister.addTrainDeparture(
+                        new TrainDeparture(
+                            LocalTime.of(8, 0), "L1", trainNumber, "Oslo", 0, Duration.ZERO));
+                    return true;
+                  } catch (IllegalArgumentException e) {
+                    return false;
+                  }
+                }));
+      }
+      int added = 0;
+      for (Future<Boolean> future : futures) {
+        added += future.get() ? 1 : 0;
+      }
+      executor.shutdown();
+
+      assertEquals(100, added);
+      assertEquals(103, trainRegister.getNumTrains());
+    }
+  }
+
+  /** This nested class contains positive tests for the ConcurrentTrainRegister class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("A snapshot is not changed by later changes to the register")
+    public void testSnapshotIsConsistent() {
+      List<TrainDeparture> before = trainRegister.getTrainDepartures();
+
+      trainRegister.addDelay(trainDeparture.toArrayList(), 30);
+      trainRegister.deleteTrainDepartures(
+          trainRegister.findDepartureByTrainNumber(100).toArrayList());
+
+      assertEquals(3, before.size());
+      assertEquals(5, before.get(1).getDelayMinutes());
+      assertEquals(2, trainRegister.getNumTrains());
+      assertEquals(35, trainRegister.findDepartureByTrainNumber(123).getDelayMinutes());
+      assertNull(trainRegister.findDepartureByTrainNumber(100));
+    }
+
+    @Test
+    @DisplayName("Departures returned by a batch are copies")
+    public void testApplyBatchReturnsCopies() {
+      ArrayList<TrainDeparture> changed =
+          trainRegister.applyBatch(List.of(123), List.of(BatchOperation.addDelay(10)));
+      changed.get(0).setDelay(Duration.ofHours(5));
+
+      assertEquals(15, trainRegister.findDepartureByTrainNumber(123).getDelayMinutes());
+      trainRegister.addDelay(trainDeparture.toArrayList(), 1);
+      assertEquals(16, trainRegister.findDepartureByTrainNumber(123).getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("Setting the clock and departing trains happens as one change")
+    public void testSetClockAndDepartTrains() {
+      ArrayList<TrainDeparture> departed =
+          trainRegister.setClockAndDepartTrains(LocalTime.of(14, 0));
+
+      assertEquals(2, departed.size());
+      assertEquals(LocalTime.of(14, 0), trainRegister.getClock());
+      assertEquals(450, trainRegister.getTrainDepartures().get(0).getTrainNumber());
+    }
+
+    @Test
+    @DisplayName("Terminals can add and delay trains from several threads at once")
+    public void testConcurrentChanges() throws Exception {
+      int threads = 8;
+      int trainsPerThread = 100;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        int firstTrainNumber = 1000 + thread * trainsPerThread;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < trainsPerThread; i++) {
+                    TrainDeparture added =
+                        new TrainDeparture(
+                            LocalTime.of(8, i % 60),
+                            "L1",
+                            firstTrainNumber + i,
+                            "Oslo",
+                            1 + i % 5,
+                            Duration.ZERO);
+                    trainRegister.addTrainDeparture(added);
+                    trainRegister.addDelay(added.toArrayList(), 1);
+                    trainRegister.changeTracks(added.toArrayList(), 2);
+                    assertTrue(trainRegister.getNumTrains() >= 3);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+
+      assertEquals(3 + threads * trainsPerThread, trainRegister.getNumTrains());
+      assertTrue(
+          trainRegister.findDeparturesToDestination("Oslo").stream()
+              .filter(found -> found.getTrainNumber() >= 1000)
+              .allMatch(found -> found.getDelayMinutes() == 1 && found.getTrack() == 2));
+    }
+
+    @Test
+    @DisplayName("Queries and searches are answered while a change holds the lock")
+    public void testReadsDoNotWaitForChanges() throws Exception {
+      CountDownLatch changing = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      trainRegister.subscribe(
+          events -> {
+            changing.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          },
+          16,
+          Runnable::run);
+      ExecutorService writer = Executors.newSingleThreadExecutor();
+      try {
+        Future<?> change =
+            writer.submit(() -> trainRegister.changeTracks(trainDeparture.toArrayList(), 3));
+        assertTrue(changing.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5),
+            () -> {
+              DeparturePage page =
+                  trainRegister.findDepartures(DepartureQuery.all().onTrack(1), 10, null);
+              assertEquals(123, page.getDepartures().get(0).getTrainNumber());
+              assertEquals(List.of(2, 3), trainRegister.findFreeTracks(LocalTime.of(13, 50), 3));
+              assertEquals(List.of("Oslo"), trainRegister.findDestinationsByPrefix("o"));
+              assertEquals(
+                  List.of("Trondheim"), trainRegister.findSimilarDestinations("trondhem", 1));
+            });
+
+        release.countDown();
+        change.get();
+        assertEquals(List.of(1, 2), trainRegister.findFreeTracks(LocalTime.of(13, 50), 3));
+      } finally {
+        release.countDown();
+        writer.shutdown();
+      }
+    }
+  }
+}
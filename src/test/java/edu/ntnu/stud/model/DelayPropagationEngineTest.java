@@ -0,0 +1,154 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the DelayPropagationEngine class. */
+public class DelayPropagationEngineTest {
+  private TrainRegister trainRegister;
+  private DelayPropagationEngine engine;
+
+  /**
+   * Sets up a register with two lines before each test case. Line L1 leaves at 10:00, 10:05 and
+   * 10:30, and line L2 leaves at 10:06 from the same track as the second L1 departure.
+   */
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new TrainRegister();
+    addDeparture(LocalTime.of(10, 0), "L1", 1, 1);
+    addDeparture(LocalTime.of(10, 5), "L1", 2, 2);
+    addDeparture(LocalTime.of(10, 30), "L1", 3, 1);
+    addDeparture(LocalTime.of(10, 6), "L2", 4, 2);
+    engine = new DelayPropagationEngine(trainRegister);
+  }
+
+  private void addDeparture(LocalTime time, String line, int trainNumber, int track) {
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(time, line, trainNumber, "Oslo", track, Duration.ZERO));
+  }
+
+  private int delayOf(int trainNumber) {
+    return trainRegister.findDepartureByTrainNumber(trainNumber).getDelayMinutes();
+  }
+
+  /** This nested class contains negative tests for the DelayPropagationEngine class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Linking a departure to an earlier departure throws IllegalArgumentException")
+    public void testBackwardLink() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> engine.link(3, 1, 5),
+          "A link must go from an earlier to a later departure");
+    }
+
+    @Test
+    @DisplayName("Pushing delay to a missing train changes nothing")
+    public void testMissingTrain() {
+      engine.linkLines(3);
+
+      assertThrows(IllegalArgumentException.class, () -> engine.pushDelay(List.of(1, 99), 10));
+      assertEquals(0, delayOf(1));
+    }
+
+    @Test
+    @DisplayName("A propagated delay that conflicts on a track changes nothing")
+    public void testConflictChangesNothing() {
+      trainRegister.setDwellMinutes(2);
+      addDeparture(LocalTime.of(10, 20), "L3", 5, 1);
+      engine.linkLines(3);
+
+      // 2 would get 16 minutes, and 1 would leave at 10:18, too close to 5 on track 1
+      assertThrows(IllegalArgumentException.class, () -> engine.pushDelay(List.of(1), 18));
+      assertEquals(0, delayOf(1));
+      assertEquals(0, delayOf(2));
+    }
+
+    @Test
+    @DisplayName("A propagated delay that overflows changes nothing")
+    public void testOverflowChangesNothing() {
+      trainRegister.addDelay(trainRegister.findDepartureByTrainNumber(3).toArrayList(), 20);
+      engine.linkLines(3);
+      engine.link(1, 3, 40);
+      long version = trainRegister.getVersion();
+
+      assertThrows(
+          ArithmeticException.class, () -> engine.pushDelay(List.of(1), Integer.MAX_VALUE - 5));
+      assertEquals(0, delayOf(1));
+      assertEquals(0, delayOf(2));
+      assertEquals(20, delayOf(3));
+      assertEquals(version, trainRegister.getVersion());
+    }
+  }
+
+  /** This nested class contains positive tests for the DelayPropagationEngine class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Delay propagates along a line until there is enough slack")
+    public void testLinePropagation() {
+      engine.linkLines(3);
+
+      Map<Integer, Integer> added = engine.pushDelay(List.of(1), 10);
+
+      assertEquals(Map.of(1, 10, 2, 8), added);
+      assertEquals(10, delayOf(1));
+      assertEquals(8, delayOf(2));
+      assertEquals(0, delayOf(3));
+      assertEquals(0, delayOf(4));
+    }
+
+    @Test
+    @DisplayName("A departure delayed by several links gets the largest required delay")
+    public void testLargestDelayWins() {
+      engine.linkLines(3);
+      engine.linkTracks(2);
+      engine.link(1, 4, 15);
+
+      Map<Integer, Integer> added = engine.pushDelay(List.of(1), 10);
+
+      // 4 needs 10:25 through the explicit link, and 10:15 through the track turnaround
+      assertEquals(Map.of(1, 10, 2, 8, 4, 19), added);
+      assertEquals(List.of(1, 2, 4), List.copyOf(added.keySet()));
+    }
+
+    @Test
+    @DisplayName("Linking the same departures again replaces the gap")
+    public void testRelinkReplacesGap() {
+      engine.linkLines(3);
+      engine.linkLines(3);
+      engine.link(1, 2, 20);
+      engine.link(1, 2, 5);
+
+      Map<Integer, Integer> added = engine.pushDelay(List.of(1), 10);
+
+      // 2 needs 10:15 through the last gap given, and 3 is still far enough behind it
+      assertEquals(Map.of(1, 10, 2, 10), added);
+    }
+
+    @Test
+    @DisplayName("Links do not carry over to a later departure with the same train number")
+    public void testReusedTrainNumber() {
+      engine.link(1, 2, 5);
+      trainRegister.applyBatch(List.of(2), List.of(BatchOperation.delete()));
+      addDeparture(LocalTime.of(11, 0), "L1", 2, 2);
+
+      Map<Integer, Integer> added = engine.pushDelay(List.of(1), 60);
+
+      assertEquals(Map.of(1, 60), added);
+      assertEquals(0, delayOf(2));
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the DepartureQuery class and the queries of the register. */
+public class DepartureQueryTest {
+  private TrainRegister trainRegister;
+
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new TrainRegister();
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(9, 0), "L5", 250, "Bodø", 5, Duration.ofMinutes(7)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(12, 0), "L2", 100, "Oslo", 2, Duration.ofMinutes(0)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(13, 45), "L1", 123, "Trondheim", 1, Duration.ofMinutes(5)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(14, 0), "L9", 450, "Ålesund", 0, Duration.ofMinutes(0)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(15, 30), "L2", 150, "Oslo", 3, Duration.ofMinutes(10)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(17, 15), "L4", 200, "Oslo", 0, Duration.ofMinutes(2)));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(23, 0), "L8", 400, "Oslo", 2, Duration.ofMinutes(60)));
+  }
+
+  /** This nested class contains negative tests for the DepartureQuery class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Negative track throws IllegalArgumentException")
+    public void testNegativeTrack() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> DepartureQuery.all().onTrack(-1),
+          "Track cannot be negative");
+    }
+
+    @Test
+    @DisplayName("Negative delay throws IllegalArgumentException")
+    public void testNegativeDelay() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> DepartureQuery.all().delayedMoreThan(-1),
+          "Delay cannot be negative");
+    }
+
+    @Test
+    @DisplayName("Time window ending before it starts throws IllegalArgumentException")
+    public void testFromAfterTo() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> DepartureQuery.all().between(onEpochDay(12, 0), onEpochDay(11, 0)),
+          "From time cannot be after to time");
+    }
+
+    @Test
+    @DisplayName("Null destination throws NullPointerException")
+    public void testNullDestination() {
+      assertThrows(
+          NullPointerException.class,
+          () -> DepartureQuery.all().toDestination(null),
+          "Destination cannot be null");
+    }
+
+    @Test
+    @DisplayName("Page size that is not positive throws IllegalArgumentException")
+    public void testPageSizeNotPositive() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.findDepartures(DepartureQuery.all(), 0),
+          "Page size must be positive");
+    }
+  }
+
+  /** This nested class contains positive tests for the DepartureQuery class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Criteria are combined")
+    public void testCombinedCriteria() {
+      DepartureQuery query = DepartureQuery.all().toDestination("Oslo").onLine("L2").withTrack();
+      assertEquals(List.of(100, 150), trainNumbers(trainRegister.findDepartures(query, 10)));
+
+      query = query.delayedMoreThan(5);
+      assertEquals(List.of(150), trainNumbers(trainRegister.findDepartures(query, 10)));
+
+      query = query.onTrack(2);
+      assertEquals(List.of(), trainNumbers(trainRegister.findDepartures(query, 10)));
+    }
+
+    @Test
+    @DisplayName("Departures without a track are found")
+    public void testWithoutTrack() {
+      DepartureQuery query = DepartureQuery.all().withoutTrack();
+
+      assertEquals(List.of(450, 200), trainNumbers(trainRegister.findDepartures(query, 10)));
+    }
+
+    @Test
+    @DisplayName("Unknown destination finds nothing")
+    public void testUnknownDestination() {
+      DeparturePage page =
+          trainRegister.findDepartures(DepartureQuery.all().toDestination("Narvik"), 10);
+
+      assertTrue(page.getDepartures().isEmpty());
+      assertFalse(page.hasNextPage());
+      assertEquals(0, page.getScanned());
+    }
+
+    @Test
+    @DisplayName("Pages continue after the previous page")
+    public void testPaging() {
+      DepartureQuery query = DepartureQuery.all();
+      List<Integer> found = new ArrayList<>();
+
+      DeparturePage page = trainRegister.findDepartures(query, 3);
+      found.addAll(trainNumbers(page));
+      assertTrue(page.hasNextPage());
+      page = trainRegister.findDepartures(query, 3, page);
+      found.addAll(trainNumbers(page));
+      assertTrue(page.hasNextPage());
+      page = trainRegister.findDepartures(query, 3, page);
+      found.addAll(trainNumbers(page));
+      assertFalse(page.hasNextPage());
+
+      assertEquals(List.of(250, 100, 123, 450, 150, 200, 400), found);
+    }
+
+    @Test
+    @DisplayName("Snapshots answer queries page by page like the register")
+    public void testSnapshotQueries() {
+      DepartureSnapshot snapshot = trainRegister.getSnapshot();
+      List<DepartureQuery> queries =
+          List.of(
+              DepartureQuery.all(),
+              DepartureQuery.all().toDestination("Oslo").delayedMoreThan(5),
+              DepartureQuery.all().toDestination("Oslo").onTrack(2),
+              DepartureQuery.all().between(onEpochDay(13, 0), onEpochDay(16, 0)),
+              DepartureQuery.all().toDestination("Narvik"));
+      for (DepartureQuery query : queries) {
+        DeparturePage expected = trainRegister.findDepartures(query, 2);
+        DeparturePage actual = snapshot.findDepartures(query, 2, null);
+        while (true) {
+          assertEquals(trainNumbers(expected), trainNumbers(actual));
+          assertEquals(expected.getScanned(), actual.getScanned());
+          assertEquals(expected.hasNextPage(), actual.hasNextPage());
+          if (!expected.hasNextPage()) {
+            break;
+          }
+          expected = trainRegister.findDepartures(query, 2, expected);
+          actual = snapshot.findDepartures(query, 2, actual);
+        }
+      }
+    }
+
+    @Test
+    @DisplayName("A page after an empty page starts at the time window of the query")
+    public void testPageAfterEmptyPage() {
+      DepartureQuery query = DepartureQuery.all().between(onEpochDay(13, 0), onEpochDay(16, 0));
+      DeparturePage empty = trainRegister.findDepartures(query.toDestination("Narvik"), 3);
+      assertTrue(empty.getDepartures().isEmpty());
+
+      DeparturePage page = trainRegister.findDepartures(query, 10, empty);
+      assertEquals(List.of(123, 450, 150), trainNumbers(page));
+      assertEquals(3, page.getScanned());
+    }
+
+    @Test
+    @DisplayName("The smallest index covering a criterion is read instead of every departure")
+    public void testSmallestIndexChosen() {
+      DepartureQuery toOslo = DepartureQuery.all().toDestination("Oslo");
+
+      DeparturePage page = trainRegister.findDepartures(toOslo.delayedMoreThan(5), 10);
+      assertEquals(List.of(150, 400), trainNumbers(page));
+      assertEquals(4, page.getScanned());
+
+      // Two departures leave from track 2, and four go to Oslo
+      page = trainRegister.findDepartures(toOslo.onTrack(2), 10);
+      assertEquals(List.of(100, 400), trainNumbers(page));
+      assertEquals(2, page.getScanned());
+    }
+
+    @Test
+    @DisplayName("The time window limits the departures read")
+    public void testTimeWindowPushedDown() {
+      DepartureQuery query = DepartureQuery.all().between(onEpochDay(13, 0), onEpochDay(16, 0));
+      DeparturePage page = trainRegister.findDepartures(query, 10);
+
+      // 15:30 is delayed until 15:40, and 23:00 is delayed until the next day
+      assertEquals(List.of(123, 450, 150), trainNumbers(page));
+      assertEquals(3, page.getScanned());
+
+      DeparturePage nextDay =
+          trainRegister.findDepartures(
+              DepartureQuery.all().between(onEpochDay(23, 30), onEpochDay(23, 59).plusHours(1)),
+              10);
+      assertEquals(List.of(400), trainNumbers(nextDay));
+    }
+  }
+
+  /**
+   * Returns the given time on the first day of the register clock.
+   *
+   * @param hour the hour
+   * @param minute the minute
+   * @return the date and time
+   */
+  private static LocalDateTime onEpochDay(int hour, int minute) {
+    return LocalDateTime.of(LocalDate.EPOCH, LocalTime.of(hour, minute));
+  }
+
+  /**
+   * Returns the train numbers of the departures on a page, in order.
+   *
+   * @param page the page
+   * @return the train numbers
+   */
+  private static List<Integer> trainNumbers(DeparturePage page) {
+    return page.getDepartures().stream().map(TrainDeparture::getTrainNumber).toList();
+  }
+}
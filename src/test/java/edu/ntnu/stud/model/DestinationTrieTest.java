@@ -0,0 +1,86 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the DestinationTrie class. */
+public class DestinationTrieTest {
+  private DestinationTrie destinationTrie;
+
+  @BeforeEach
+  public void setUp() {
+    destinationTrie = new DestinationTrie();
+    for (String name : List.of("Oslo", "Oslo S", "Bergen", "Bodø", "Ålesund", "Trondheim")) {
+      destinationTrie.add(name);
+    }
+  }
+
+  /** This nested class contains negative tests for the DestinationTrie class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Negative distance throws IllegalArgumentException")
+    public void testNegativeDistance() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> destinationTrie.findSimilar("Oslo", -1),
+          "Distance cannot be negative");
+    }
+
+    @Test
+    @DisplayName("Adding null throws NullPointerException")
+    public void testAddNull() {
+      assertThrows(
+          NullPointerException.class, () -> destinationTrie.add(null), "Name cannot be null");
+    }
+  }
+
+  /** This nested class contains positive tests for the DestinationTrie class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Names are normalized without case and accents")
+    public void testNormalize() {
+      assertEquals("bodo", DestinationTrie.normalize("Bodø"));
+      assertEquals("alesund", DestinationTrie.normalize(" Ålesund "));
+      assertEquals("baerum", DestinationTrie.normalize("Bærum"));
+    }
+
+    @Test
+    @DisplayName("Prefix search ignores case and accents")
+    public void testFindByPrefix() {
+      assertEquals(List.of("Oslo", "Oslo S"), destinationTrie.findByPrefix("osl"));
+      assertEquals(List.of("Bergen", "Bodø"), destinationTrie.findByPrefix("B"));
+      assertEquals(List.of("Bodø"), destinationTrie.findByPrefix("bodo"));
+      assertEquals(List.of("Ålesund"), destinationTrie.findByPrefix("ale"));
+      assertEquals(List.of(), destinationTrie.findByPrefix("Stavanger"));
+    }
+
+    @Test
+    @DisplayName("Similar search finds misspelled names, closest first")
+    public void testFindSimilar() {
+      assertEquals(List.of("Trondheim"), destinationTrie.findSimilar("Trondhiem", 2));
+      assertEquals(List.of("Oslo"), destinationTrie.findSimilar("Olso", 2));
+      assertEquals(List.of("Oslo", "Oslo S"), destinationTrie.findSimilar("Oslo", 2));
+      assertEquals(List.of("Bergen"), destinationTrie.findSimilar("bergn", 1));
+      assertEquals(List.of("Bodø"), destinationTrie.findSimilar("Bodo", 0));
+      assertEquals(List.of(), destinationTrie.findSimilar("Narvik", 2));
+    }
+
+    @Test
+    @DisplayName("Adding a name twice stores it once")
+    public void testAddTwice() {
+      destinationTrie.add("Oslo");
+
+      assertEquals(List.of("Oslo", "Oslo S"), destinationTrie.findByPrefix("Oslo"));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the ServiceTemplate class. */
+public class ServiceTemplateTest {
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  private ServiceTemplate serviceTemplate;
+
+  @BeforeEach
+  public void setUp() {
+    // L2 to Oslo every 30 minutes from 06:00 to 23:00
+    serviceTemplate =
+        new ServiceTemplate(
+            "L2", "Oslo", 2, LocalTime.of(6, 0), LocalTime.of(23, 0), Duration.ofMinutes(30), 1000);
+  }
+
+  /** This nested class contains negative tests for the ServiceTemplate class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Interval shorter than a minute throws IllegalArgumentException")
+    public void testShortInterval() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new ServiceTemplate(
+                  "L2", "Oslo", 2, LocalTime.of(6, 0), LocalTime.of(7, 0), Duration.ZERO, 1000),
+          "Interval must be at least one minute");
+    }
+
+    @Test
+    @DisplayName("Last departure before the first throws IllegalArgumentException")
+    public void testLastBeforeFirst() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new ServiceTemplate(
+                  "L2",
+                  "Oslo",
+                  2,
+                  LocalTime.of(7, 0),
+                  LocalTime.of(6, 0),
+                  Duration.ofMinutes(30),
+                  1000),
+          "Last departure cannot be before first departure");
+    }
+
+    @Test
+    @DisplayName("Train numbers past the maximum throw IllegalArgumentException")
+    public void testTrainNumbersOutOfRange() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new ServiceTemplate(
+                  "L2",
+                  "Oslo",
+                  2,
+                  LocalTime.of(6, 0),
+                  LocalTime.of(23, 0),
+                  Duration.ofMinutes(30),
+                  9990),
+          "Train numbers must be between 0 and 9999");
+    }
+
+    @Test
+    @DisplayName("Null destination throws NullPointerException")
+    public void testNullDestination() {
+      assertThrows(
+          NullPointerException.class,
+          () ->
+              new ServiceTemplate(
+                  "L2", null, 2, LocalTime.of(6, 0), LocalTime.of(7, 0), Duration.ofHours(1), 1),
+          "Destination cannot be null");
+    }
+  }
+
+  /** This nested class contains positive tests for the ServiceTemplate class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Departures of a day are numbered from the first train number")
+    public void testTrainNumbers() {
+      assertEquals(35, serviceTemplate.getDeparturesPerDay());
+      assertEquals(1034, serviceTemplate.getLastTrainNumber());
+
+      TrainDeparture last = serviceTemplate.createDeparture(23 * 60);
+      assertEquals(1034, last.getTrainNumber());
+      assertEquals(LocalTime.of(23, 0), last.getDepartureTime());
+      assertEquals("Oslo", last.getDestination());
+      assertEquals(2, last.getTrack());
+    }
+
+    @Test
+    @DisplayName("The next departure continues on the next day after the last departure")
+    public void testNextDepartureMinute() {
+      assertEquals(6 * 60, serviceTemplate.nextDepartureMinute(0));
+      assertEquals(6 * 60 + 30, serviceTemplate.nextDepartureMinute(6 * 60 + 1));
+      assertEquals(6 * 60 + 30, serviceTemplate.nextDepartureMinute(6 * 60 + 30));
+      assertEquals(MINUTES_PER_DAY + 6 * 60, serviceTemplate.nextDepartureMinute(23 * 60 + 1));
+
+      TrainDeparture nextDay = serviceTemplate.createDeparture(MINUTES_PER_DAY + 6 * 60);
+      assertEquals(1000, nextDay.getTrainNumber());
+      assertEquals(LocalDate.EPOCH.plusDays(1), nextDay.getDepartureDateTime().toLocalDate());
+    }
+
+    @Test
+    @DisplayName("Templates overlap when they share a train number")
+    public void testOverlaps() {
+      ServiceTemplate after =
+          new ServiceTemplate(
+              "L3", "Bergen", 3, LocalTime.of(6, 0), LocalTime.of(7, 0), Duration.ofHours(1), 1035);
+      ServiceTemplate overlapping =
+          new ServiceTemplate(
+              "L3", "Bergen", 3, LocalTime.of(6, 0), LocalTime.of(7, 0), Duration.ofHours(1), 1034);
+
+      assertFalse(serviceTemplate.overlaps(after));
+      assertTrue(serviceTemplate.overlaps(overlapping));
+      assertTrue(overlapping.overlaps(serviceTemplate));
+    }
+
+    @Test
+    @DisplayName("The register only holds the departures within the service horizon")
+    public void testRegisterMaterializesWithinHorizon() {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.setClock(LocalTime.of(5, 0));
+      trainRegister.addServiceTemplate(serviceTemplate);
+
+      // 06:00 and 06:30 are within two hours of 05:00
+      assertEquals(List.of(1000, 1001), trainNumbers(trainRegister));
+
+      // The departures between 07:00 and 11:30 have left before they were added
+      trainRegister.setClock(LocalTime.of(12, 0));
+      assertEquals(2, trainRegister.departTrains().size());
+      assertEquals(4, trainRegister.getNumTrains());
+      assertEquals(
+          LocalTime.of(13, 30), trainRegister.getTrainDepartures().get(3).getDepartureTime());
+
+      trainRegister.advanceClock(Duration.ofHours(19));
+      trainRegister.departTrains();
+      assertEquals(List.of(1002, 1003, 1004, 1005), trainNumbers(trainRegister));
+      assertEquals(
+          LocalDate.EPOCH.plusDays(1),
+          trainRegister.getTrainDepartures().get(0).getDepartureDateTime().toLocalDate());
+    }
+
+    @Test
+    @DisplayName("Departures that left while the clock jumped more than a day are skipped")
+    public void testRegisterClockJump() {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.addServiceTemplate(serviceTemplate);
+
+      trainRegister.setClock(LocalDateTime.of(LocalDate.EPOCH.plusDays(1), LocalTime.of(12, 0)));
+      assertEquals(List.of(1012, 1013, 1014, 1015), trainNumbers(trainRegister));
+      assertEquals(0, trainRegister.departTrains().size());
+      assertEquals(
+          LocalDate.EPOCH.plusDays(1),
+          trainRegister.getTrainDepartures().get(0).getDepartureDateTime().toLocalDate());
+    }
+
+    @Test
+    @DisplayName("Templates with overlapping train numbers are rejected by the register")
+    public void testRegisterRejectsOverlap() {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.addServiceTemplate(serviceTemplate);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.addServiceTemplate(serviceTemplate),
+          "Train numbers overlap with another service");
+      assertEquals(1, trainRegister.getServiceTemplates().size());
+    }
+  }
+
+  /**
+   * Returns the train numbers of the departures in a register, in time order.
+   *
+   * @param trainRegister the register
+   * @return the train numbers
+   */
+  private static List<Integer> trainNumbers(TrainRegister trainRegister) {
+    return trainRegister.getTrainDepartures().stream().map(TrainDeparture::getTrainNumber).toList();
+  }
+}
@@ -0,0 +1,58 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the StringDictionary class. */
+public class StringDictionaryTest {
+  private StringDictionary dictionary;
+
+  @BeforeEach
+  public void setUp() {
+    dictionary = new StringDictionary();
+    dictionary.encode("Oslo");
+    dictionary.encode("Bergen");
+  }
+
+  /** This nested class contains negative tests for the StringDictionary class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Encoding null throws NullPointerException")
+    public void testEncodeNull() {
+      assertThrows(NullPointerException.class, () -> dictionary.encode(null));
+    }
+
+    @Test
+    @DisplayName("Decoding an unknown id throws IllegalArgumentException")
+    public void testDecodeUnknownId() {
+      assertThrows(IllegalArgumentException.class, () -> dictionary.decode(2));
+    }
+  }
+
+  /** This nested class contains positive tests for the StringDictionary class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Encoding the same string twice returns the same id")
+    public void testEncodeIsStable() {
+      assertEquals(0, dictionary.encode("Oslo"));
+      assertEquals(1, dictionary.encode("Bergen"));
+      assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    @DisplayName("Lookup does not add unknown strings")
+    public void testLookupUnknown() {
+      assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup("Narvik"));
+      assertEquals(2, dictionary.size());
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for subscriptions to the TrainRegister class. */
+public class SubscriptionTest {
+  private TrainRegister trainRegister;
+  private List<List<RegisterEvent>> batches;
+  private List<Runnable> pendingTasks;
+
+  /** Sets up a register with two departures before each test case. */
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new TrainRegister();
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(12, 0), "L1", 1, "Oslo", 1, Duration.ZERO));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(13, 0), "L2", 2, "Bergen", 2, Duration.ZERO));
+
+    batches = new ArrayList<>();
+    pendingTasks = new ArrayList<>();
+  }
+
+  /** Runs the delivery tasks that were submitted to the test executor. */
+  private void runPendingTasks() {
+    List<Runnable> tasks = new ArrayList<>(pendingTasks);
+    pendingTasks.clear();
+    tasks.forEach(Runnable::run);
+  }
+
+  private List<RegisterEvent.Type> typesOf(List<RegisterEvent> events) {
+    return events.stream().map(RegisterEvent::getType).toList();
+  }
+
+  /** This nested class contains negative tests for subscriptions. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive capacity throws IllegalArgumentException")
+    public void testInvalidCapacity() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.subscribe(batches::add, 0, Runnable::run),
+          "Capacity must be positive");
+    }
+
+    @Test
+    @DisplayName("Rejected delivery cancels the subscription instead of failing the change")
+    public void testRejectedDelivery() {
+      Subscription rejected =
+          trainRegister.subscribe(
+              batches::add,
+              10,
+              task -> {
+                throw new RejectedExecutionException("Executor is shut down");
+              });
+      trainRegister.subscribe(batches::add, 10, Runnable::run);
+
+      trainRegister.setClock(LocalTime.of(1, 0));
+      trainRegister.setClock(LocalTime.of(2, 0));
+
+      assertTrue(rejected.isCancelled());
+      assertEquals(LocalTime.of(2, 0), trainRegister.getClock());
+      assertEquals(2, batches.size());
+    }
+  }
+
+  /** This nested class contains positive tests for subscriptions. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Every kind of change publishes an event")
+    public void testEventTypes() {
+      trainRegister.subscribe(batches::add, 10, Runnable::run);
+
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(14, 0), "L3", 3, "Bodø", 3, Duration.ZERO));
+      trainRegister.applyBatch(
+          List.of(1), List.of(BatchOperation.addDelay(5), BatchOperation.changeTrack(4)));
+      trainRegister.applyBatch(List.of(3), List.of(BatchOperation.delete()));
+      trainRegister.setClock(LocalTime.of(13, 30));
+      trainRegister.departTrains();
+
+      List<RegisterEvent> events = batches.stream().flatMap(List::stream).toList();
+      assertEquals(
+          List.of(
+              RegisterEvent.Type.ADDED,
+              RegisterEvent.Type.DELAYED,
+              RegisterEvent.Type.TRACK_CHANGED,
+              RegisterEvent.Type.DELETED,
+              RegisterEvent.Type.CLOCK_SET,
+              RegisterEvent.Type.DEPARTED),
+          typesOf(events));
+      assertEquals(List.of(1, 2), events.get(5).getTrainNumbers());
+      assertEquals(LocalTime.of(13, 30), events.get(4).getClock());
+      assertEquals(trainRegister.getVersion(), events.get(5).getVersion());
+    }
+
+    @Test
+    @DisplayName("Queued events of the same type are coalesced into one batch")
+    public void testCoalescing() {
+      trainRegister.subscribe(batches::add, 10, pendingTasks::add);
+
+      trainRegister.applyBatch(List.of(1), List.of(BatchOperation.addDelay(1)));
+      trainRegister.applyBatch(List.of(2), List.of(BatchOperation.addDelay(1)));
+      trainRegister.setClock(LocalTime.of(10, 0));
+      trainRegister.setClock(LocalTime.of(11, 0));
+
+      assertEquals(1, pendingTasks.size());
+      runPendingTasks();
+
+      assertEquals(1, batches.size());
+      List<RegisterEvent> events = batches.get(0);
+      assertEquals(
+          List.of(RegisterEvent.Type.DELAYED, RegisterEvent.Type.CLOCK_SET), typesOf(events));
+      assertEquals(List.of(1, 2), events.get(0).getTrainNumbers());
+      assertEquals(LocalTime.of(11, 0), events.get(1).getClock());
+    }
+
+    @Test
+    @DisplayName("A full queue gives a single overflow event")
+    public void testOverflow() {
+      trainRegister.subscribe(batches::add, 2, pendingTasks::add);
+
+      trainRegister.setClock(LocalTime.of(1, 0));
+      trainRegister.setClock(LocalTime.of(2, 0));
+      trainRegister.setClock(LocalTime.of(3, 0));
+      runPendingTasks();
+
+      assertEquals(1, batches.size());
+      assertEquals(List.of(RegisterEvent.Type.OVERFLOW), typesOf(batches.get(0)));
+      assertEquals(trainRegister.getVersion(), batches.get(0).get(0).getVersion());
+
+      trainRegister.setClock(LocalTime.of(4, 0));
+      runPendingTasks();
+
+      assertEquals(List.of(RegisterEvent.Type.CLOCK_SET), typesOf(batches.get(1)));
+    }
+
+    @Test
+    @DisplayName("The overflow event has the clock of the last dropped event")
+    public void testOverflowClock() {
+      trainRegister.subscribe(batches::add, 1, pendingTasks::add);
+
+      trainRegister.setClock(LocalTime.of(1, 0));
+      trainRegister.setClock(LocalTime.of(2, 0));
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(9, 0), "L3", 3, "Bodø", 3, Duration.ZERO));
+      runPendingTasks();
+
+      RegisterEvent overflow = batches.get(0).get(0);
+      assertEquals(RegisterEvent.Type.OVERFLOW, overflow.getType());
+      assertEquals(LocalTime.of(2, 0), overflow.getClock());
+      assertEquals(trainRegister.getClockDateTime(), overflow.getClockDateTime());
+    }
+
+    @Test
+    @DisplayName("Cancelled subscriptions get no events")
+    public void testCancel() {
+      Subscription subscription = trainRegister.subscribe(batches::add, 10, Runnable::run);
+
+      subscription.cancel();
+      trainRegister.setClock(LocalTime.of(1, 0));
+
+      assertTrue(subscription.isCancelled());
+      assertTrue(batches.isEmpty());
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package edu.ntnu.stud.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the TrackAssignmentEngine class. */
+public class TrackAssignmentEngineTest {
+  private TrainRegister trainRegister;
+
+  /** Sets up a register with a dwell window of 5 minutes before each test case. */
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new TrainRegister();
+    trainRegister.setDwellMinutes(5);
+  }
+
+  private void addDeparture(LocalTime time, int trainNumber, int track) {
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(time, "L1", trainNumber, "Oslo", track, Duration.ZERO));
+  }
+
+  private int trackOf(int trainNumber) {
+    return trainRegister.findDepartureByTrainNumber(trainNumber).getTrack();
+  }
+
+  /** This nested class contains negative tests for the TrackAssignmentEngine class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive number of tracks throws IllegalArgumentException")
+    public void testInvalidNumberOfTracks() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new TrackAssignmentEngine(trainRegister, 0),
+          "Number of tracks must be positive");
+    }
+
+    @Test
+    @DisplayName("Departures given a track by hand are not moved, and the delay throws exception")
+    public void testManualTrackIsKept() {
+      addDeparture(LocalTime.of(9, 0), 1, 0);
+      addDeparture(LocalTime.of(9, 20), 2, 2);
+      TrackAssignmentEngine engine = new TrackAssignmentEngine(trainRegister, 2);
+      engine.assignAll();
+      trainRegister.changeTracks(trainRegister.findDepartureByTrainNumber(1).toArrayList(), 2);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> engine.addDelay(1, 18),
+          "Train 1 conflicts with train 2 on track 2");
+      assertEquals(2, trackOf(1));
+      assertEquals(Duration.ZERO, trainRegister.findDepartureByTrainNumber(1).getDelay());
+    }
+
+    @Test
+    @DisplayName("Delaying a departure that does not exist throws IllegalArgumentException")
+    public void testAddDelayToMissingDeparture() {
+      TrackAssignmentEngine engine = new TrackAssignmentEngine(trainRegister, 2);
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> engine.addDelay(404, 5),
+          "Train number 404 does not exist");
+    }
+  }
+
+  /** This nested class contains positive tests for the TrackAssignmentEngine class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Departures get free tracks around existing assignments")
+    public void testAssignAll() {
+      addDeparture(LocalTime.of(10, 0), 1, 0);
+      addDeparture(LocalTime.of(10, 2), 2, 0);
+      addDeparture(LocalTime.of(10, 4), 3, 0);
+      addDeparture(LocalTime.of(10, 20), 4, 0);
+      addDeparture(LocalTime.of(10, 21), 5, 1);
+      TrackAssignmentEngine engine = new TrackAssignmentEngine(trainRegister, 2);
+
+      List<TrainDeparture> unassigned = engine.assignAll();
+
+      assertEquals(1, trackOf(1));
+      assertEquals(2, trackOf(2));
+      assertEquals(List.of(3), unassigned.stream().map(TrainDeparture::getTrainNumber).toList());
+      assertEquals(0, trackOf(3));
+      assertEquals(2, trackOf(4));
+      assertEquals(1, trackOf(5));
+    }
+
+    @Test
+    @DisplayName("A delay that causes a conflict moves only the delayed departure")
+    public void testAddDelayMovesDeparture() {
+      addDeparture(LocalTime.of(9, 0), 1, 0);
+      addDeparture(LocalTime.of(9, 10), 2, 1);
+      addDeparture(LocalTime.of(12, 0), 3, 0);
+      TrackAssignmentEngine engine = new TrackAssignmentEngine(trainRegister, 2);
+      engine.assignAll();
+      assertEquals(1, trackOf(1));
+      assertEquals(2, trackOf(3));
+
+      assertTrue(engine.addDelay(1, 8));
+
+      assertEquals(List.of(), engine.replan());
+      assertEquals(2, trackOf(1));
+      assertEquals(Duration.ofMinutes(8), trainRegister.findDepartureByTrainNumber(1).getDelay());
+      assertEquals(1, trackOf(2));
+      assertEquals(2, trackOf(3));
+      assertFalse(engine.addDelay(3, 10));
+    }
+
+    @Test
+    @DisplayName("A delayed departure without a track is assigned one")
+    public void testReplanAfterDelay() {
+      addDeparture(LocalTime.of(9, 0), 1, 1);
+      TrackAssignmentEngine engine = new TrackAssignmentEngine(trainRegister, 2);
+      addDeparture(LocalTime.of(8, 55), 2, 0);
+
+      trainRegister.addDelay(trainRegister.findDepartureByTrainNumber(2).toArrayList(), 5);
+
+      assertEquals(List.of(), engine.replan());
+      assertEquals(2, trackOf(2));
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package edu.ntnu.stud.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
 import java.time.LocalTime;
@@ -49,7 +51,9 @@ public class TrainDepartureTest {
     public void testConstructorWithNullDepartureTime() {
       assertThrows(
           NullPointerException.class,
-          () -> new TrainDeparture(null, "L1", 123, "Destination", 1, Duration.ofMinutes(5)),
+          () ->
+              new TrainDeparture(
+                  (LocalTime) null, "L1", 123, "Destination", 1, Duration.ofMinutes(5)),
           "Departure time cannot be null");
     }
 
@@ -126,6 +130,26 @@ public class TrainDepartureTest {
       assertEquals(LocalTime.of(13, 55), trainDeparture.getDepartureTimeWithDelay());
     }
 
+    @Test
+    @DisplayName("Delayed time is kept up to date when the delay is set")
+    public void testSetDelayUpdatesDelayedTime() {
+      trainDeparture.setDelay(Duration.ofMinutes(15));
+      assertEquals(LocalTime.of(14, 0), trainDeparture.getDepartureTimeWithDelay());
+      assertEquals(14 * 60, trainDeparture.getDelayedMinuteOfDay());
+      assertEquals(15, trainDeparture.getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("Delay past midnight wraps the delayed time around")
+    public void testDelayPastMidnight() {
+      assertFalse(trainDeparture.isDelayedPastMidnight());
+      trainDeparture.addDelay(11 * 60);
+
+      assertEquals(LocalTime.of(0, 50), trainDeparture.getDepartureTimeWithDelay());
+      assertEquals(LocalTime.of(13, 45), trainDeparture.getDepartureTime());
+      assertTrue(trainDeparture.isDelayedPastMidnight());
+    }
+
     @Test
     @DisplayName("Train number getter return correct value")
     public void testGetTrainNumber() {
@@ -137,5 +161,14 @@ public class TrainDepartureTest {
     public void testGetDestination() {
       assertEquals("Trondheim", trainDeparture.getDestination());
     }
+
+    @Test
+    @DisplayName("Departures with the same train number have equal hash codes")
+    public void testHashCodeConsistentWithEquals() {
+      TrainDeparture sameTrainNumber =
+          new TrainDeparture(LocalTime.of(8, 0), "L2", 123, "Oslo", 2, Duration.ZERO);
+      assertEquals(trainDeparture, sameTrainNumber);
+      assertEquals(trainDeparture.hashCode(), sameTrainNumber.hashCode());
+    }
   }
 }
@@ -2,13 +2,20 @@ package edu.ntnu.stud.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -76,6 +83,109 @@ public class TrainRegisterTest {
           "Train number already exists");
     }
 
+    @Test
+    @DisplayName("A batch with a missing train number changes nothing")
+    public void testApplyBatchWithMissingTrainNumber() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.applyBatch(List.of(123, 404), List.of(BatchOperation.addDelay(10))),
+          "Train number 404 does not exist");
+      assertEquals(5, trainDeparture.getDelayMinutes());
+    }
+
+    @Test
+    @DisplayName("A batch whose delay overflows changes nothing")
+    public void testApplyBatchWithOverflowingDelay() {
+      List<BatchOperation> operations =
+          List.of(BatchOperation.changeTrack(9), BatchOperation.addDelay(Integer.MAX_VALUE - 1));
+      assertThrows(
+          ArithmeticException.class, () -> trainRegister.applyBatch(List.of(100, 123), operations));
+
+      assertEquals(5, trainDeparture.getDelayMinutes());
+      assertEquals(1, trainDeparture.getTrack());
+      assertSame(trainDeparture, trainRegister.findDepartureByTrainNumber(123));
+      assertEquals(1, trainRegister.findDeparturesToDestination("Trondheim").size());
+      assertEquals(9, trainRegister.getTrainDepartures().size());
+    }
+
+    @Test
+    @DisplayName("A batch with a delete before another operation throws exception")
+    public void testApplyBatchWithDeleteNotLast() {
+      List<BatchOperation> operations =
+          List.of(BatchOperation.delete(), BatchOperation.changeTrack(2));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.applyBatch(List.of(123), operations),
+          "Delete must be the last operation.");
+      assertEquals(9, trainRegister.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("Changing to a track occupied within the dwell window throws exception")
+    public void testChangeTrackConflict() {
+      trainRegister.setDwellMinutes(10);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.changeTracks(noTrackTrainDeparture.toArrayList(), 1),
+          "Train 450 conflicts with train 123 on track 1");
+      assertEquals(0, noTrackTrainDeparture.getTrack());
+    }
+
+    @Test
+    @DisplayName("Moving departures that conflict with each other to one track throws exception")
+    public void testChangeTrackConflictWithinBatch() {
+      trainRegister.setDwellMinutes(120);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.applyBatch(List.of(100, 123), List.of(BatchOperation.changeTrack(9))),
+          "Train 123 conflicts with train 100 on track 9");
+      assertEquals(2, trainRegister.findDepartureByTrainNumber(100).getTrack());
+    }
+
+    @Test
+    @DisplayName("Delaying a departure into the dwell window on its track throws exception")
+    public void testDelayConflict() {
+      trainRegister.setDwellMinutes(10);
+      TrainDeparture earlier =
+          new TrainDeparture(LocalTime.of(13, 30), "L1", 500, "Oslo", 1, Duration.ZERO);
+      trainRegister.addTrainDeparture(earlier);
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.addDelay(earlier.toArrayList(), 15),
+          "Train 500 conflicts with train 123 on track 1");
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.applyBatch(List.of(500), List.of(BatchOperation.addDelay(30))),
+          "Train 500 conflicts with train 123 on track 1");
+      assertEquals(Duration.ZERO, earlier.getDelay());
+
+      trainRegister.addDelay(earlier.toArrayList(), 35);
+      trainRegister.addDelay(noTrackTrainDeparture.toArrayList(), 5);
+      assertEquals(Duration.ofMinutes(35), earlier.getDelay());
+    }
+
+    @Test
+    @DisplayName("A time range ending before it starts throws exception")
+    public void testDeparturesBetweenInvalidRange() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> trainRegister.departuresBetween(LocalTime.of(15, 0), LocalTime.of(14, 0)),
+          "From time cannot be after to time");
+    }
+
+    @Test
+    @DisplayName("Departures in a time range cannot be removed through the iterator")
+    public void testDeparturesBetweenIsReadOnly() {
+      Iterator<TrainDeparture> departures =
+          trainRegister.departuresBetween(LocalTime.of(12, 0), LocalTime.of(15, 0));
+      departures.next();
+
+      assertThrows(UnsupportedOperationException.class, departures::remove);
+    }
+
     @Test
     @DisplayName("Adding delay to an empty list of train departures throws exception")
     public void testAddDelayToEmptyList() {
@@ -96,6 +206,22 @@ public class TrainRegisterTest {
   @Nested
   @DisplayName("Positive tests")
   public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("The register can be changed while departure results are read")
+    public void testChangeRegisterWhileReading() {
+      for (TrainDeparture departure : trainRegister.findDeparturesToDestination("Oslo")) {
+        trainRegister.addDelay(new ArrayList<>(List.of(departure)), 1);
+      }
+      Iterator<TrainDeparture> upcoming = trainRegister.nextDepartures(LocalTime.of(0, 0), 3);
+      while (upcoming.hasNext()) {
+        trainRegister.deleteTrainDepartures(new ArrayList<>(List.of(upcoming.next())));
+      }
+
+      assertEquals(6, trainRegister.getTrainDepartures().size());
+      assertEquals(
+          Duration.ofMinutes(61), trainRegister.findDepartureByTrainNumber(400).getDelay());
+    }
+
     @Test
     @DisplayName("Test clock setter")
     public void testSetClock() {
@@ -142,6 +268,161 @@ public class TrainRegisterTest {
     }
     
 
+    @Test
+    @DisplayName("Adding delay moves the departure to its new position in time order")
+    public void testAddDelayRepositionsDeparture() {
+      TrainDeparture earlyTrainDeparture = trainRegister.findDepartureByTrainNumber(350);
+      assertEquals(earlyTrainDeparture, trainRegister.sortByDelayedTime().get(0));
+
+      trainRegister.addDelay(earlyTrainDeparture.toArrayList(), 60 * 10);
+
+      ArrayList<TrainDeparture> sortedTrainDepartures = trainRegister.sortByDelayedTime();
+      assertEquals(lateTrainDeparture, sortedTrainDepartures.get(8));
+      assertEquals(earlyTrainDeparture, sortedTrainDepartures.get(4));
+      assertEquals(
+          earlyTrainDeparture,
+          trainRegister.findDeparturesToDestination("Arendal").iterator().next());
+    }
+
+    @Test
+    @DisplayName("Departures leaving at the same time are ordered by train number")
+    public void testSameDelayedTimeOrderedByTrainNumber() {
+      TrainDeparture sameTimeTrainDeparture =
+          new TrainDeparture(LocalTime.of(13, 50), "L1", 122, "Trondheim", 2, Duration.ZERO);
+      trainRegister.addTrainDeparture(sameTimeTrainDeparture);
+
+      ArrayList<TrainDeparture> sortedTrainDepartures = trainRegister.sortByDelayedTime();
+      int index = sortedTrainDepartures.indexOf(sameTimeTrainDeparture);
+      assertEquals(trainDeparture, sortedTrainDepartures.get(index + 1));
+      assertEquals(10, trainRegister.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("The snapshot is reused until the register changes")
+    public void testSnapshotReusedUntilChange() {
+      DepartureSnapshot snapshot = trainRegister.getSnapshot();
+      assertSame(snapshot, trainRegister.getSnapshot());
+      assertEquals(9, snapshot.getNumTrains());
+      assertEquals(8, snapshot.getDeparturesWithTrack().size());
+      assertEquals(noTrackTrainDeparture, snapshot.getDeparturesWithoutTrack().get(0));
+
+      trainRegister.changeTracks(noTrackTrainDeparture.toArrayList(), 3);
+
+      DepartureSnapshot changedSnapshot = trainRegister.getSnapshot();
+      assertNotSame(snapshot, changedSnapshot);
+      assertTrue(changedSnapshot.getVersion() > snapshot.getVersion());
+      assertTrue(changedSnapshot.getDeparturesWithoutTrack().isEmpty());
+      assertEquals(0, snapshot.findDepartureByTrainNumber(450).getTrack());
+    }
+
+    @Test
+    @DisplayName("Peeking at a snapshot does not change the snapshots of the register")
+    public void testPeekSnapshot() {
+      DepartureSnapshot snapshot = trainRegister.getSnapshot();
+      assertSame(snapshot, trainRegister.peekSnapshot());
+
+      trainRegister.changeTracks(noTrackTrainDeparture.toArrayList(), 3);
+      DepartureSnapshot peeked = trainRegister.peekSnapshot();
+      assertEquals(trainRegister.getVersion(), peeked.getVersion());
+      assertEquals(3, peeked.findDepartureByTrainNumber(450).getTrack());
+
+      trainRegister.addDelay(trainRegister.findDepartureByTrainNumber(100).toArrayList(), 5);
+      DepartureSnapshot changedSnapshot = trainRegister.getSnapshot();
+      assertNotSame(peeked, changedSnapshot);
+      assertEquals(3, changedSnapshot.findDepartureByTrainNumber(450).getTrack());
+      assertEquals(5, changedSnapshot.findDepartureByTrainNumber(100).getDelayMinutes());
+      assertEquals(0, peeked.findDepartureByTrainNumber(100).getDelayMinutes());
+      assertEquals(snapshot.getChangesSinceFull() + 2, changedSnapshot.getChangesSinceFull());
+    }
+
+    @Test
+    @DisplayName("Snapshots built on earlier snapshots match the register")
+    public void testIncrementalSnapshots() {
+      DepartureSnapshot first = trainRegister.getSnapshot();
+      ArrayList<DepartureSnapshot> snapshots = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        trainRegister.addTrainDeparture(
+            new TrainDeparture(
+                LocalTime.of(6 + i % 12, i % 60), "L1", 1000 + i, "Oslo", 0, Duration.ZERO));
+        trainRegister.addDelay(trainDeparture.toArrayList(), 1);
+        if (i % 3 == 0) {
+          trainRegister.deleteTrainDepartures(
+              trainRegister.findDepartureByTrainNumber(1000 + i).toArrayList());
+        }
+        snapshots.add(trainRegister.getSnapshot());
+      }
+
+      DepartureSnapshot last = trainRegister.getSnapshot();
+      assertEquals(
+          trainNumbersOf(trainRegister.getTrainDepartures().iterator()),
+          trainNumbersOf(last.getTrainDepartures().iterator()));
+      assertEquals(105, last.findDepartureByTrainNumber(123).getDelayMinutes());
+      assertEquals(
+          trainNumbersOf(trainRegister.findDeparturesToDestination("Oslo").iterator()),
+          trainNumbersOf(last.findDeparturesToDestination("Oslo").iterator()));
+
+      // Earlier snapshots keep the departures of their own version
+      assertEquals(9, first.getTrainDepartures().size());
+      assertEquals(5, first.findDepartureByTrainNumber(123).getDelayMinutes());
+      assertEquals(12, snapshots.get(4).getNumTrains());
+      assertEquals(12, snapshots.get(4).getTrainDepartures().size());
+      assertEquals(10, snapshots.get(4).findDepartureByTrainNumber(123).getDelayMinutes());
+      assertEquals(75, last.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("Snapshots of clock changes alone are bounded by full snapshots")
+    public void testSnapshotsOfClockChanges() {
+      DepartureSnapshot first = trainRegister.getSnapshot();
+      for (int i = 0; i < 1000; i++) {
+        trainRegister.advanceClock(Duration.ofMinutes(1));
+        assertTrue(trainRegister.getSnapshot().getChangesSinceFull() <= 64);
+      }
+
+      DepartureSnapshot last = trainRegister.getSnapshot();
+      assertEquals(trainRegister.getClockDateTime(), last.getClockDateTime());
+      assertEquals(
+          trainNumbersOf(first.getTrainDepartures().iterator()),
+          trainNumbersOf(last.getTrainDepartures().iterator()));
+    }
+
+    @Test
+    @DisplayName("Setting the clock to the same time does not change the version")
+    public void testSetSameClockKeepsVersion() {
+      long version = trainRegister.getVersion();
+      trainRegister.setClock(trainRegister.getClock());
+      assertEquals(version, trainRegister.getVersion());
+    }
+
+    @Test
+    @DisplayName("A batch applies every operation to every departure")
+    public void testApplyBatch() {
+      ArrayList<TrainDeparture> changed =
+          trainRegister.applyBatch(
+              List.of(123, 450, 123),
+              List.of(BatchOperation.addDelay(120), BatchOperation.changeTrack(9)));
+
+      assertEquals(2, changed.size());
+      assertEquals(125, trainDeparture.getDelayMinutes());
+      assertEquals(9, trainDeparture.getTrack());
+      assertEquals(9, noTrackTrainDeparture.getTrack());
+      assertTrue(trainRegister.getDeparturesWithoutTrack().isEmpty());
+
+      ArrayList<TrainDeparture> sortedTrainDepartures = trainRegister.sortByDelayedTime();
+      assertEquals(noTrackTrainDeparture, sortedTrainDepartures.get(5));
+      assertEquals(trainDeparture, sortedTrainDepartures.get(4));
+    }
+
+    @Test
+    @DisplayName("A batch can delete the departures after changing them")
+    public void testApplyBatchDelete() {
+      trainRegister.applyBatch(
+          List.of(100, 400), List.of(BatchOperation.addDelay(5), BatchOperation.delete()));
+
+      assertEquals(7, trainRegister.getNumTrains());
+      assertTrue(trainRegister.findDeparturesToDestination("Oslo").isEmpty());
+    }
+
     @Test
     @DisplayName("Adding valid train departure does not throw exception")
     public void testAddTrainDeparture() {
@@ -175,16 +456,49 @@ public class TrainRegisterTest {
       assertNull(foundTrainDeparture);
     }
 
+    @Test
+    @DisplayName("Deleted train departures can no longer be found by train number")
+    public void testDeletedTrainDepartureNotFoundByTrainNumber() {
+      trainRegister.deleteTrainDepartures(trainDeparture.toArrayList());
+
+      assertNull(trainRegister.findDepartureByTrainNumber(123));
+      trainRegister.addTrainDeparture(trainDeparture);
+      assertEquals(trainDeparture, trainRegister.findDepartureByTrainNumber(123));
+    }
+
+    @Test
+    @DisplayName("Departed trains can no longer be found by train number")
+    public void testDepartedTrainNotFoundByTrainNumber() {
+      trainRegister.setClock(LocalTime.of(14, 0));
+      trainRegister.departTrains();
+
+      assertNull(trainRegister.findDepartureByTrainNumber(123));
+    }
+
     @Test
     @DisplayName(
         "getTrainDeparturesFromDestination() returns a list of all departures to the specified"
             + " destination")
     public void testGetTrainDeparturesFromDestination() {
-      ArrayList<TrainDeparture> trainDeparturesFromDestination =
+      Collection<TrainDeparture> trainDeparturesFromDestination =
           trainRegister.findDeparturesToDestination("Trondheim");
       assertTrue(trainDeparturesFromDestination.contains(trainDeparture));
     }
 
+    @Test
+    @DisplayName("findDeparturesToDestination() only returns departures to that destination")
+    public void testFindDeparturesToDestinationWithSeveralDepartures() {
+      Collection<TrainDeparture> departuresToOslo =
+          trainRegister.findDeparturesToDestination("Oslo");
+      assertEquals(2, departuresToOslo.size());
+      assertTrue(departuresToOslo.contains(lateTrainDeparture));
+      assertTrue(trainRegister.findDeparturesToDestination("Narvik").isEmpty());
+
+      trainRegister.deleteTrainDepartures(lateTrainDeparture.toArrayList());
+      assertEquals(2, departuresToOslo.size());
+      assertEquals(1, trainRegister.findDeparturesToDestination("Oslo").size());
+    }
+
     @Test
     @DisplayName(
         "Deletes all departures before the specified time and returns a list of the deleted"
@@ -226,22 +540,132 @@ public class TrainRegisterTest {
       assertTrue(trainRegister.getTrainDepartures().contains(lateTrainDeparture));
     }
 
+    @Test
+    @DisplayName("The clock runs on past midnight and departs trains delayed past midnight")
+    public void testClockPastMidnight() {
+      TrainDeparture nextDayTrainDeparture =
+          new TrainDeparture(
+              LocalDateTime.of(LocalDate.EPOCH.plusDays(1), LocalTime.of(0, 30)),
+              "L1",
+              500,
+              "Oslo",
+              1,
+              Duration.ZERO);
+      trainRegister.addTrainDeparture(nextDayTrainDeparture);
+      assertEquals(
+          List.of(300, 400, 500),
+          trainNumbersOf(trainRegister.nextDepartures(LocalTime.of(19, 0), 5)));
+
+      trainRegister.advanceClock(Duration.ofHours(24).plusMinutes(10));
+      ArrayList<TrainDeparture> departed = trainRegister.departTrains();
+
+      assertEquals(9, departed.size());
+      assertEquals(lateTrainDeparture, departed.get(8));
+      assertEquals(List.of(nextDayTrainDeparture), trainRegister.getTrainDepartures());
+      assertEquals(LocalTime.of(0, 10), trainRegister.getClock());
+
+      trainRegister.setClock(LocalTime.of(0, 31));
+      assertEquals(1, trainRegister.departTrains().size());
+    }
+
+    @Test
+    @DisplayName("Advancing the clock minute by minute departs every train exactly once")
+    public void testDepartTrainsWithSweepingClock() {
+      int departedTrains = 0;
+      LocalTime time = trainRegister.getClock();
+      while (time.isBefore(LocalTime.of(23, 59))) {
+        time = time.plusMinutes(1);
+        trainRegister.setClock(time);
+
+        for (TrainDeparture departed : trainRegister.departTrains()) {
+          assertTrue(departed.getDepartureTimeWithDelay().isBefore(time));
+          assertFalse(departed.getDepartureTimeWithDelay().isBefore(time.minusMinutes(1)));
+          departedTrains++;
+        }
+      }
+
+      assertEquals(8, departedTrains);
+      assertEquals(lateTrainDeparture, trainRegister.getTrainDepartures().get(0));
+      assertEquals(1, trainRegister.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("Tracks are free again outside the dwell window and after trains depart")
+    public void testFindFreeTracks() {
+      trainRegister.setDwellMinutes(5);
+      assertEquals(List.of(2, 3), trainRegister.findFreeTracks(LocalTime.of(13, 50), 3));
+
+      trainRegister.changeTracks(noTrackTrainDeparture.toArrayList(), 1);
+      assertEquals(1, noTrackTrainDeparture.getTrack());
+      assertEquals(List.of(2, 3), trainRegister.findFreeTracks(LocalTime.of(14, 0), 3));
+
+      trainRegister.setClock(LocalTime.of(14, 1));
+      trainRegister.departTrains();
+      assertEquals(List.of(1, 2, 3), trainRegister.findFreeTracks(LocalTime.of(14, 0), 3));
+    }
+
+    @Test
+    @DisplayName("Destinations are found by prefix and by similar spelling")
+    public void testDestinationSearch() {
+      assertEquals(List.of("Bergen", "Bodø"), trainRegister.findDestinationsByPrefix("b"));
+      assertEquals(List.of("Ålesund"), trainRegister.findSimilarDestinations("alesnud", 2));
+
+      trainRegister.setClock(LocalTime.of(10, 0));
+      trainRegister.departTrains();
+      assertEquals(List.of("Bergen"), trainRegister.findDestinationsByPrefix("b"));
+
+      ArrayList<TrainDeparture> found =
+          trainRegister.findDeparturesToDestinations(List.of("Oslo", "Trondheim"));
+      assertEquals(List.of(100, 123, 400), trainNumbersOf(found.iterator()));
+    }
+
+    @Test
+    @DisplayName("departuresBetween() includes the start and excludes the end of the range")
+    public void testDeparturesBetween() {
+      Iterator<TrainDeparture> departures =
+          trainRegister.departuresBetween(LocalTime.of(12, 0), LocalTime.of(15, 40));
+
+      assertEquals(List.of(100, 123, 450), trainNumbersOf(departures));
+      assertEquals(
+          List.of(300),
+          trainNumbersOf(
+              trainRegister.departuresBetween(LocalTime.of(17, 18), LocalTime.of(23, 59, 30))));
+    }
+
+    @Test
+    @DisplayName("nextDepartures() returns at most limit departures that have not left")
+    public void testNextDepartures() {
+      assertEquals(
+          List.of(123, 450), trainNumbersOf(trainRegister.nextDepartures(LocalTime.of(13, 50), 2)));
+      assertEquals(
+          List.of(450), trainNumbersOf(trainRegister.nextDepartures(LocalTime.of(13, 50, 1), 1)));
+      assertEquals(List.of(400), trainNumbersOf(trainRegister.nextDepartures(LocalTime.MAX, 5)));
+      assertEquals(List.of(), trainNumbersOf(trainRegister.nextDepartures(LocalTime.MIN, 0)));
+    }
+
     @Test
     @DisplayName("returns an ArrayList of the train departures sorted by getDelayedTime()")
     public void testSortedByTime() {
       ArrayList<TrainDeparture> sortedTrainDepartures = trainRegister.sortByDelayedTime();
       assertTrue(trainRegister.getTrainDepartures().containsAll(sortedTrainDepartures));
 
-      LocalTime previousTime = null;
+      LocalDateTime previousTime = null;
       for (TrainDeparture trainDeparture : sortedTrainDepartures) {
         if (previousTime != null) {
           assertTrue(
-              trainDeparture.getDepartureTimeWithDelay().isAfter(previousTime)
-                  || trainDeparture.getDepartureTimeWithDelay().equals(previousTime));
+              trainDeparture.getDepartureDateTimeWithDelay().isAfter(previousTime)
+                  || trainDeparture.getDepartureDateTimeWithDelay().equals(previousTime));
         }
 
-        previousTime = trainDeparture.getDepartureTimeWithDelay();
+        previousTime = trainDeparture.getDepartureDateTimeWithDelay();
       }
     }
   }
-}
\ No newline at end of file
+
+  /** Collects the train numbers of the departures left in an iterator. */
+  private static List<Integer> trainNumbersOf(Iterator<TrainDeparture> departures) {
+    List<Integer> trainNumbers = new ArrayList<>();
+    departures.forEachRemaining(departure -> trainNumbers.add(departure.getTrainNumber()));
+    return trainNumbers;
+  }
+}
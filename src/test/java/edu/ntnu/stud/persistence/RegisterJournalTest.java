@@ -0,0 +1,263 @@
+package edu.ntnu.stud.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.stud.model.BatchOperation;
+import edu.ntnu.stud.model.ConcurrentTrainRegister;
+import edu.ntnu.stud.model.ServiceTemplate;
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** This class contains unit tests for the RegisterJournal class. */
+public class RegisterJournalTest {
+  @TempDir Path tempDir;
+
+  private Path snapshotPath() {
+    return tempDir.resolve("register.bin");
+  }
+
+  private Path journalPath() {
+    return tempDir.resolve("register.journal");
+  }
+
+  /**
+   * Makes one change of every kind to a register.
+   *
+   * @param trainRegister the register to change
+   */
+  private static void makeChanges(TrainRegister trainRegister) {
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(12, 0), "L1", 1, "Oslo", 1, Duration.ZERO));
+    trainRegister.addTrainDepartures(
+        List.of(
+            new TrainDeparture(LocalTime.of(9, 0), "R2", 2, "Bodø", 0, Duration.ZERO),
+            new TrainDeparture(LocalTime.of(15, 0), "F3", 3, "Bergen", 2, Duration.ZERO),
+            new TrainDeparture(LocalTime.of(16, 0), "L1", 4, "Oslo", 3, Duration.ZERO)));
+    trainRegister.addDelay(trainRegister.findDepartureByTrainNumber(1).toArrayList(), 10);
+    trainRegister.changeTracks(trainRegister.findDepartureByTrainNumber(2).toArrayList(), 5);
+    trainRegister.applyBatch(
+        List.of(3), List.of(BatchOperation.addDelay(5), BatchOperation.changeTrack(6)));
+    trainRegister.addDelays(Map.of(1, 2, 3, 4));
+    trainRegister.deleteTrainDepartures(trainRegister.findDepartureByTrainNumber(4).toArrayList());
+    trainRegister.setClock(LocalTime.of(10, 0));
+    trainRegister.departTrains();
+  }
+
+  /**
+   * Checks that a register has the state left by {@link #makeChanges(TrainRegister)}.
+   *
+   * @param trainRegister the register to check
+   */
+  private static void assertChanged(TrainRegister trainRegister) {
+    assertEquals(LocalTime.of(10, 0), trainRegister.getClock());
+    assertEquals(2, trainRegister.getNumTrains());
+    assertNull(trainRegister.findDepartureByTrainNumber(2));
+    assertNull(trainRegister.findDepartureByTrainNumber(4));
+    assertEquals(12, trainRegister.findDepartureByTrainNumber(1).getDelayMinutes());
+    assertEquals(9, trainRegister.findDepartureByTrainNumber(3).getDelayMinutes());
+    assertEquals(6, trainRegister.findDepartureByTrainNumber(3).getTrack());
+  }
+
+  /**
+   * Adds a recurring service with a three hour horizon to a register, moves the clock to 05:00 and
+   * cancels the second departure of the service.
+   *
+   * @param trainRegister the register to change
+   */
+  private static void addService(TrainRegister trainRegister) {
+    trainRegister.setDwellMinutes(5);
+    trainRegister.setServiceHorizon(Duration.ofHours(3));
+    trainRegister.addServiceTemplate(
+        new ServiceTemplate(
+            "L2",
+            "Oslo",
+            2,
+            LocalTime.of(6, 0),
+            LocalTime.of(23, 0),
+            Duration.ofMinutes(30),
+            1000));
+    trainRegister.setClock(LocalTime.of(5, 0));
+    trainRegister.applyBatch(List.of(1001), List.of(BatchOperation.delete()));
+  }
+
+  /**
+   * Checks that a register has the state left by {@link #addService(TrainRegister)}, and continues
+   * the service without the cancelled departure.
+   *
+   * @param trainRegister the register to check
+   */
+  private static void assertServiceRecovered(TrainRegister trainRegister) {
+    assertEquals(1, trainRegister.getServiceTemplates().size());
+    assertEquals(Duration.ofHours(3), trainRegister.getSnapshot().getServiceHorizon());
+    assertEquals(5, trainRegister.getSnapshot().getDwellMinutes());
+    assertEquals(List.of(1000, 1002, 1003), trainNumbers(trainRegister));
+
+    trainRegister.setClock(LocalTime.of(6, 0));
+    assertEquals(List.of(1000, 1002, 1003, 1004, 1005), trainNumbers(trainRegister));
+  }
+
+  private static List<Integer> trainNumbers(TrainRegister trainRegister) {
+    return trainRegister.getTrainDepartures().stream().map(TrainDeparture::getTrainNumber).toList();
+  }
+
+  /** This nested class contains negative tests for the RegisterJournal class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive compaction threshold throws IllegalArgumentException")
+    public void testInvalidCompactionThreshold() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> RegisterJournal.open(snapshotPath(), journalPath(), 0),
+          "Compaction threshold must be positive");
+    }
+
+    @Test
+    @DisplayName("Torn record at the end of the journal is dropped")
+    public void testTornRecord() throws IOException {
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        makeChanges(journal.getTrainRegister());
+      }
+      long size = Files.size(journalPath());
+      Files.write(journalPath(), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertChanged(journal.getTrainRegister());
+      }
+      assertEquals(size, Files.size(journalPath()));
+    }
+  }
+
+  /** This nested class contains positive tests for the RegisterJournal class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Committed changes are recovered from the journal")
+    public void testReplay() throws IOException {
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        makeChanges(journal.getTrainRegister());
+        journal.commit();
+
+        assertEquals(9, journal.getDurableSequence());
+      }
+
+      try (RegisterJournal recovered = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertChanged(recovered.getTrainRegister());
+        assertEquals(9, recovered.getDurableSequence());
+      }
+    }
+
+    @Test
+    @DisplayName("Recurring services are recovered from the journal and from a compaction")
+    public void testServices() throws IOException {
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        addService(journal.getTrainRegister());
+      }
+      try (RegisterJournal recovered = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertServiceRecovered(recovered.getTrainRegister());
+      }
+
+      Files.deleteIfExists(snapshotPath());
+      Files.delete(journalPath());
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        addService(journal.getTrainRegister());
+        journal.compact();
+      }
+      try (RegisterJournal recovered = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertServiceRecovered(recovered.getTrainRegister());
+      }
+    }
+
+    @Test
+    @DisplayName("Journal is compacted into a snapshot when it grows")
+    public void testCompaction() throws IOException {
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath(), 100)) {
+        makeChanges(journal.getTrainRegister());
+        journal.commit();
+        journal.getTrainRegister().setClock(LocalTime.of(11, 0));
+      }
+
+      assertTrue(Files.exists(snapshotPath()));
+      assertTrue(Files.size(journalPath()) < 100);
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath(), 100)) {
+        TrainRegister trainRegister = journal.getTrainRegister();
+        assertEquals(LocalTime.of(11, 0), trainRegister.getClock());
+        assertEquals(2, trainRegister.getNumTrains());
+        assertEquals(12, trainRegister.findDepartureByTrainNumber(1).getDelayMinutes());
+      }
+    }
+
+    @Test
+    @DisplayName("Compact empties the journal")
+    public void testCompact() throws IOException {
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        makeChanges(journal.getTrainRegister());
+        journal.compact();
+
+        assertEquals(0, Files.size(journalPath()));
+      }
+
+      try (RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertChanged(journal.getTrainRegister());
+      }
+    }
+
+    @Test
+    @DisplayName("Concurrent commits make every change durable")
+    public void testConcurrentCommits() throws Exception {
+      RegisterJournal journal = RegisterJournal.open(snapshotPath(), journalPath(), 2048);
+      ConcurrentTrainRegister register = new ConcurrentTrainRegister(journal.getTrainRegister());
+
+      ArrayList<Thread> threads = new ArrayList<>();
+      ArrayList<Throwable> failures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int first = t * 50;
+        Thread thread =
+            new Thread(
+                () -> {
+                  try {
+                    for (int i = first; i < first + 50; i++) {
+                      register.addTrainDeparture(
+                          new TrainDeparture(
+                              LocalTime.of(i / 60, i % 60), "L1", i, "Oslo", 1, Duration.ZERO));
+                      journal.commit();
+                    }
+                  } catch (IOException | RuntimeException e) {
+                    synchronized (failures) {
+                      failures.add(e);
+                    }
+                  }
+                });
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      journal.close();
+
+      assertTrue(failures.isEmpty());
+      try (RegisterJournal recovered = RegisterJournal.open(snapshotPath(), journalPath())) {
+        assertEquals(200, recovered.getTrainRegister().getNumTrains());
+      }
+    }
+  }
+}
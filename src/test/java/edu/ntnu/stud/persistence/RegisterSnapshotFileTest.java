@@ -0,0 +1,149 @@
+package edu.ntnu.stud.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.stud.model.BatchOperation;
+import edu.ntnu.stud.model.ServiceTemplate;
+import edu.ntnu.stud.model.TrainDeparture;
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** This class contains unit tests for the RegisterSnapshotFile class. */
+public class RegisterSnapshotFileTest {
+  @TempDir Path tempDir;
+
+  /** This nested class contains negative tests for the RegisterSnapshotFile class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("File that is not a snapshot throws IOException")
+    public void testNotASnapshot() throws IOException {
+      Path path = tempDir.resolve("register.bin");
+      Files.writeString(path, "12:00,L1,1,Oslo,1,0");
+
+      assertThrows(IOException.class, () -> RegisterSnapshotFile.read(path));
+    }
+
+    @Test
+    @DisplayName("Truncated snapshot throws IOException")
+    public void testTruncatedSnapshot() throws IOException {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(12, 0), "L1", 1, "Oslo", 1, Duration.ZERO));
+      Path path = tempDir.resolve("register.bin");
+      RegisterSnapshotFile.write(trainRegister, path);
+      byte[] bytes = Files.readAllBytes(path);
+      Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+
+      assertThrows(IOException.class, () -> RegisterSnapshotFile.read(path));
+    }
+  }
+
+  /** This nested class contains positive tests for the RegisterSnapshotFile class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Saved register is restored with clock and departures")
+    public void testWriteAndRead() throws IOException {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(12, 0), "L1", 1, "Oslo", 1, Duration.ZERO));
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(9, 30), "R2", 2, "Bodø", 0, Duration.ofMinutes(5)));
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(23, 50), "L1", 3, "Oslo", 4, Duration.ofMinutes(20)));
+      trainRegister.setClock(LocalTime.of(8, 15));
+      Path path = tempDir.resolve("register.bin");
+
+      RegisterSnapshotFile.write(trainRegister, path);
+      TrainRegister restored = RegisterSnapshotFile.read(path);
+
+      ArrayList<TrainDeparture> expected = trainRegister.getTrainDepartures();
+      ArrayList<TrainDeparture> actual = restored.getTrainDepartures();
+      assertEquals(LocalTime.of(8, 15), restored.getClock());
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getTrainNumber(), actual.get(i).getTrainNumber());
+        assertEquals(expected.get(i).getDepartureTime(), actual.get(i).getDepartureTime());
+        assertEquals(expected.get(i).getLine(), actual.get(i).getLine());
+        assertEquals(expected.get(i).getDestination(), actual.get(i).getDestination());
+        assertEquals(expected.get(i).getTrack(), actual.get(i).getTrack());
+        assertEquals(expected.get(i).getDelayMinutes(), actual.get(i).getDelayMinutes());
+      }
+      assertEquals(2, restored.findDeparturesToDestination("Oslo").size());
+    }
+
+    @Test
+    @DisplayName("Saved register is restored with recurring services and settings")
+    public void testWriteAndReadServices() throws IOException {
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.setDwellMinutes(5);
+      trainRegister.setServiceHorizon(Duration.ofHours(3));
+      trainRegister.addServiceTemplate(
+          new ServiceTemplate(
+              "L2",
+              "Oslo",
+              2,
+              LocalTime.of(6, 0),
+              LocalTime.of(23, 0),
+              Duration.ofMinutes(30),
+              1000));
+      trainRegister.setClock(LocalTime.of(5, 0));
+      trainRegister.applyBatch(List.of(1001), List.of(BatchOperation.delete()));
+      Path path = tempDir.resolve("register.bin");
+
+      RegisterSnapshotFile.write(trainRegister, path);
+      TrainRegister restored = RegisterSnapshotFile.read(path);
+
+      assertEquals(1, restored.getServiceTemplates().size());
+      assertEquals(1000, restored.getServiceTemplates().get(0).getFirstTrainNumber());
+      assertEquals(Duration.ofHours(3), restored.getSnapshot().getServiceHorizon());
+      assertEquals(5, restored.getSnapshot().getDwellMinutes());
+      assertEquals(List.of(1000, 1002, 1003), trainNumbers(restored));
+
+      // The cancelled departure is not added again when the service continues
+      trainRegister.setClock(LocalTime.of(6, 0));
+      restored.setClock(LocalTime.of(6, 0));
+      assertEquals(List.of(1000, 1002, 1003, 1004, 1005), trainNumbers(restored));
+      assertEquals(trainNumbers(trainRegister), trainNumbers(restored));
+    }
+
+    @Test
+    @DisplayName("Saving overwrites an existing snapshot")
+    public void testOverwrite() throws IOException {
+      Path path = tempDir.resolve("register.bin");
+      TrainRegister trainRegister = new TrainRegister();
+      trainRegister.addTrainDeparture(
+          new TrainDeparture(LocalTime.of(12, 0), "L1", 1, "Oslo", 1, Duration.ZERO));
+      RegisterSnapshotFile.write(trainRegister, path);
+
+      RegisterSnapshotFile.write(new TrainRegister(), path);
+
+      assertEquals(0, RegisterSnapshotFile.read(path).getNumTrains());
+    }
+  }
+
+  /**
+   * Returns the train numbers of the departures in a register, in time order.
+   *
+   * @param trainRegister the register
+   * @return the train numbers
+   */
+  private static List<Integer> trainNumbers(TrainRegister trainRegister) {
+    return trainRegister.getTrainDepartures().stream().map(TrainDeparture::getTrainNumber).toList();
+  }
+}
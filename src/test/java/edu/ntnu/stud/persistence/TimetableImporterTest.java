@@ -0,0 +1,160 @@
+package edu.ntnu.stud.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ntnu.stud.model.TrainRegister;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** This class contains unit tests for the TimetableImporter class. */
+public class TimetableImporterTest {
+  @TempDir Path tempDir;
+
+  private Path writeTimetable(String... lines) throws IOException {
+    Path path = tempDir.resolve("timetable.csv");
+    Files.writeString(path, String.join("\n", lines), StandardCharsets.UTF_8);
+    return path;
+  }
+
+  /** This nested class contains negative tests for the TimetableImporter class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive chunk size throws IllegalArgumentException")
+    public void testInvalidChunkSize() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new TimetableImporter(0, 10),
+          "Chunk size must be positive");
+    }
+
+    @Test
+    @DisplayName("Missing file throws IOException")
+    public void testMissingFile() {
+      assertThrows(
+          IOException.class,
+          () -> new TimetableImporter().importFile(tempDir.resolve("none"), new TrainRegister()));
+    }
+
+    @Test
+    @DisplayName("Invalid rows are reported with their line numbers")
+    public void testInvalidRows() throws IOException {
+      Path path =
+          writeTimetable(
+              "departureTime,line,trainNumber,destination,track,delayMinutes",
+              "12:00,L1,1,Oslo,1,0",
+              "25:00,L1,2,Oslo,1,0",
+              "12:10,L2,3,Bergen,-1,0",
+              "12:20,L3,1,Trondheim,2,0",
+              "12:30,L4,4,Bodø",
+              "12:40,L5,x,Bodø,,");
+      TrainRegister trainRegister = new TrainRegister();
+
+      ImportReport report = new TimetableImporter(16, 2).importFile(path, trainRegister);
+
+      List<ImportReport.RowError> errors = report.getErrors();
+      assertEquals(1, report.getImportedCount());
+      assertEquals(1, trainRegister.getNumTrains());
+      assertEquals(5, errors.size());
+      assertEquals(
+          List.of(3L, 4L, 5L, 6L, 7L),
+          errors.stream().map(ImportReport.RowError::getLineNumber).toList());
+      assertEquals("Train number 1 already exists", errors.get(2).getMessage());
+      assertEquals("12:20,L3,1,Trondheim,2,0", errors.get(2).getLine());
+    }
+
+    @Test
+    @DisplayName("A delay too large for a departure is reported as a row error")
+    public void testDelayOverflow() throws IOException {
+      Path path =
+          writeTimetable(
+              "12:00,L1,1,Oslo,1,0",
+              "12:10,L2,2,Bergen,2,9999999999",
+              "12:20,L3,3,Trondheim,3," + Long.MAX_VALUE);
+      TrainRegister trainRegister = new TrainRegister();
+
+      ImportReport report = new TimetableImporter().importFile(path, trainRegister);
+
+      assertEquals(1, report.getImportedCount());
+      assertEquals(1, trainRegister.getNumTrains());
+      assertEquals(
+          List.of(2L, 3L),
+          report.getErrors().stream().map(ImportReport.RowError::getLineNumber).toList());
+      assertEquals("Delay is too large", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("A first row that is not the header is reported as a row error")
+    public void testInvalidFirstRow() throws IOException {
+      Path path = writeTimetable("noon,L1,1,Oslo,1,0", "12:10,L2,2,Bergen,2,0");
+      TrainRegister trainRegister = new TrainRegister();
+
+      ImportReport report = new TimetableImporter().importFile(path, trainRegister);
+
+      assertEquals(1, report.getImportedCount());
+      assertEquals(1, report.getErrors().size());
+      assertEquals(1L, report.getErrors().get(0).getLineNumber());
+      assertEquals("Invalid departure time", report.getErrors().get(0).getMessage());
+    }
+  }
+
+  /** This nested class contains positive tests for the TimetableImporter class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Valid rows are imported across chunks and batches")
+    public void testImportFile() throws IOException {
+      Path path =
+          writeTimetable(
+              "# Morning departures",
+              "08:00,L1,10,Oslo,1,0",
+              "",
+              "08:15,R2,11,Bodø,,5",
+              "08:05,F3,12,Bergen,3,",
+              "08:30,L1,13,Oslo,2,0\r");
+      TrainRegister trainRegister = new TrainRegister();
+
+      ImportReport report = new TimetableImporter(8, 2).importFile(path, trainRegister);
+
+      assertFalse(report.hasErrors());
+      assertEquals(4, report.getImportedCount());
+      assertEquals(12, trainRegister.getTrainDepartures().get(1).getTrainNumber());
+      assertEquals(0, trainRegister.findDepartureByTrainNumber(11).getTrack());
+      assertEquals(5, trainRegister.findDepartureByTrainNumber(11).getDelayMinutes());
+      assertEquals(1, trainRegister.findDeparturesToDestination("Bodø").size());
+    }
+
+    @Test
+    @DisplayName("Files with more chunks than are parsed at once are imported in order")
+    public void testImportManyChunks() throws IOException {
+      String[] lines = new String[201];
+      lines[0] = "departureTime,line,trainNumber,destination,track,delayMinutes";
+      for (int i = 1; i <= 200; i++) {
+        // Every tenth row repeats the train number of the row before it
+        int trainNumber = i % 10 == 0 ? i - 1 : i;
+        lines[i] = "12:00,L1," + trainNumber + ",Bodø,,0";
+      }
+      Path path = writeTimetable(lines);
+      TrainRegister trainRegister = new TrainRegister();
+
+      ImportReport report = new TimetableImporter(32, 7).importFile(path, trainRegister);
+
+      assertEquals(180, report.getImportedCount());
+      assertEquals(20, report.getErrors().size());
+      assertEquals(11L, report.getErrors().get(0).getLineNumber());
+      assertEquals("12:00,L1,9,Bodø,,0", report.getErrors().get(0).getLine());
+      assertEquals("12:00,L1,199,Bodø,,0", report.getErrors().get(19).getLine());
+    }
+  }
+}
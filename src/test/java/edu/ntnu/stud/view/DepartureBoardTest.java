@@ -0,0 +1,169 @@
+package edu.ntnu.stud.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.stud.model.ConcurrentTrainRegister;
+import edu.ntnu.stud.model.TrainDeparture;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the DepartureBoard class. */
+public class DepartureBoardTest {
+  private static final String[] HEADER = {"Departure", "Number"};
+  private static final int[] COLUMN_WIDTHS = {9, 6};
+
+  private ConcurrentTrainRegister trainRegister;
+  private AtomicBoolean formatterFails;
+  private ByteArrayOutputStream output;
+  private DepartureBoard board;
+
+  @BeforeEach
+  public void setUp() {
+    trainRegister = new ConcurrentTrainRegister();
+    formatterFails = new AtomicBoolean();
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(0, 10), "L1", 1, "Oslo", 1, Duration.ZERO));
+    trainRegister.addTrainDeparture(
+        new TrainDeparture(LocalTime.of(0, 20), "L2", 2, "Bergen", 2, Duration.ZERO));
+
+    output = new ByteArrayOutputStream();
+    board =
+        new DepartureBoard(
+            trainRegister,
+            HEADER,
+            COLUMN_WIDTHS,
+            departure -> {
+              if (formatterFails.get()) {
+                throw new IllegalStateException("Cannot format departure");
+              }
+              return new String[] {
+                departure.getDepartureTime().toString(),
+                Integer.toString(departure.getTrainNumber())
+              };
+            },
+            3,
+            new PrintStream(output, true, StandardCharsets.UTF_8));
+  }
+
+  private String takeOutput() {
+    String written = output.toString(StandardCharsets.UTF_8);
+    output.reset();
+    return written;
+  }
+
+  /** This nested class contains negative tests for the DepartureBoard class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive number of rows throws IllegalArgumentException")
+    public void testInvalidRows() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              new DepartureBoard(
+                  trainRegister, HEADER, COLUMN_WIDTHS, departure -> HEADER, 0, System.out),
+          "Number of rows must be positive");
+    }
+
+    @Test
+    @DisplayName("A failing tick stops the board and shows the error")
+    public void testFailingTickStopsBoard() throws InterruptedException {
+      board.start(Duration.ofMillis(1), 60_000);
+      formatterFails.set(true);
+
+      long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+      while (!output.toString(StandardCharsets.UTF_8).contains("Board stopped")
+          && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      LocalDateTime clock = trainRegister.getClockDateTime();
+      Thread.sleep(20);
+
+      assertTrue(takeOutput().contains("Board stopped: Cannot format departure"));
+      assertEquals(clock, trainRegister.getClockDateTime());
+      assertTimeout(Duration.ofSeconds(10), board::stop);
+      assertTrue(takeOutput().endsWith("\u001b[?25h"));
+    }
+
+    @Test
+    @DisplayName("Non-positive speed throws IllegalArgumentException")
+    public void testInvalidSpeed() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> board.start(Duration.ofSeconds(1), 0),
+          "Tick interval and speed must be positive");
+    }
+  }
+
+  /** This nested class contains positive tests for the DepartureBoard class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Only the clock line and the rows that changed are redrawn")
+    public void testRedrawsChangedLines() {
+      board.tick(Duration.ofMinutes(1));
+      String first = takeOutput();
+      assertTrue(first.contains("\u001b[1;1HDepartures          Clock 00:01"));
+      assertTrue(first.contains("\u001b[5;1H00:10      1       \u001b[K"));
+      assertTrue(first.contains("\u001b[6;1H00:20      2       \u001b[K"));
+
+      board.tick(Duration.ofMinutes(10));
+      String second = takeOutput();
+      assertTrue(second.contains("Clock 00:11"));
+      assertTrue(second.contains("\u001b[5;1H00:20      2       \u001b[K"));
+      assertTrue(second.contains("\u001b[6;1H\u001b[K"));
+      assertFalse(second.contains("\u001b[7;1H"));
+      assertEquals(1, trainRegister.getNumTrains());
+    }
+
+    @Test
+    @DisplayName("Ticks within the same minute write nothing")
+    public void testNoChangeWritesNothing() {
+      board.tick(Duration.ofMinutes(1));
+      takeOutput();
+
+      board.tick(Duration.ofSeconds(30));
+
+      assertEquals("", takeOutput());
+      assertEquals(LocalTime.of(0, 1), trainRegister.getClock());
+    }
+
+    @Test
+    @DisplayName("A stopped board does not draw after restoring the cursor")
+    public void testStop() {
+      board.start(Duration.ofMillis(1), 60_000);
+      assertTimeout(Duration.ofSeconds(10), board::stop);
+      assertTrue(takeOutput().endsWith("\u001b[?25h"));
+
+      LocalDateTime clock = trainRegister.getClockDateTime();
+      board.tick(Duration.ofMinutes(10));
+      assertEquals("", takeOutput());
+      assertEquals(clock, trainRegister.getClockDateTime());
+    }
+
+    @Test
+    @DisplayName("Clock runs on into the next day")
+    public void testClockPastMidnight() {
+      board.tick(Duration.ofHours(30));
+
+      assertEquals(LocalDate.EPOCH.plusDays(1).atTime(6, 0), trainRegister.getClockDateTime());
+      assertEquals(0, trainRegister.getNumTrains());
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ntnu.stud.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the StreamingTableWriter class. */
+public class StreamingTableWriterTest {
+  private static final String[] HEADER = {"Departure", "Line"};
+  private static final List<String[]> ROWS =
+      List.of(
+          new String[] {"12:10 \u001b[9m12:00\u001b[0m", "L1"},
+          new String[] {"13:00", "R20"},
+          new String[] {"14:00", "Airport"});
+
+  /** This nested class contains negative tests for the StreamingTableWriter class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Non-positive sample size throws IllegalArgumentException")
+    public void testInvalidSampleSize() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> new StreamingTableWriter(new StringWriter(), 0),
+          "Sample size must be positive");
+    }
+  }
+
+  /** This nested class contains positive tests for the StreamingTableWriter class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Table is the same as TableFormatter when every row is sampled")
+    public void testSameAsTableFormatter() throws IOException {
+      StringWriter writer = new StringWriter();
+
+      long written = new StreamingTableWriter(writer, 10).writeTable(HEADER, ROWS.iterator());
+
+      String[][] table = {HEADER, ROWS.get(0), ROWS.get(1), ROWS.get(2)};
+      assertEquals(3, written);
+      assertEquals(TableFormatter.buildTable(table), writer.toString());
+    }
+
+    @Test
+    @DisplayName("Cells wider than the sampled column are cut off")
+    public void testTruncation() throws IOException {
+      StringWriter writer = new StringWriter();
+      StreamingTableWriter tableWriter = new StreamingTableWriter(writer, 2);
+      tableWriter.setMinimumWidths(11);
+
+      tableWriter.writeTable(HEADER, ROWS.iterator());
+
+      String[] lines = writer.toString().split("\n");
+      assertEquals("|  14:00        |  Air…  |", lines[5]);
+      assertEquals(lines[0].length(), lines[5].length());
+    }
+
+    @Test
+    @DisplayName("Paging stops when the next page is declined")
+    public void testPaging() throws IOException {
+      StringWriter writer = new StringWriter();
+      StreamingTableWriter tableWriter = new StreamingTableWriter(writer, 10);
+      tableWriter.setPaging(2, () -> false);
+
+      long written = tableWriter.writeTable(HEADER, ROWS.iterator());
+
+      assertEquals(2, written);
+      assertEquals(6, writer.toString().split("\n").length);
+    }
+  }
+}
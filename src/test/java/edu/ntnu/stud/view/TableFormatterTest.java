@@ -0,0 +1,70 @@
+package edu.ntnu.stud.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/** This class contains unit tests for the TableFormatter class. */
+public class TableFormatterTest {
+  private static final String[][] TABLE = {
+    {"Departure", "Line"},
+    {"12:10 \u001b[9m12:00\u001b[0m", "L1"},
+    {"13:00", "R20"}
+  };
+
+  private static final String EXPECTED =
+      "+---------------+--------+\n"
+          + "|  Departure    |  Line  |\n"
+          + "+---------------+--------+\n"
+          + "|  12:10 \u001b[9m12:00\u001b[0m  |  L1    |\n"
+          + "|  13:00        |  R20   |\n"
+          + "+---------------+--------+\n";
+
+  /** This nested class contains negative tests for the TableFormatter class. */
+  @Nested
+  @DisplayName("Negative tests")
+  public class MethodThrowsException {
+    @Test
+    @DisplayName("Empty table throws IllegalArgumentException")
+    public void testEmptyTable() {
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> TableFormatter.buildTable(new String[0][]),
+          "Table cannot be empty");
+    }
+  }
+
+  /** This nested class contains positive tests for the TableFormatter class. */
+  @Nested
+  @DisplayName("Positive tests")
+  public class MethodDoesNotThrowException {
+    @Test
+    @DisplayName("Escape codes do not count towards the column width")
+    public void testBuildTable() {
+      assertEquals(EXPECTED, TableFormatter.buildTable(TABLE));
+    }
+
+    @Test
+    @DisplayName("Writing to an Appendable gives the same table")
+    public void testBuildTableToAppendable() throws IOException {
+      StringWriter writer = new StringWriter();
+
+      TableFormatter.buildTable(TABLE, writer);
+
+      assertEquals(EXPECTED, writer.toString());
+    }
+
+    @Test
+    @DisplayName("Rendered length skips complete escape codes only")
+    public void testGetRenderedLength() {
+      assertEquals(5, TableFormatter.getRenderedLength("\u001b[1;31mOslo\u001b[0m!"));
+      assertEquals(4, TableFormatter.getRenderedLength("\u001b[x1"));
+      assertEquals(0, TableFormatter.getRenderedLength(""));
+    }
+  }
+}